@@ -1,24 +1,162 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.CharArrayReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 /**
  * Complete Animal Record System - All classes combined into one
  * Main class containing all functionality
  */
+// Every *GUI method times itself with try (Metrics.Timer timer = ...); the timer is only there to be closed
+@SuppressWarnings("try")
 public class Main {
     // Scanner for input
     private Scanner input;
 
-    // Login file references
-    private File staffLoginFile;
-    private File ownerLoginFile;
+    // Hashed credentials loaded from the login files
+    private CredentialStore staffCredentials;
+    private CredentialStore ownerCredentials;
+
+    // Month partitioned milk storage (milk_record.txt holds the open month)
+    private MilkStore milkStore;
+
+    // Daily milk summaries, one entry per date and price
+    private DailySummaryStore summaryStore;
+
+    // Milk price per liter by effective date
+    private PriceSchedule priceSchedule;
+    private RevenueEngine revenueEngine;
+    private JoinEngine joinEngine;
+
+    // Staff name and substring index over staff_record.txt
+    private StaffStore staffDirectory;
+
+    // Animal records by ID with in-place edits (A_record.txt plus its delta log)
+    private AnimalStore animalStore;
+
+    // Bulk CSV loader and streaming CSV / JSON Lines exporter for animals, milk and staff
+    private CsvImporter csvImporter;
+    private DataExporter dataExporter;
+
+    // Files and directories holding the farm data, for the performance report
+    private List<File> dataLocations;
+
+    // Watches the data files for changes made by other PCs (started by the first dashboard)
+    private final File openMilkFile;
+    private final List<File> animalFiles;
+    private ChangeFeed changeFeed;
+
+    // Ordered log of every insert, update and delete, for downstream tools (change_log.jsonl)
+    private ChangeLog changeLog;
+
+    // Recent show results, dropped when the change log reports a change that affects them
+    private ResultCache resultCache;
 
     // Current logged in username
     private String currentStaffUsername;
@@ -26,10 +164,23 @@ public class Main {
 
     // File constants
     private static final String ANIMAL_FILE = "A_record.txt";
+    private static final String ANIMAL_DELTA_FILE = "A_record_delta.txt";
     private static final String MILK_FILE = "milk_record.txt";
     private static final String STAFF_FILE = "staff_record.txt";
     private static final String STAFF_LOGIN_FILE = "staff_login.txt";
     private static final String OWNER_LOGIN_FILE = "owner_login.txt";
+    private static final String SUMMARY_FILE = "daily_summary.txt";
+    private static final String PRICE_FILE = "price_schedule.txt";
+    private static final String CHANGE_LOG_FILE = FarmConfig.get("changelog.file", "change_log.jsonl");
+
+    // Binary storage written by --migrate
+    private static final String DATA_DIR = FarmConfig.get("storage.dir", "farm_data");
+
+    // Which files the stores use: "text" (the files above) or "binary" (record files in DATA_DIR)
+    private static final String STORAGE_BACKEND = FarmConfig.get("storage.backend", "text");
+
+    // Milk readings older than this many days are archived (0 keeps everything live)
+    private static final int MILK_RETENTION_DAYS = FarmConfig.getInt("milk.retentionDays", 0);
 
     // Animal fields
     private String animalId;
@@ -56,14 +207,51 @@ public class Main {
      * Constructor
      */
     public Main() {
+        this(openStorage(), SUMMARY_FILE, PRICE_FILE, CHANGE_LOG_FILE);
+    }
+
+    /**
+     * Constructor over the given stores (the load test uses this to work on a scratch copy)
+     */
+    Main(StorageBackend storage, String summaryFile, String priceFile, String changeLogFile) {
         this.input = new Scanner(System.in);
-        this.staffLoginFile = new File(STAFF_LOGIN_FILE);
-        this.ownerLoginFile = new File(OWNER_LOGIN_FILE);
+        this.staffCredentials = storage.staffLogins;
+        this.ownerCredentials = storage.ownerLogins;
+        this.milkStore = storage.milk;
+        this.summaryStore = new DailySummaryStore(summaryFile);
+        this.priceSchedule = new PriceSchedule(priceFile);
+        this.revenueEngine = new RevenueEngine(milkStore, priceSchedule);
+        this.staffDirectory = storage.staff;
+        this.dataLocations = new ArrayList<>(storage.locations);
+        this.openMilkFile = storage.openMilkFile;
+        this.animalFiles = storage.animalFiles;
+        this.dataLocations.add(new File(summaryFile));
+        this.dataLocations.add(new File(priceFile));
+        this.changeLog = new ChangeLog(new File(changeLogFile));
+        this.dataLocations.add(changeLog.file());
+        this.resultCache = new ResultCache(changeLog, storage.locations, FarmConfig.getInt("cache.maxKB", 4096) * 1024L);
         try {
-            this.staffLoginFile.createNewFile();
-            this.ownerLoginFile.createNewFile();
+            this.staffDirectory.dedupe();
         } catch (IOException e) {
-            System.out.println("Error creating login file: " + e.getMessage());
+            System.out.println("Error cleaning up staff records: " + e.getMessage());
+        }
+        this.animalStore = storage.animals;
+        this.joinEngine = new JoinEngine(animalStore, staffDirectory, milkStore, priceSchedule);
+        this.csvImporter = new CsvImporter(animalStore, milkStore, staffDirectory, changeLog);
+        this.dataExporter = new DataExporter(animalStore, milkStore, staffDirectory);
+        try {
+            // Summaries used to be appended to milk_record.txt, move them to their own store
+            List<String> legacySummaries = this.milkStore.nonReadingLines();
+            if (!legacySummaries.isEmpty()) {
+                this.summaryStore.importLegacyBlocks(legacySummaries);
+                this.milkStore.dropNonReadingLines();
+            }
+            this.milkStore.roll();
+            if (MILK_RETENTION_DAYS > 0) {
+                this.milkStore.archiveBefore(LocalDate.now().minusDays(MILK_RETENTION_DAYS));
+            }
+        } catch (IOException e) {
+            System.out.println("Error sealing milk segments: " + e.getMessage());
         }
     }
 
@@ -71,6 +259,27 @@ public class Main {
      * Main method - Entry point (Launches GUI)
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--migrate")) {
+            migrate();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--check-storage")) {
+            checkStorage(args.length > 1 ? args[1] : "20000");
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--load-test")) {
+            loadTest(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--changes")) {
+            printChanges(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            serve(args.length > 1 ? Integer.parseInt(args[1]) : FarmConfig.getInt("server.port", 8080));
+            return;
+        }
+        FlightEvents.watchEventDispatch();
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
@@ -84,6 +293,143 @@ public class Main {
         });
     }
 
+    /**
+     * Copies the legacy text files into the binary format under storage.dir (java Main --migrate).
+     * Safe to rerun: finished steps are skipped, so an interrupted run picks up where it stopped.
+     */
+    private static boolean migrate() {
+        try {
+            LegacyMigration migration = new LegacyMigration(new File(DATA_DIR));
+            System.out.print(migration.run(new File(ANIMAL_FILE), new File(ANIMAL_DELTA_FILE), new File(STAFF_FILE),
+                    new File(MILK_FILE), new File(MilkSegmentStore.SEGMENT_DIR), new File(SUMMARY_FILE),
+                    new File(STAFF_LOGIN_FILE), new File(OWNER_LOGIN_FILE)));
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error migrating data: " + e.getMessage());
+            System.out.println("Run java Main --migrate again to resume.");
+            return false;
+        }
+    }
+
+    /**
+     * Opens the stores for storage.backend. The binary backend is migrated from the text files
+     * the first time it is used; if that fails the text files are used.
+     */
+    private static StorageBackend openStorage() {
+        if (STORAGE_BACKEND.equalsIgnoreCase("binary")) {
+            File dir = new File(DATA_DIR);
+            if (new File(dir, LegacyMigration.MANIFEST_FILE).exists() || migrate()) {
+                try {
+                    return StorageBackend.binary(dir, new File(MilkArchive.ARCHIVE_DIR));
+                } catch (IOException e) {
+                    System.out.println("Error opening " + DATA_DIR + ": " + e.getMessage());
+                }
+            }
+            System.out.println("Using the text files instead.");
+        } else if (!STORAGE_BACKEND.equalsIgnoreCase("text")) {
+            System.out.println("Unknown storage.backend \"" + STORAGE_BACKEND + "\", using the text files.");
+        }
+        try {
+            new File(STAFF_LOGIN_FILE).createNewFile();
+            new File(OWNER_LOGIN_FILE).createNewFile();
+        } catch (IOException e) {
+            System.out.println("Error creating login file: " + e.getMessage());
+        }
+        return StorageBackend.text(new File(ANIMAL_FILE), new File(ANIMAL_DELTA_FILE), new File(STAFF_FILE),
+                new File(STAFF_LOGIN_FILE), new File(OWNER_LOGIN_FILE), new File(MILK_FILE),
+                new File(MilkSegmentStore.SEGMENT_DIR), new File(MilkArchive.ARCHIVE_DIR));
+    }
+
+    /**
+     * Prints change log events after a sequence number as JSON lines
+     * (java Main --changes [afterSeq] [--follow]); --follow keeps printing new events as they come
+     */
+    private static void printChanges(String[] args) {
+        long after = 0;
+        boolean follow = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--follow")) {
+                follow = true;
+            } else {
+                try {
+                    after = Long.parseLong(args[i]);
+                } catch (NumberFormatException e) {
+                    System.out.println("Usage: java Main --changes [afterSeq] [--follow]");
+                    return;
+                }
+            }
+        }
+        ChangeLog log = new ChangeLog(new File(CHANGE_LOG_FILE));
+        try {
+            while (true) {
+                long last = log.read(after, 10000, event -> System.out.println(event.json));
+                if (last == after) {
+                    if (!follow) {
+                        return;
+                    }
+                    Thread.sleep(1000);
+                }
+                after = last;
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading " + CHANGE_LOG_FILE + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    /**
+     * Serves the JSON API until the process is stopped (java Main --server [port])
+     */
+    private static void serve(int port) {
+        try {
+            Main app = new Main();
+            final ApiServer server = new ApiServer(app, FarmConfig.get("server.bind", "0.0.0.0"), port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            MetricsExporter.startConfigured(app);
+            server.start();
+            System.out.println("Serving the Animal Record System API on port " + server.port() +
+                    (server.usesVirtualThreads() ? " (virtual threads)" : " (thread pool)"));
+        } catch (IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Simulates concurrent milking terminals and reports throughput and latency (java Main --load-test [options])
+     */
+    private static void loadTest(String[] args) {
+        LoadTest test = new LoadTest();
+        String problem = test.configure(args);
+        if (problem != null) {
+            System.out.println(problem);
+            System.out.println("Usage: java Main --load-test [--threads N] [--virtual] [--seconds N] [--herd 100,1000,10000]\n" +
+                    "       [--mix add,search,milkByAnimal,dailyTotal] [--backend text|binary] [--server | --url URL --user U --password P]");
+            return;
+        }
+        try {
+            test.run();
+        } catch (IOException e) {
+            System.out.println("Error running load test: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the storage conformance checks and timings against every backend (java Main --check-storage [animals])
+     */
+    private static void checkStorage(String animals) {
+        try {
+            StorageCheck check = new StorageCheck();
+            System.out.print(check.run(Integer.parseInt(animals)));
+            if (!check.passed()) {
+                System.exit(1);
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Error checking storage: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
     /**
      * Main program loop
      */
@@ -135,38 +481,6 @@ public class Main {
 
     // ==================== USER AUTHENTICATION METHODS ====================
 
-    /**
-     * Checks if user exists in the login file
-     */
-    private boolean userExists(String username, File loginFile) throws IOException {
-        Scanner checkScanner = new Scanner(loginFile);
-        while (checkScanner.hasNextLine()) {
-            String[] parts = checkScanner.nextLine().split(",");
-            if (parts.length == 2 && parts[0].equals(username)) {
-                checkScanner.close();
-                return true;
-            }
-        }
-        checkScanner.close();
-        return false;
-    }
-
-    /**
-     * Validates credentials from file
-     */
-    private boolean validateCredentials(String username, String password, File loginFile) throws IOException {
-        Scanner read = new Scanner(loginFile);
-        while (read.hasNextLine()) {
-            String[] parts = read.nextLine().split(",");
-            if (parts.length == 2 && parts[0].equals(username) && parts[1].equals(password)) {
-                read.close();
-                return true;
-            }
-        }
-        read.close();
-        return false;
-    }
-
     // ==================== STAFF LOGIN METHODS ====================
 
     /**
@@ -178,7 +492,7 @@ public class Main {
         System.out.print("Enter Password: ");
         String password = input.next();
 
-        if (validateCredentials(username, password, staffLoginFile)) {
+        if (staffCredentials.verify(username, password)) {
             System.out.println("Login successful!\n");
             this.currentStaffUsername = username;
             return true;
@@ -197,13 +511,12 @@ public class Main {
         System.out.print("Enter Password: ");
         String password = input.next();
 
-        if (userExists(username, staffLoginFile)) {
-            System.out.println("Staff already exist, try another username.");
-        } else {
-            FileWriter loginWrite = new FileWriter(STAFF_LOGIN_FILE, true);
-            loginWrite.write(username + "," + password + "\n");
-            loginWrite.close();
+        if (username.contains(",")) {
+            System.out.println("Username cannot contain a comma.");
+        } else if (staffSignUpGUI(username, password)) {
             System.out.println("Sign up successfully! Please login now.");
+        } else {
+            System.out.println("Staff already exist, try another username.");
         }
     }
 
@@ -287,7 +600,7 @@ public class Main {
         System.out.print("Enter Password: ");
         String password = input.next();
 
-        if (validateCredentials(username, password, ownerLoginFile)) {
+        if (ownerCredentials.verify(username, password)) {
             System.out.println("Login successful!\n");
             this.currentOwnerUsername = username;
             return true;
@@ -386,21 +699,19 @@ public class Main {
     // ==================== ANIMAL METHODS ====================
 
     /**
-     * Add animal record to file
+     * Add animal record to file, returns false when the Animal ID already exists
      */
-    private void addAnimal() throws IOException {
-        FileWriter animalRecord = new FileWriter(ANIMAL_FILE, true);
-        animalRecord.write("Animal ID = " + this.animalId + "\n");
-        animalRecord.write("Animal Age = " + this.age + "\n");
-        animalRecord.write("Animal Gender = " + this.gender + "\n");
-        animalRecord.write("Animal Purchase Date = " + this.purchaseDate + "\n");
-        animalRecord.write("Feed Type = " + this.feedType + "\n");
-        animalRecord.write("Times per day = " + this.feedTimes + "\n");
-        animalRecord.write("Vaccination = " + this.vaccinated + "\n");
-        animalRecord.write("Animal Type = " + this.animalType + "\n");
-        animalRecord.write("=======================================================================================\n");
-        animalRecord.close();
-        System.out.println("Animal record added.");
+    private boolean addAnimal() throws IOException {
+        AnimalRecord record = new AnimalRecord(this.animalId, String.valueOf(this.age), String.valueOf(this.gender),
+                this.purchaseDate, this.feedType, this.feedTimes, String.valueOf(this.vaccinated), this.animalType);
+        // The check and the add are one write, so two requests for the same ID cannot both add it
+        boolean added = !changeLog.write(() -> animalStore.exists(record.animalId) ? Collections.<ChangeLog.Change>emptyList()
+                : Collections.singletonList(ChangeLog.Change.animal(null, record)), () -> {
+            animalStore.add(record);
+            return true;
+        }).isEmpty();
+        System.out.println(added ? "Animal record added." : "Animal ID already exists.");
+        return added;
     }
 
     /**
@@ -431,124 +742,28 @@ public class Main {
      * Search animal by ID
      */
     private void searchAnimal(String searchId) throws IOException {
-        File file = new File(ANIMAL_FILE);
-        if (!file.exists()) {
-            System.out.println("No animal records found.");
-            return;
-        }
-        boolean found = false;
-        Scanner scanner = new Scanner(file);
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            if (line.startsWith("Animal ID =") && line.contains(searchId)) {
-                found = true;
-                System.out.println("\n Animal Found ");
-                System.out.println(line);
-                while (scanner.hasNextLine()) {
-                    String nextLine = scanner.nextLine();
-                    if (nextLine.startsWith("===")) break;
-                    System.out.println(nextLine);
-                }
-                break;
-            }
-        }
-        scanner.close();
-        if (!found) {
-            System.out.println("No record found for Animal ID: " + searchId);
-        }
+        System.out.println(searchAnimalGUI(searchId));
     }
 
     /**
      * Delete animal by ID
      */
     private void deleteAnimal(String deleteId) throws IOException {
-        File original = new File(ANIMAL_FILE);
-        File temp = new File("temp.txt");
-        FileReader fr = new FileReader(original);
-        Scanner reader = new Scanner(fr);
-        FileWriter writer = new FileWriter(temp);
-        boolean found = false;
-        boolean skipBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Animal ID =") && line.contains(deleteId)) {
-                found = true;
-                skipBlock = true;
-                continue;
-            }
-            if (skipBlock) {
-                if (line.startsWith("===")) {
-                    skipBlock = false;
-                }
-                continue;
-            }
-            writer.write(line + "\n");
-        }
-        reader.close();
-        writer.close();
-        if (original.delete() && temp.renameTo(original)) {
-            if (found) {
-                System.out.println("Animal record deleted successfully.");
-            } else {
-                System.out.println("Animal ID not found.");
-            }
-        } else {
-            System.out.println("Error occurred while deleting animal record.");
-        }
+        System.out.println(deleteAnimalGUI(deleteId));
     }
 
     /**
      * Show animals by type
      */
     private void showAnimalsByType(String type) throws IOException {
-        File file = new File(ANIMAL_FILE);
-        if (!file.exists()) {
-            System.out.println("No animal records found.");
-            return;
-        }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        StringBuilder block = new StringBuilder();
-        boolean inBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Animal ID =")) {
-                block = new StringBuilder();
-                inBlock = true;
-            }
-            if (inBlock) {
-                block.append(line).append("\n");
-            }
-            if (line.toLowerCase().startsWith("animal type =") && line.toLowerCase().contains(type.toLowerCase())) {
-                found = true;
-                System.out.println("\n--- Animal Record Found ---");
-                System.out.print(block.toString());
-            }
-            if (line.startsWith("===")) {
-                inBlock = false;
-            }
-        }
-        reader.close();
-        if (!found) {
-            System.out.println("No animal records found for type: " + type);
-        }
+        System.out.println(showAnimalsByTypeGUI(type));
     }
 
     /**
      * Show all animal records
      */
     private void showAllAnimals() throws IOException {
-        File file = new File(ANIMAL_FILE);
-        if (!file.exists()) {
-            System.out.println("No animal records found.");
-            return;
-        }
-        Scanner reader = new Scanner(file);
-        System.out.println("\nAll Animal Records:");
-        while (reader.hasNextLine()) {
-            System.out.println(reader.nextLine());
-        }
-        reader.close();
+        System.out.println(showAllAnimalsGUI());
     }
 
     /**
@@ -556,14 +771,11 @@ public class Main {
      */
     private void addMilkRecord(String date, String animalId, String quantity,
                                String staffName, String pricePerLiter) throws IOException {
-        FileWriter milkWriter = new FileWriter(MILK_FILE, true);
-        milkWriter.write("Date = " + date + "\n");
-        milkWriter.write("Animal ID = " + animalId + "\n");
-        milkWriter.write("Milk Quantity = " + quantity + " liters\n");
-        milkWriter.write("Staff Name = " + staffName + "\n");
-        milkWriter.write("Price per Liter = " + pricePerLiter + "\n");
-        milkWriter.write("--------------------------------------------------\n");
-        milkWriter.close();
+        MilkReading reading = new MilkReading(date, animalId, quantity, staffName, pricePerLiter);
+        changeLog.write(() -> Collections.singletonList(ChangeLog.Change.milk(reading)), () -> {
+            milkStore.append(reading);
+            return true;
+        });
         System.out.println("Milk record added.");
     }
 
@@ -588,51 +800,14 @@ public class Main {
      * Calculate daily milk price
      */
     private void calculateDailyMilkPrice(String date, double pricePerLiter) throws IOException {
-        File file = new File(MILK_FILE);
-        if (!file.exists()) {
-            System.out.println("No milk records found.");
-            return;
-        }
-        Scanner reader = new Scanner(file);
-        double totalLiters = 0;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Date = ") && line.contains(date)) {
-                reader.nextLine(); // skip Animal ID
-                String qtyLine = reader.nextLine();
-                String[] parts = qtyLine.split("=");
-                if (parts.length == 2) {
-                    String qtyStr = parts[1].replace("liters", "").replace("liter", "").trim();
-                    try {
-                        totalLiters += Double.parseDouble(qtyStr);
-                    } catch (NumberFormatException e) {
-                        // skip invalid
-                    }
-                }
-            }
-        }
-        reader.close();
-        double totalPrice = totalLiters * pricePerLiter;
-        System.out.println("Total milk for " + date + ": " + totalLiters + " liters");
-        System.out.println("Total price for " + date + ": " + totalPrice);
-
-        // Append summary to milk_record.txt
-        FileWriter milkWriter = new FileWriter(MILK_FILE, true);
-        milkWriter.write("Daily Summary for " + date + ":\n");
-        milkWriter.write("Total Milk = " + totalLiters + " liters\n");
-        milkWriter.write("Price per liter = " + pricePerLiter + "\n");
-        milkWriter.write("Total Price = " + totalPrice + "\n");
-        milkWriter.write("==================================================\n");
-        milkWriter.close();
-        System.out.println("Daily summary appended to milk_record.txt");
+        System.out.println(calculateDailyMilkPriceGUI(date, pricePerLiter));
     }
 
     /**
      * Prompt user and calculate daily milk price
      */
     private void calculateDailyMilkPricePrompt() throws IOException {
-        File file = new File(MILK_FILE);
-        if (!file.exists()) {
+        if (!milkStore.hasData()) {
             System.out.println("No milk records found.");
             return;
         }
@@ -648,58 +823,14 @@ public class Main {
 //     Show milk record by animal ID
 
     private void showMilkRecordByAnimalId(String animalId) throws IOException {
-        File file = new File(MILK_FILE);
-        if (!file.exists()) {
-            System.out.println("No milk records found.");
-            return;
-        }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        String date = "", staffName = "", quantity = "", price = "";
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Date = ")) {
-                date = line.substring(7).trim();
-                staffName = "";
-                quantity = "";
-                price = "";
-            } else if (line.startsWith("Animal ID = ")) {
-                String thisId = line.substring(12).trim();
-                if (thisId.equals(animalId)) {
-                    found = true;
-                    if (reader.hasNextLine()) quantity = reader.nextLine().replace("Milk Quantity = ", "").replace("liters", "").replace("liter", "").trim();
-                    if (reader.hasNextLine()) staffName = reader.nextLine().replace("Staff Name = ", "").trim();
-                    if (reader.hasNextLine()) price = reader.nextLine().replace("Price per Liter = ", "").trim();
-                    System.out.println("Date: " + date);
-                    System.out.println("Animal ID: " + animalId);
-                    System.out.println("milkman Name: " + staffName);
-                    System.out.println("Total Milk: " + quantity + " liters");
-                    System.out.println("Price per Liter: " + price);
-                    double totalPrice = 0.0;
-                    try {
-                        double qty = Double.parseDouble(quantity);
-                        double prc = Double.parseDouble(price);
-                        totalPrice = qty * prc;
-                    } catch (Exception e) {
-                        // ignore parse errors
-                    }
-                    System.out.println("Total milk Price: " + totalPrice);
-                    System.out.println();
-                }
-            }
-        }
-        reader.close();
-        if (!found) {
-            System.out.println("No milk records found for Animal ID: " + animalId);
-        }
+        System.out.println(showMilkRecordByAnimalIdGUI(animalId));
     }
 
     /**
      * Prompt user and show milk record by animal ID
      */
     private void showMilkRecordByAnimalIdPrompt() throws IOException {
-        File file = new File(MILK_FILE);
-        if (!file.exists()) {
+        if (!milkStore.hasData()) {
             System.out.println("No milk records found.");
             return;
         }
@@ -714,15 +845,17 @@ public class Main {
      * Add staff record to file
      */
     private void addStaff() throws IOException {
-        FileWriter staffWriter = new FileWriter(STAFF_FILE, true);
-        staffWriter.write("Staff Name = " + this.staffName + "\n");
-        staffWriter.write("Work Status = " + this.workStatus + "\n");
-        staffWriter.write("Working Hours = " + this.workingHours + "\n");
-        staffWriter.write("Salary = " + this.salary + "\n");
-        staffWriter.write("Staff type = " + this.staffType + "\n");
-        staffWriter.write("--------------------------------------------------\n");
-        staffWriter.close();
-        System.out.println("Staff record added successfully.");
+        StaffRecord record = new StaffRecord(this.staffName, this.workStatus, this.workingHours, this.salary, this.staffType);
+        List<ChangeLog.Change> changes = changeLog.write(
+                () -> Collections.singletonList(ChangeLog.Change.staff(staffDirectory.findExact(record.name), record)), () -> {
+                    staffDirectory.upsert(record);
+                    return true;
+                });
+        if (changes.get(0).before == null) {
+            System.out.println("Staff record added successfully.");
+        } else {
+            System.out.println("Staff record updated successfully.");
+        }
     }
 
     /**
@@ -746,128 +879,28 @@ public class Main {
      * Show all staff records
      */
     private void showAllStaff() throws IOException {
-        File file = new File(STAFF_FILE);
-        if (!file.exists()) {
-            System.out.println("No staff records found.");
-            return;
-        }
-        Scanner reader = new Scanner(file);
-        System.out.println("\nAll Staff Records:");
-        while (reader.hasNextLine()) {
-            System.out.println(reader.nextLine());
-        }
-        reader.close();
+        System.out.print(showAllStaffGUI());
     }
 
     /**
      * Search staff by keyword
      */
     private void searchStaff(String keyword) throws IOException {
-        File file = new File(STAFF_FILE);
-        if (!file.exists()) {
-            System.out.println("No staff records found.");
-            return;
-        }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.toLowerCase().contains(keyword.toLowerCase())) {
-                found = true;
-                System.out.println("\n--- Staff Record Found ---");
-                System.out.println(line);
-                while (reader.hasNextLine()) {
-                    String nextLine = reader.nextLine();
-                    if (nextLine.startsWith("---") || nextLine.isBlank()) break;
-                    System.out.println(nextLine);
-                }
-                break;
-            }
-        }
-        reader.close();
-        if (!found) {
-            System.out.println("No staff record found with keyword: " + keyword);
-        }
+        System.out.println(searchStaffGUI(keyword));
     }
 
     /**
      * Remove staff by name
      */
     private void removeStaff(String nameToDelete) throws IOException {
-        File original = new File(STAFF_FILE);
-        File temp = new File("temp_staff.txt");
-        if (!original.exists()) {
-            System.out.println("No staff records found.");
-            return;
-        }
-        FileReader fr = new FileReader(original);
-        Scanner reader = new Scanner(fr);
-        FileWriter writer = new FileWriter(temp);
-        boolean found = false;
-        boolean skipBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.toLowerCase().contains("staff name =") && line.toLowerCase().contains(nameToDelete.toLowerCase())) {
-                found = true;
-                skipBlock = true;
-                continue;
-            }
-            if (skipBlock) {
-                if (line.startsWith("--------------------------------------------------")) {
-                    skipBlock = false;
-                }
-                continue;
-            }
-            writer.write(line + "\n");
-        }
-        reader.close();
-        writer.close();
-        if (original.delete() && temp.renameTo(original)) {
-            if (found) {
-                System.out.println("Staff record removed successfully.");
-            } else {
-                System.out.println("Staff name not found.");
-            }
-        } else {
-            System.out.println("Error occurred while deleting staff record.");
-        }
+        System.out.println(removeStaffGUI(nameToDelete));
     }
 
     /**
      * Show staff by type
      */
     private void showStaffByType(String type) throws IOException {
-        File file = new File(STAFF_FILE);
-        if (!file.exists()) {
-            System.out.println("No staff records found.");
-            return;
-        }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        StringBuilder block = new StringBuilder();
-        boolean inBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Staff Name =")) {
-                block = new StringBuilder();
-                inBlock = true;
-            }
-            if (inBlock) {
-                block.append(line).append("\n");
-            }
-            if (line.toLowerCase().startsWith("staff type =") && line.toLowerCase().contains(type.toLowerCase())) {
-                found = true;
-                System.out.println("\n--- Staff Record Found ---");
-                System.out.print(block.toString());
-            }
-            if (line.startsWith("---")) {
-                inBlock = false;
-            }
-        }
-        reader.close();
-        if (!found) {
-            System.out.println("No staff records found for type: " + type);
-        }
+        System.out.println(showStaffByTypeGUI(type));
     }
 
     // ==================== STAFF PROFILE METHODS ====================
@@ -876,10 +909,7 @@ public class Main {
      * Add own profile for logged-in staff
      */
     private void addOwnProfile(String username) throws IOException {
-        FileWriter staffWriter = new FileWriter(STAFF_FILE, true);
-
         System.out.println("Adding/Updating your profile. Your username will be used as Staff Name.");
-        String name = username;
 
         System.out.print("Enter Work Status (Full-time / Part-time): ");
         String status = input.nextLine();
@@ -890,55 +920,16 @@ public class Main {
         System.out.print("Enter Staff Type: ");
         String staffType = input.nextLine();
 
-        staffWriter.write("Staff Name = " + name + "\n");
-        staffWriter.write("Work Status = " + status + "\n");
-        staffWriter.write("Working Hours = " + hours + "\n");
-        staffWriter.write("Salary = " + salary + "\n");
-        staffWriter.write("Staff type = " + staffType + "\n");
-        staffWriter.write("--------------------------------------------------\n");
-        staffWriter.close();
+        addOwnProfileGUI(username, status, hours, salary, staffType);
 
-        System.out.println("Your profile has been added.");
+        System.out.println("Your profile has been saved.");
     }
 
     /**
      * See staff profile by username
      */
     private void seeStaffProfile(String username) throws IOException {
-        File file = new File(STAFF_FILE);
-        if (!file.exists()) {
-            System.out.println("No staff records found.");
-            return;
-        }
-
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        StringBuilder block = new StringBuilder();
-        boolean inBlock = false;
-
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Staff Name =")) {
-                block = new StringBuilder();
-                inBlock = true;
-            }
-            if (inBlock) {
-                block.append(line).append("\n");
-            }
-            if (line.toLowerCase().startsWith("staff name =") && line.toLowerCase().contains(username.toLowerCase())) {
-                found = true;
-                System.out.println("\n--- Your Staff Profile ---");
-                System.out.print(block.toString());
-            }
-            if (line.startsWith("---")) {
-                inBlock = false;
-            }
-        }
-        reader.close();
-
-        if (!found) {
-            System.out.println("No profile found for username: " + username);
-        }
+        System.out.println(seeStaffProfileGUI(username));
     }
 
     // ==================== GUI-FRIENDLY METHODS (Keep all original methods above) ====================
@@ -947,24 +938,24 @@ public class Main {
      * GUI-friendly: Staff login with parameters
      */
     public boolean staffLoginGUI(String username, String password) throws IOException {
-        if (validateCredentials(username, password, staffLoginFile)) {
-            this.currentStaffUsername = username;
-            return true;
+        try (Metrics.Timer timer = Metrics.time("staffLogin", username)) {
+            if (staffCredentials.verify(username, password)) {
+                this.currentStaffUsername = username;
+                return true;
+            }
+            return false;
         }
-        return false;
     }
 
     /**
      * GUI-friendly: Staff signup with parameters
      */
     public boolean staffSignUpGUI(String username, String password) throws IOException {
-        if (userExists(username, staffLoginFile)) {
-            return false;
-        } else {
-            FileWriter loginWrite = new FileWriter(STAFF_LOGIN_FILE, true);
-            loginWrite.write(username + "," + password + "\n");
-            loginWrite.close();
-            return true;
+        try (Metrics.Timer timer = Metrics.time("staffSignUp", username)) {
+            // The login is logged without its password
+            ChangeLog.Change change = new ChangeLog.Change("staff_logins", username, new String[]{"username"}, null, new String[]{username});
+            return !changeLog.write(() -> staffCredentials.exists(username) ? Collections.<ChangeLog.Change>emptyList()
+                    : Collections.singletonList(change), () -> staffCredentials.add(username, password)).isEmpty();
         }
     }
 
@@ -972,97 +963,153 @@ public class Main {
      * GUI-friendly: Owner login with parameters
      */
     public boolean ownerLoginGUI(String username, String password) throws IOException {
-        if (validateCredentials(username, password, ownerLoginFile)) {
-            this.currentOwnerUsername = username;
-            return true;
+        try (Metrics.Timer timer = Metrics.time("ownerLogin", username)) {
+            if (ownerCredentials.verify(username, password)) {
+                this.currentOwnerUsername = username;
+                return true;
+            }
+            return false;
         }
-        return false;
     }
 
     /**
-     * GUI-friendly: Add animal with parameters
+     * GUI-friendly: Checks a login without signing anyone in, returns "owner", "staff" or null
      */
-    public void addAnimalRecordGUI(String animalId, int age, char gender, String purchaseDate,
-                                   char vaccinated, String feedType, String feedTimes, String animalType) throws IOException {
-        this.animalId = animalId;
-        this.age = age;
-        this.gender = gender;
-        this.purchaseDate = purchaseDate;
-        this.vaccinated = vaccinated;
-        this.feedType = feedType;
-        this.feedTimes = feedTimes;
-        this.animalType = animalType;
-        this.addAnimal();
+    public String checkLoginGUI(String username, String password) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("checkLogin", username)) {
+            if (ownerCredentials.verify(username, password)) {
+                return "owner";
+            }
+            if (staffCredentials.verify(username, password)) {
+                return "staff";
+            }
+            return null;
+        }
     }
 
     /**
-     * GUI-friendly: Search animal returns result string
+     * GUI-friendly: Add animal with parameters, returns false when the Animal ID already exists
      */
-    public String searchAnimalGUI(String searchId) throws IOException {
-        File file = new File(ANIMAL_FILE);
-        if (!file.exists()) {
-            return "No animal records found.";
+    public synchronized boolean addAnimalRecordGUI(String animalId, int age, char gender, String purchaseDate,
+                                   char vaccinated, String feedType, String feedTimes, String animalType) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("addAnimalRecord", animalId, age, gender, purchaseDate, vaccinated, feedType, feedTimes, animalType)) {
+            this.animalId = animalId;
+            this.age = age;
+            this.gender = gender;
+            this.purchaseDate = purchaseDate;
+            this.vaccinated = vaccinated;
+            this.feedType = feedType;
+            this.feedTimes = feedTimes;
+            this.animalType = animalType;
+            return this.addAnimal();
         }
-        boolean found = false;
-        StringBuilder result = new StringBuilder();
-        Scanner scanner = new Scanner(file);
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            if (line.startsWith("Animal ID =") && line.contains(searchId)) {
-                found = true;
-                result.append("\n Animal Found \n");
-                result.append(line).append("\n");
-                while (scanner.hasNextLine()) {
-                    String nextLine = scanner.nextLine();
-                    if (nextLine.startsWith("===")) break;
-                    result.append(nextLine).append("\n");
-                }
-                break;
+    }
+
+    /**
+     * GUI-friendly: Update an existing animal with parameters, returns message
+     */
+    public String updateAnimalGUI(String animalId, int age, char gender, String purchaseDate,
+                                  char vaccinated, String feedType, String feedTimes, String animalType) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("updateAnimal", animalId, age, gender, purchaseDate, vaccinated, feedType, feedTimes, animalType)) {
+            AnimalRecord record = new AnimalRecord(animalId, String.valueOf(age), String.valueOf(gender), purchaseDate,
+                    feedType, feedTimes, String.valueOf(vaccinated), animalType);
+            List<ChangeLog.Change> changes = changeLog.write(() -> {
+                AnimalRecord before = animalStore.get(animalId);
+                return before == null ? Collections.<ChangeLog.Change>emptyList()
+                        : Collections.singletonList(ChangeLog.Change.animal(before, record));
+            }, () -> animalStore.update(record));
+            if (!changes.isEmpty()) {
+                return "Animal record updated successfully.";
             }
+            return "Animal ID not found.";
         }
-        scanner.close();
-        if (!found) {
-            return "No record found for Animal ID: " + searchId;
+    }
+
+    /**
+     * GUI-friendly: Look up one animal by its exact ID, null if there is none
+     */
+    public AnimalRecord getAnimalGUI(String animalId) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getAnimal", animalId)) {
+            return animalStore.get(animalId.trim());
         }
-        return result.toString();
     }
 
     /**
-     * GUI-friendly: Delete animal returns message
+     * GUI-friendly: Every current animal record, in file order
      */
-    public String deleteAnimalGUI(String deleteId) throws IOException {
-        File original = new File(ANIMAL_FILE);
-        File temp = new File("temp.txt");
-        FileReader fr = new FileReader(original);
-        Scanner reader = new Scanner(fr);
-        FileWriter writer = new FileWriter(temp);
-        boolean found = false;
-        boolean skipBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Animal ID =") && line.contains(deleteId)) {
-                found = true;
-                skipBlock = true;
-                continue;
+    public List<AnimalRecord> getAnimalsGUI() throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getAnimals")) {
+            return animalStore.all();
+        }
+    }
+
+    /**
+     * GUI-friendly: Number of animals on file
+     */
+    public int getAnimalCountGUI() throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getAnimalCount")) {
+            return animalStore.size();
+        }
+    }
+
+    /**
+     * GUI-friendly: Search animal returns result string
+     */
+    public String searchAnimalGUI(String searchId) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("searchAnimal", searchId)) {
+            if (animalStore.size() == 0) {
+                return "No animal records found.";
             }
-            if (skipBlock) {
-                if (line.startsWith("===")) {
-                    skipBlock = false;
+            AnimalRecord match = animalStore.get(searchId.trim());
+            if (match == null) {
+                for (AnimalRecord record : animalStore.all()) {
+                    if (record.animalId.contains(searchId)) {
+                        match = record;
+                        break;
+                    }
                 }
-                continue;
             }
-            writer.write(line + "\n");
+            if (match == null) {
+                return "No record found for Animal ID: " + searchId;
+            }
+            String block = match.toBlock();
+            return "\n Animal Found \n" + block.substring(0, block.length() - AnimalRecord.SEPARATOR.length() - 1);
         }
-        reader.close();
-        writer.close();
-        if (original.delete() && temp.renameTo(original)) {
-            if (found) {
+    }
+
+    /**
+     * GUI-friendly: Delete animal returns message
+     */
+    public String deleteAnimalGUI(String deleteId) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("deleteAnimal", deleteId)) {
+            String id = deleteId.trim();
+            if (!animalStore.exists(id)) {
+                // Fall back to a substring match, but only when it identifies a single animal
+                Set<String> ids = new TreeSet<>();
+                for (AnimalRecord record : animalStore.all()) {
+                    if (record.animalId.contains(id)) {
+                        ids.add(record.animalId);
+                    }
+                }
+                if (ids.isEmpty()) {
+                    return "Animal ID not found.";
+                }
+                if (ids.size() > 1) {
+                    return "More than one animal matches \"" + id + "\": " + String.join(", ", ids) +
+                            ". Please enter the full Animal ID.";
+                }
+                id = ids.iterator().next();
+            }
+            String found = id;
+            List<ChangeLog.Change> changes = changeLog.write(() -> {
+                AnimalRecord before = animalStore.get(found);
+                return before == null ? Collections.<ChangeLog.Change>emptyList()
+                        : Collections.singletonList(ChangeLog.Change.animal(before, null));
+            }, () -> animalStore.delete(found));
+            if (!changes.isEmpty()) {
                 return "Animal record deleted successfully.";
-            } else {
-                return "Animal ID not found.";
             }
-        } else {
-            return "Error occurred while deleting animal record.";
+            return "Animal ID not found.";
         }
     }
 
@@ -1070,35 +1117,23 @@ public class Main {
      * GUI-friendly: Show animals by type returns result string
      */
     public String showAnimalsByTypeGUI(String type) throws IOException {
-        File file = new File(ANIMAL_FILE);
-        if (!file.exists()) {
+        try (Metrics.Timer timer = Metrics.time("showAnimalsByType", type)) {
+            return resultCache.get(() -> listAnimalsByType(type), "showAnimalsByType", type);
+        }
+    }
+
+    private String listAnimalsByType(String type) throws IOException {
+        if (animalStore.size() == 0) {
             return "No animal records found.";
         }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
         StringBuilder result = new StringBuilder();
-        StringBuilder block = new StringBuilder();
-        boolean inBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Animal ID =")) {
-                block = new StringBuilder();
-                inBlock = true;
-            }
-            if (inBlock) {
-                block.append(line).append("\n");
-            }
-            if (line.toLowerCase().startsWith("animal type =") && line.toLowerCase().contains(type.toLowerCase())) {
-                found = true;
+        for (AnimalRecord record : animalStore.all()) {
+            if (record.animalType.toLowerCase().contains(type.toLowerCase())) {
                 result.append("\n--- Animal Record Found ---\n");
-                result.append(block.toString());
-            }
-            if (line.startsWith("===")) {
-                inBlock = false;
+                result.append(record.toBlock());
             }
         }
-        reader.close();
-        if (!found) {
+        if (result.length() == 0) {
             return "No animal records found for type: " + type;
         }
         return result.toString();
@@ -1108,1277 +1143,9511 @@ public class Main {
      * GUI-friendly: Show all animals returns result string
      */
     public String showAllAnimalsGUI() throws IOException {
-        File file = new File(ANIMAL_FILE);
-        if (!file.exists()) {
+        try (Metrics.Timer timer = Metrics.time("showAllAnimals")) {
+            return resultCache.get(this::listAllAnimals, "showAllAnimals");
+        }
+    }
+
+    private String listAllAnimals() throws IOException {
+        if (animalStore.size() == 0) {
             return "No animal records found.";
         }
-        Scanner reader = new Scanner(file);
         StringBuilder result = new StringBuilder("\nAll Animal Records:\n");
-        while (reader.hasNextLine()) {
-            result.append(reader.nextLine()).append("\n");
+        for (AnimalRecord record : animalStore.all()) {
+            result.append(record.toBlock());
         }
-        reader.close();
         return result.toString();
     }
 
+    /**
+     * GUI-friendly: Delete or update many animals at once, returns a per-ID report.
+     * animalIds may be separated by commas, spaces or new lines. field is the A_record.txt key
+     * to change (e.g. "Vaccination"), or null to delete the listed animals.
+     */
+    public String bulkAnimalUpdateGUI(String animalIds, String field, String value) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("bulkAnimalUpdate", animalIds, field, value)) {
+            List<String> ids = new ArrayList<>();
+            for (String id : animalIds.split("[,;\\s]+")) {
+                if (!id.isEmpty()) {
+                    ids.add(id);
+                }
+            }
+            if (ids.isEmpty()) {
+                return "No Animal IDs given.";
+            }
+            if (animalStore.size() == 0) {
+                return "No animal records found.";
+            }
+            Map<String, Boolean> results = new LinkedHashMap<>();
+            changeLog.write(() -> {
+                List<ChangeLog.Change> changes = new ArrayList<>();
+                for (String id : ids) {
+                    AnimalRecord before = results.containsKey(id) ? null : animalStore.get(id);
+                    if (before != null) {
+                        changes.add(ChangeLog.Change.animal(before, field == null ? null : before.with(field, value)));
+                    }
+                    results.putIfAbsent(id, before != null);
+                }
+                return changes;
+            }, () -> {
+                animalStore.bulkApply(ids, r -> field == null ? null : r.with(field, value));
+                return true;
+            });
+            int done = 0;
+            StringBuilder report = new StringBuilder();
+            for (Map.Entry<String, Boolean> result : results.entrySet()) {
+                if (result.getValue()) {
+                    done++;
+                    report.append(result.getKey()).append(field == null ? " - deleted\n" : " - updated\n");
+                } else {
+                    report.append(result.getKey()).append(" - Animal ID not found\n");
+                }
+            }
+            String action = field == null ? "deleted" : "updated (" + field + " = " + value + ")";
+            return done + " of " + results.size() + " animals " + action + ".\n\n" + report;
+        }
+    }
+
     /**
      * GUI-friendly: Add milk record with parameters
      */
     public void addMilkRecordGUI(String date, String animalId, String quantity, String staffName, String pricePerLiter) throws IOException {
-        addMilkRecord(date, animalId, quantity, staffName, pricePerLiter);
+        try (Metrics.Timer timer = Metrics.time("addMilkRecord", date, animalId, quantity, staffName, pricePerLiter)) {
+            addMilkRecord(date, animalId, quantity, staffName, pricePerLiter);
+        }
     }
 
     /**
-     * GUI-friendly: Calculate daily milk price returns result string
+     * GUI-friendly: Add one day's milking for many animals at once, returns message.
+     * Each entry is {animalId, liters}; blank liters are skipped. Nothing is saved if any
+     * entry is invalid. The day's summary is refreshed once when a price is scheduled.
      */
-    public String calculateDailyMilkPriceGUI(String date, double pricePerLiter) throws IOException {
-        File file = new File(MILK_FILE);
-        if (!file.exists()) {
-            return "No milk records found.";
-        }
-        Scanner reader = new Scanner(file);
-        double totalLiters = 0;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Date = ") && line.contains(date)) {
-                reader.nextLine(); // skip Animal ID
-                String qtyLine = reader.nextLine();
-                String[] parts = qtyLine.split("=");
-                if (parts.length == 2) {
-                    String qtyStr = parts[1].replace("liters", "").replace("liter", "").trim();
-                    try {
-                        totalLiters += Double.parseDouble(qtyStr);
-                    } catch (NumberFormatException e) {
-                        // skip invalid
+    public String addMilkBatchGUI(String date, String staffName, String pricePerLiter, List<String[]> entries) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("addMilkBatch", date, staffName, pricePerLiter, entries)) {
+            LocalDate day = FarmDates.parse(date);
+            if (day == null) {
+                return "Invalid date: " + date + " (use DD-MM-YYYY)";
+            }
+            List<MilkReading> readings = new ArrayList<>();
+            List<String> invalid = new ArrayList<>();
+            for (String[] entry : entries) {
+                String liters = entry[1] == null ? "" : entry[1].trim();
+                if (liters.isEmpty()) {
+                    continue;
+                }
+                try {
+                    if (Double.parseDouble(liters) < 0) {
+                        invalid.add(entry[0]);
+                        continue;
                     }
+                } catch (NumberFormatException e) {
+                    invalid.add(entry[0]);
+                    continue;
                 }
+                readings.add(new MilkReading(date, entry[0], liters, staffName, pricePerLiter));
+            }
+            if (!invalid.isEmpty()) {
+                return "Invalid quantity for Animal ID: " + String.join(", ", invalid) + ". Nothing was saved.";
+            }
+            if (readings.isEmpty()) {
+                return "No quantities entered. Nothing was saved.";
+            }
+            List<ChangeLog.Change> changes = new ArrayList<>();
+            for (MilkReading reading : readings) {
+                changes.add(ChangeLog.Change.milk(reading));
             }
+            changeLog.write(() -> changes, () -> {
+                milkStore.appendAll(readings);
+                return true;
+            });
+            String result = readings.size() + " milk records added for " + date + ".";
+            Double price = priceSchedule.priceOn(day);
+            if (price != null) {
+                result += "\n" + calculateDailyMilkPriceGUI(date, price);
+            }
+            return result;
         }
-        reader.close();
-        double totalPrice = totalLiters * pricePerLiter;
-
-        // Append summary to milk_record.txt
-        FileWriter milkWriter = new FileWriter(MILK_FILE, true);
-        milkWriter.write("Daily Summary for " + date + ":\n");
-        milkWriter.write("Total Milk = " + totalLiters + " liters\n");
-        milkWriter.write("Price per liter = " + pricePerLiter + "\n");
-        milkWriter.write("Total Price = " + totalPrice + "\n");
-        milkWriter.write("==================================================\n");
-        milkWriter.close();
-
-        return "Total milk for " + date + ": " + totalLiters + " liters\n" +
-                "Total price for " + date + ": " + totalPrice + "\n" +
-                "Daily summary appended to milk_record.txt";
     }
 
     /**
-     * GUI-friendly: Show milk record by animal ID returns result string
+     * GUI-friendly: Bulk import a CSV file (with a header row), returns a summary of the import.
+     * progress gets the running count of rows read.
      */
-    public String showMilkRecordByAnimalIdGUI(String animalId) throws IOException {
-        File file = new File(MILK_FILE);
-        if (!file.exists()) {
-            return "No milk records found.";
+    public String importCsvGUI(CsvImporter.Kind kind, String path, LongConsumer progress) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("importCsv", kind, path)) {
+            File csv = new File(path);
+            if (!csv.exists()) {
+                return "File not found: " + path;
+            }
+            long start = System.currentTimeMillis();
+            CsvImporter.Result result = csvImporter.importFile(kind, csv, progress);
+            return kind.label + " import from " + csv.getName() + " finished in " +
+                    (System.currentTimeMillis() - start) + " ms\n" + result;
         }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        StringBuilder result = new StringBuilder();
-        String date = "", staffName = "", quantity = "", price = "";
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Date = ")) {
-                date = line.substring(7).trim();
-                staffName = "";
-                quantity = "";
-                price = "";
-            } else if (line.startsWith("Animal ID = ")) {
-                String thisId = line.substring(12).trim();
-                if (thisId.equals(animalId)) {
-                    found = true;
-                    if (reader.hasNextLine()) quantity = reader.nextLine().replace("Milk Quantity = ", "").replace("liters", "").replace("liter", "").trim();
-                    if (reader.hasNextLine()) staffName = reader.nextLine().replace("Staff Name = ", "").trim();
-                    if (reader.hasNextLine()) price = reader.nextLine().replace("Price per Liter = ", "").trim();
-                    result.append("Date: ").append(date).append("\n");
-                    result.append("Animal ID: ").append(animalId).append("\n");
-                    result.append("milkman Name: ").append(staffName).append("\n");
-                    result.append("Total Milk: ").append(quantity).append(" liters\n");
-                    result.append("Price per Liter: ").append(price).append("\n");
-                    double totalPrice = 0.0;
-                    try {
-                        double qty = Double.parseDouble(quantity);
-                        double prc = Double.parseDouble(price);
-                        totalPrice = qty * prc;
-                    } catch (Exception e) {
-                        // ignore parse errors
-                    }
-                    result.append("Total milk Price: ").append(totalPrice).append("\n\n");
+    }
+
+    /**
+     * GUI-friendly: Stream matching records to a CSV or JSON Lines file, returns a summary.
+     * Blank filters match everything. Set cancel to stop; progress gets the running row count.
+     */
+    public String exportGUI(CsvImporter.Kind kind, DataExporter.Format format, String from, String to,
+                            String animalId, String type, boolean includeArchive, String path,
+                            AtomicBoolean cancel, LongConsumer progress) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("export", kind, format, from, to, animalId, type, includeArchive, path)) {
+            DataExporter.Filter filter = new DataExporter.Filter();
+            if (!from.trim().isEmpty()) {
+                filter.from = FarmDates.parse(from.trim());
+                if (filter.from == null) {
+                    return "Invalid date: " + from + " (use DD-MM-YYYY)";
                 }
             }
+            if (!to.trim().isEmpty()) {
+                filter.to = FarmDates.parse(to.trim());
+                if (filter.to == null) {
+                    return "Invalid date: " + to + " (use DD-MM-YYYY)";
+                }
+            }
+            filter.animalId = animalId;
+            filter.type = type;
+            filter.includeArchive = includeArchive;
+            long start = System.currentTimeMillis();
+            long rows = dataExporter.export(kind, format, filter, new File(path), cancel, progress);
+            return rows + " row(s) of " + kind.label.toLowerCase() + " exported to " + path + " in " +
+                    (System.currentTimeMillis() - start) + " ms";
         }
-        reader.close();
-        if (!found) {
-            return "No milk records found for Animal ID: " + animalId;
-        }
-        return result.toString();
     }
 
     /**
-     * GUI-friendly: Manage staff with parameters
+     * GUI-friendly: Calculate daily milk price returns result string
      */
-    public void manageStaffGUI(String name, String workStatus, String workingHours, String salary, String staffType) throws IOException {
-        this.staffName = name;
-        this.workStatus = workStatus;
-        this.workingHours = workingHours;
-        this.salary = salary;
-        this.staffType = staffType;
-        this.addStaff();
+    public String calculateDailyMilkPriceGUI(String date, double pricePerLiter) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("calculateDailyMilkPrice", date, pricePerLiter)) {
+            return calculateDailyMilkPriceGUI(date, pricePerLiter, false);
+        }
     }
 
     /**
-     * GUI-friendly: Show all staff returns result string
+     * GUI-friendly: Calculate daily milk price, optionally including archived readings
      */
-    public String showAllStaffGUI() throws IOException {
-        File file = new File(STAFF_FILE);
-        if (!file.exists()) {
-            return "No staff records found.";
+    public String calculateDailyMilkPriceGUI(String date, double pricePerLiter, boolean includeArchive) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("calculateDailyMilkPrice", date, pricePerLiter, includeArchive)) {
+            if (!milkStore.hasData(includeArchive)) {
+                return "No milk records found.";
+            }
+            final double[] total = new double[1];
+            final long[] readings = new long[1];
+            Metrics.Span span = Metrics.begin(Metrics.AGGREGATION, "daily total " + date);
+            LocalDate day = FarmDates.parse(date);
+            if (day != null) {
+                milkStore.scan(day, day, includeArchive, r -> {
+                    total[0] += r.liters();
+                    readings[0]++;
+                });
+            } else {
+                milkStore.scan(null, null, includeArchive, r -> {
+                    if (r.date.contains(date)) {
+                        total[0] += r.liters();
+                        readings[0]++;
+                    }
+                });
+            }
+            double totalLiters = total[0];
+            double totalPrice = totalLiters * pricePerLiter;
+            span.end(readings[0], 0);
+
+            summaryStore.put(date, pricePerLiter, totalLiters, totalPrice);
+
+            return "Total milk for " + date + ": " + totalLiters + " liters\n" +
+                    "Total price for " + date + ": " + totalPrice + "\n" +
+                    "Daily summary saved to " + SUMMARY_FILE;
         }
-        Scanner reader = new Scanner(file);
-        StringBuilder result = new StringBuilder("\nAll Staff Records:\n");
-        while (reader.hasNextLine()) {
-            result.append(reader.nextLine()).append("\n");
+    }
+
+    /**
+     * GUI-friendly: Calculate daily milk price using the price schedule, returns result string
+     */
+    public String calculateDailyMilkPriceGUI(String date) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("calculateDailyMilkPrice", date)) {
+            Double price = getScheduledPriceGUI(date);
+            if (price == null) {
+                return "No milk price set for " + date + ". Please set the milk price first.";
+            }
+            return calculateDailyMilkPriceGUI(date, price);
         }
-        reader.close();
-        return result.toString();
     }
 
     /**
-     * GUI-friendly: Search staff returns result string
+     * GUI-friendly: Scheduled price per liter on a date, null if none is set
      */
-    public String searchStaffGUI(String keyword) throws IOException {
-        File file = new File(STAFF_FILE);
-        if (!file.exists()) {
-            return "No staff records found.";
+    public Double getScheduledPriceGUI(String date) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getScheduledPrice", date)) {
+            LocalDate day = FarmDates.parse(date);
+            return day == null ? null : priceSchedule.priceOn(day);
         }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        StringBuilder result = new StringBuilder();
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.toLowerCase().contains(keyword.toLowerCase())) {
-                found = true;
-                result.append("\n--- Staff Record Found ---\n");
-                result.append(line).append("\n");
-                while (reader.hasNextLine()) {
-                    String nextLine = reader.nextLine();
-                    if (nextLine.startsWith("---") || nextLine.isBlank()) break;
-                    result.append(nextLine).append("\n");
-                }
-                break;
+    }
+
+    /**
+     * GUI-friendly: Set milk price per liter from a date onwards, returns message
+     */
+    public String setMilkPriceGUI(String effectiveFrom, double pricePerLiter) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("setMilkPrice", effectiveFrom, pricePerLiter)) {
+            LocalDate day = FarmDates.parse(effectiveFrom);
+            if (day == null) {
+                return "Invalid date: " + effectiveFrom + " (use DD-MM-YYYY)";
             }
+            String[] columns = {"effectiveFrom", "pricePerLiter"};
+            changeLog.write(() -> {
+                Double before = priceSchedule.priceSetOn(day);
+                return Collections.singletonList(new ChangeLog.Change("prices", FarmDates.format(day), columns,
+                        before == null ? null : new String[]{FarmDates.format(day), String.valueOf(before)},
+                        new String[]{FarmDates.format(day), String.valueOf(pricePerLiter)}));
+            }, () -> {
+                priceSchedule.setPrice(day, pricePerLiter);
+                return true;
+            });
+            return "Milk price set to " + pricePerLiter + " per liter from " + FarmDates.format(day) + ".";
         }
-        reader.close();
-        if (!found) {
-            return "No staff record found with keyword: " + keyword;
+    }
+
+    /**
+     * GUI-friendly: Show the milk price schedule returns result string
+     */
+    public String showPriceScheduleGUI() throws IOException {
+        try (Metrics.Timer timer = Metrics.time("showPriceSchedule")) {
+            List<String> entries = priceSchedule.entries();
+            if (entries.isEmpty()) {
+                return "No milk prices set.";
+            }
+            StringBuilder result = new StringBuilder("\nMilk Price Schedule:\n");
+            for (String entry : entries) {
+                result.append(entry).append("\n");
+            }
+            return result.toString();
         }
-        return result.toString();
     }
 
     /**
-     * GUI-friendly: Remove staff returns message
+     * GUI-friendly: Milk revenue for a date range, optionally for one animal and/or staff member.
+     * Empty animal ID / staff name means all.
      */
-    public String removeStaffGUI(String nameToDelete) throws IOException {
-        File original = new File(STAFF_FILE);
-        File temp = new File("temp_staff.txt");
-        if (!original.exists()) {
-            return "No staff records found.";
+    public String revenueReportGUI(String fromDate, String toDate, String animalId, String staffName,
+                                   boolean includeArchive) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("revenueReport", fromDate, toDate, animalId, staffName, includeArchive)) {
+            LocalDate from = FarmDates.parse(fromDate);
+            LocalDate to = FarmDates.parse(toDate);
+            if (from == null || to == null) {
+                return "Invalid date range (use DD-MM-YYYY).";
+            }
+            if (to.isBefore(from)) {
+                return "End date is before start date.";
+            }
+            RevenueEngine.Report report = revenueEngine.run(from, to,
+                    animalId == null || animalId.trim().isEmpty() ? null : animalId.trim(),
+                    staffName == null || staffName.trim().isEmpty() ? null : staffName.trim(),
+                    includeArchive);
+
+            StringBuilder result = new StringBuilder("\nMilk Revenue " + FarmDates.format(from) + " to " + FarmDates.format(to) + "\n");
+            if (animalId != null && !animalId.trim().isEmpty()) {
+                result.append("Animal ID: ").append(animalId.trim()).append("\n");
+            }
+            if (staffName != null && !staffName.trim().isEmpty()) {
+                result.append("Staff Name: ").append(staffName.trim()).append("\n");
+            }
+            for (Map.Entry<YearMonth, double[]> month : report.byMonth.entrySet()) {
+                result.append(month.getKey()).append(": ").append(month.getValue()[0]).append(" liters, revenue ")
+                        .append(month.getValue()[1]).append("\n");
+            }
+            result.append("Readings: ").append(report.readings).append("\n");
+            result.append("Total Milk: ").append(report.liters).append(" liters\n");
+            result.append("Total Revenue: ").append(report.revenue).append("\n");
+            if (report.storedPriceUsed > 0) {
+                result.append(report.storedPriceUsed).append(" reading(s) outside the price schedule used their own price.\n");
+            }
+            if (report.unpriced > 0) {
+                result.append(report.unpriced).append(" reading(s) had no price and were skipped.\n");
+            }
+            return result.toString();
         }
-        FileReader fr = new FileReader(original);
-        Scanner reader = new Scanner(fr);
-        FileWriter writer = new FileWriter(temp);
-        boolean found = false;
-        boolean skipBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.toLowerCase().contains("staff name =") && line.toLowerCase().contains(nameToDelete.toLowerCase())) {
-                found = true;
-                skipBlock = true;
-                continue;
+    }
+
+    /**
+     * GUI-friendly: Milk totals grouped by an animal or milkman attribute, returns result string.
+     * Empty dates mean no bound.
+     */
+    public String milkReportGUI(JoinEngine.GroupBy groupBy, String fromDate, String toDate,
+                                boolean includeArchive) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("milkReport", groupBy, fromDate, toDate, includeArchive)) {
+            LocalDate from = null, to = null;
+            if (fromDate != null && !fromDate.trim().isEmpty()) {
+                from = FarmDates.parse(fromDate);
+                if (from == null) {
+                    return "Invalid date: " + fromDate + " (use DD-MM-YYYY)";
+                }
             }
-            if (skipBlock) {
-                if (line.startsWith("--------------------------------------------------")) {
-                    skipBlock = false;
+            if (toDate != null && !toDate.trim().isEmpty()) {
+                to = FarmDates.parse(toDate);
+                if (to == null) {
+                    return "Invalid date: " + toDate + " (use DD-MM-YYYY)";
                 }
-                continue;
             }
-            writer.write(line + "\n");
-        }
-        reader.close();
-        writer.close();
-        if (original.delete() && temp.renameTo(original)) {
-            if (found) {
-                return "Staff record removed successfully.";
-            } else {
-                return "Staff name not found.";
+            List<JoinEngine.Group> groups = joinEngine.milkBy(groupBy, from, to, includeArchive);
+            if (groups.isEmpty()) {
+                return "No milk records found.";
             }
-        } else {
-            return "Error occurred while deleting staff record.";
+            StringBuilder result = new StringBuilder("\nMilk by " + groupBy + "\n");
+            for (JoinEngine.Group group : groups) {
+                result.append(group.key).append(": ").append(group.liters).append(" liters from ")
+                        .append(group.readings).append(" reading(s), revenue ").append(group.revenue).append("\n");
+            }
+            return result.toString();
         }
     }
 
     /**
-     * GUI-friendly: Show staff by type returns result string
+     * GUI-friendly: Show stored daily summaries returns result string
      */
-    public String showStaffByTypeGUI(String type) throws IOException {
-        File file = new File(STAFF_FILE);
-        if (!file.exists()) {
-            return "No staff records found.";
-        }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        StringBuilder result = new StringBuilder();
-        StringBuilder block = new StringBuilder();
-        boolean inBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Staff Name =")) {
-                block = new StringBuilder();
-                inBlock = true;
-            }
-            if (inBlock) {
-                block.append(line).append("\n");
-            }
-            if (line.toLowerCase().startsWith("staff type =") && line.toLowerCase().contains(type.toLowerCase())) {
-                found = true;
-                result.append("\n--- Staff Record Found ---\n");
-                result.append(block.toString());
+    public String showDailySummariesGUI() throws IOException {
+        try (Metrics.Timer timer = Metrics.time("showDailySummaries")) {
+            List<String> summaries = summaryStore.all();
+            if (summaries.isEmpty()) {
+                return "No daily summaries found.";
             }
-            if (line.startsWith("---")) {
-                inBlock = false;
+            StringBuilder result = new StringBuilder("\nDaily Summaries:\n");
+            for (String summary : summaries) {
+                result.append(summary).append("\n");
             }
+            return result.toString();
         }
-        reader.close();
-        if (!found) {
-            return "No staff records found for type: " + type;
-        }
-        return result.toString();
     }
 
     /**
-     * GUI-friendly: Add own profile with parameters
+     * GUI-friendly: Milk readings dated within [from, to] (null bounds are open), optionally for one animal
      */
-    public void addOwnProfileGUI(String username, String status, String hours, String salary, String staffType) throws IOException {
-        FileWriter staffWriter = new FileWriter(STAFF_FILE, true);
-        String name = username;
-        staffWriter.write("Staff Name = " + name + "\n");
-        staffWriter.write("Work Status = " + status + "\n");
-        staffWriter.write("Working Hours = " + hours + "\n");
-        staffWriter.write("Salary = " + salary + "\n");
-        staffWriter.write("Staff type = " + staffType + "\n");
-        staffWriter.write("--------------------------------------------------\n");
-        staffWriter.close();
+    public List<MilkReading> getMilkReadingsGUI(LocalDate from, LocalDate to, String animalId,
+                                                boolean includeArchive) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getMilkReadings", from, to, animalId, includeArchive)) {
+            final List<MilkReading> readings = new ArrayList<>();
+            final String id = animalId == null || animalId.trim().isEmpty() ? null : animalId.trim();
+            milkStore.scan(from, to, includeArchive, r -> {
+                if (id == null || id.equals(r.animalId)) {
+                    readings.add(r);
+                }
+            });
+            return readings;
+        }
     }
 
     /**
-     * GUI-friendly: See staff profile returns result string
+     * GUI-friendly: Milk revenue totals for a date range, empty animal ID / staff name means all
      */
-    public String seeStaffProfileGUI(String username) throws IOException {
-        File file = new File(STAFF_FILE);
-        if (!file.exists()) {
-            return "No staff records found.";
-        }
-        Scanner reader = new Scanner(file);
-        boolean found = false;
-        StringBuilder block = new StringBuilder();
-        boolean inBlock = false;
-        while (reader.hasNextLine()) {
-            String line = reader.nextLine();
-            if (line.startsWith("Staff Name =")) {
-                block = new StringBuilder();
-                inBlock = true;
-            }
-            if (inBlock) {
-                block.append(line).append("\n");
-            }
-            if (line.toLowerCase().startsWith("staff name =") && line.toLowerCase().contains(username.toLowerCase())) {
-                found = true;
-            }
-            if (line.startsWith("---")) {
-                if (found) break;
-                inBlock = false;
-            }
+    public RevenueEngine.Report getRevenueGUI(LocalDate from, LocalDate to, String animalId, String staffName,
+                                              boolean includeArchive) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getRevenue", from, to, animalId, staffName, includeArchive)) {
+            return revenueEngine.run(from, to,
+                    animalId == null || animalId.trim().isEmpty() ? null : animalId.trim(),
+                    staffName == null || staffName.trim().isEmpty() ? null : staffName.trim(),
+                    includeArchive);
         }
-        reader.close();
-        if (!found) {
-            return "No profile found for username: " + username;
+    }
+
+    /**
+     * GUI-friendly: Milk totals grouped by an animal or milkman attribute (null dates are open)
+     */
+    public List<JoinEngine.Group> getMilkGroupsGUI(JoinEngine.GroupBy groupBy, LocalDate from, LocalDate to,
+                                                   boolean includeArchive) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getMilkGroups", groupBy, from, to, includeArchive)) {
+            return joinEngine.milkBy(groupBy, from, to, includeArchive);
         }
-        return "\n--- Your Staff Profile ---\n" + block.toString();
     }
 
     /**
-     * Get current staff username
+     * GUI-friendly: Show milk record by animal ID returns result string
      */
-    public String getCurrentStaffUsername() {
-        return currentStaffUsername;
+    public String showMilkRecordByAnimalIdGUI(String animalId) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("showMilkRecordByAnimalId", animalId)) {
+            return showMilkRecordByAnimalIdGUI(animalId, false);
+        }
     }
 
     /**
-     * Get current owner username
+     * GUI-friendly: Show milk record by animal ID, optionally including archived readings
      */
-    public String getCurrentOwnerUsername() {
-        return currentOwnerUsername;
+    public String showMilkRecordByAnimalIdGUI(String animalId, boolean includeArchive) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("showMilkRecordByAnimalId", animalId, includeArchive)) {
+            return resultCache.get(() -> listMilkRecords(animalId, includeArchive),
+                    "showMilkRecordByAnimalId", animalId, String.valueOf(includeArchive));
+        }
     }
-}
 
-// ==================== GUI CLASSES ====================
+    private String listMilkRecords(String animalId, boolean includeArchive) throws IOException {
+        if (!milkStore.hasData(includeArchive)) {
+            return "No milk records found.";
+        }
+        final StringBuilder result = new StringBuilder();
+        milkStore.scan(null, null, includeArchive, r -> {
+            if (r.animalId.equals(animalId)) {
+                result.append("Date: ").append(r.date).append("\n");
+                result.append("Animal ID: ").append(animalId).append("\n");
+                result.append("milkman Name: ").append(r.staffName).append("\n");
+                result.append("Total Milk: ").append(r.quantity).append(" liters\n");
+                result.append("Price per Liter: ").append(r.pricePerLiter).append("\n");
+                double totalPrice = 0.0;
+                try {
+                    double qty = Double.parseDouble(r.quantity);
+                    double prc = Double.parseDouble(r.pricePerLiter);
+                    totalPrice = qty * prc;
+                } catch (Exception e) {
+                    // ignore parse errors
+                }
+                result.append("Total milk Price: ").append(totalPrice).append("\n\n");
+            }
+        });
+        if (result.length() == 0) {
+            return "No milk records found for Animal ID: " + animalId;
+        }
+        return result.toString();
+    }
 
-/**
- * Main GUI Entry Point - Animal Record System
- * Provides role selection interface
- */
-class MainGUI extends JFrame {
-    private Main mainSystem;
+    /**
+     * GUI-friendly: Archive milk readings older than the given number of days, returns message
+     */
+    public String archiveOldMilkRecordsGUI(int retentionDays) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("archiveOldMilkRecords", retentionDays)) {
+            if (retentionDays <= 0) {
+                return "Retention must be at least 1 day.";
+            }
+            LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+            int moved = milkStore.archiveBefore(cutoff);
+            resultCache.drop("showMilkRecordByAnimalId");
+            return moved + " milk record(s) dated before " + FarmDates.format(cutoff) + " moved to the archive.\n" +
+                    "Archive now holds " + milkStore.archivedRecordCount() + " record(s).";
+        }
+    }
 
-    public MainGUI() {
-        mainSystem = new Main();
-        initializeGUI();
+    /**
+     * Configured milk retention in days (0 when archiving is only done manually)
+     */
+    public int getMilkRetentionDays() {
+        return MILK_RETENTION_DAYS;
     }
 
-    private void initializeGUI() {
-        setTitle("Animal Record System");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(500, 400);
-        setLocationRelativeTo(null);
-        setResizable(true);
-
-        JPanel mainPanel = new JPanel(new BorderLayout());
-        mainPanel.setBorder(BorderFactory.createEmptyBorder(50, 50, 50, 50));
-        mainPanel.setBackground(new Color(240, 248, 255));
+    /**
+     * GUI-friendly: Manage staff with parameters
+     */
+    public synchronized void manageStaffGUI(String name, String workStatus, String workingHours, String salary, String staffType) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("manageStaff", name, workStatus, workingHours, salary, staffType)) {
+            this.staffName = name;
+            this.workStatus = workStatus;
+            this.workingHours = workingHours;
+            this.salary = salary;
+            this.staffType = staffType;
+            this.addStaff();
+        }
+    }
 
-        JLabel titleLabel = new JLabel("Welcome to the Animal Record System", JLabel.CENTER);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
-        titleLabel.setBorder(BorderFactory.createEmptyBorder(20, 0, 40, 0));
-        mainPanel.add(titleLabel, BorderLayout.NORTH);
+    /**
+     * GUI-friendly: Show all staff returns result string
+     */
+    public String showAllStaffGUI() throws IOException {
+        try (Metrics.Timer timer = Metrics.time("showAllStaff")) {
+            return resultCache.get(this::listAllStaff, "showAllStaff");
+        }
+    }
 
-        JPanel buttonPanel = new JPanel(new GridLayout(3, 1, 15, 15));
-        buttonPanel.setBorder(BorderFactory.createEmptyBorder(20, 50, 20, 50));
+    private String listAllStaff() throws IOException {
+        List<StaffRecord> staff = staffDirectory.all();
+        if (staff.isEmpty()) {
+            return "No staff records found.";
+        }
+        StringBuilder result = new StringBuilder("\nAll Staff Records:\n");
+        for (StaffRecord record : staff) {
+            result.append(record.toBlock());
+        }
+        return result.toString();
+    }
 
-        JButton staffButton = new JButton("Staff");
-        staffButton.setFont(new Font("Arial", Font.PLAIN, 18));
-        staffButton.setPreferredSize(new Dimension(200, 60));
-        staffButton.setBackground(new Color(70, 130, 180));
-        staffButton.setForeground(Color.black);
-        staffButton.setFocusPainted(false);
-        staffButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                openStaffLogin();
+    /**
+     * GUI-friendly: Staff records matching a keyword, or every record when the keyword is empty
+     */
+    public List<StaffRecord> getStaffGUI(String keyword) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getStaff", keyword)) {
+            if (keyword == null || keyword.trim().isEmpty()) {
+                return staffDirectory.all();
             }
-        });
+            return staffDirectory.search(keyword.trim());
+        }
+    }
 
-        JButton ownerButton = new JButton("Owner");
-        ownerButton.setFont(new Font("Arial", Font.PLAIN, 18));
-        ownerButton.setPreferredSize(new Dimension(200, 60));
-        ownerButton.setBackground(new Color(34, 139, 34));
-        ownerButton.setForeground(Color.black);
-        ownerButton.setFocusPainted(false);
-        ownerButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                openOwnerLogin();
+    /**
+     * GUI-friendly: Search staff returns result string
+     */
+    public String searchStaffGUI(String keyword) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("searchStaff", keyword)) {
+            if (staffDirectory.all().isEmpty()) {
+                return "No staff records found.";
             }
-        });
-
-        JButton exitButton = new JButton("Exit");
-        exitButton.setFont(new Font("Arial", Font.PLAIN, 18));
-        exitButton.setPreferredSize(new Dimension(200, 60));
-        exitButton.setBackground(new Color(220, 20, 60));
-        exitButton.setForeground(Color.black);
-        exitButton.setFocusPainted(false);
-        exitButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                System.exit(0);
+            List<StaffRecord> matches = staffDirectory.search(keyword);
+            if (matches.isEmpty()) {
+                return "No staff record found with keyword: " + keyword;
             }
-        });
-
-        buttonPanel.add(staffButton);
-        buttonPanel.add(ownerButton);
-        buttonPanel.add(exitButton);
-        mainPanel.add(buttonPanel, BorderLayout.CENTER);
-        add(mainPanel);
+            StringBuilder result = new StringBuilder();
+            for (StaffRecord match : matches) {
+                result.append("\n--- Staff Record Found ---\n");
+                String block = match.toBlock();
+                result.append(block, 0, block.length() - StaffRecord.SEPARATOR.length() - 1);
+            }
+            return result.toString();
+        }
     }
 
-    private void openStaffLogin() {
-        StaffLoginGUI staffLoginGUI = new StaffLoginGUI(this, mainSystem);
-        staffLoginGUI.setVisible(true);
+    /**
+     * GUI-friendly: Remove staff returns message
+     */
+    public String removeStaffGUI(String nameToDelete) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("removeStaff", nameToDelete)) {
+            if (staffDirectory.all().isEmpty()) {
+                return "No staff records found.";
+            }
+            String name = nameToDelete.trim();
+            if (staffDirectory.findExact(name) == null) {
+                // Fall back to a substring match, but only when it identifies a single staff member
+                Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                for (StaffRecord match : staffDirectory.search(name)) {
+                    if (match.name.toLowerCase().contains(name.toLowerCase())) {
+                        names.add(match.name);
+                    }
+                }
+                if (names.isEmpty()) {
+                    return "Staff name not found.";
+                }
+                if (names.size() > 1) {
+                    return "More than one staff member matches \"" + name + "\": " + String.join(", ", names) +
+                            ". Please enter the full name.";
+                }
+                name = names.iterator().next();
+            }
+            String found = name;
+            List<ChangeLog.Change> changes = changeLog.write(() -> {
+                StaffRecord before = staffDirectory.findExact(found);
+                return before == null ? Collections.<ChangeLog.Change>emptyList()
+                        : Collections.singletonList(ChangeLog.Change.staff(before, null));
+            }, () -> staffDirectory.remove(found));
+            if (!changes.isEmpty()) {
+                return "Staff record removed successfully.";
+            }
+            return "Staff name not found.";
+        }
     }
 
-    private void openOwnerLogin() {
-        OwnerLoginGUI ownerLoginGUI = new OwnerLoginGUI(this, mainSystem);
-        ownerLoginGUI.setVisible(true);
+    /**
+     * GUI-friendly: Show staff by type returns result string
+     */
+    public String showStaffByTypeGUI(String type) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("showStaffByType", type)) {
+            return resultCache.get(() -> listStaffByType(type), "showStaffByType", type);
+        }
     }
-}
-
-/**
- * Staff Login GUI - Handles staff signup and login
- */
-class StaffLoginGUI extends JDialog {
-    private Main mainSystem;
-    private JTextField usernameField;
-    private JPasswordField passwordField;
-    private boolean loginSuccessful = false;
 
-    public StaffLoginGUI(Frame parent, Main mainSystem) {
-        super(parent, "Staff Login", true);
-        this.mainSystem = mainSystem;
-        initializeGUI();
+    private String listStaffByType(String type) throws IOException {
+        List<StaffRecord> staff = staffDirectory.all();
+        if (staff.isEmpty()) {
+            return "No staff records found.";
+        }
+        StringBuilder result = new StringBuilder();
+        for (StaffRecord record : staff) {
+            if (record.staffType.toLowerCase().contains(type.toLowerCase())) {
+                result.append("\n--- Staff Record Found ---\n");
+                result.append(record.toBlock());
+            }
+        }
+        if (result.length() == 0) {
+            return "No staff records found for type: " + type;
+        }
+        return result.toString();
     }
 
-    private void initializeGUI() {
-        setSize(450, 350);
-        setLocationRelativeTo(getParent());
-        setResizable(false);
-
-        JPanel mainPanel = new JPanel(new BorderLayout());
-        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-        mainPanel.setBackground(new Color(240, 248, 255));
+    /**
+     * GUI-friendly: Add own profile with parameters
+     */
+    public void addOwnProfileGUI(String username, String status, String hours, String salary, String staffType) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("addOwnProfile", username, status, hours, salary, staffType)) {
+            StaffRecord record = new StaffRecord(username, status, hours, salary, staffType);
+            changeLog.write(() -> Collections.singletonList(ChangeLog.Change.staff(staffDirectory.findExact(username), record)), () -> {
+                staffDirectory.upsert(record);
+                return true;
+            });
+        }
+    }
 
-        JLabel titleLabel = new JLabel("Welcome Staff", JLabel.CENTER);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
-        mainPanel.add(titleLabel, BorderLayout.NORTH);
+    /**
+     * GUI-friendly: See staff profile returns result string
+     */
+    public String seeStaffProfileGUI(String username) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("seeStaffProfile", username)) {
+            if (staffDirectory.all().isEmpty()) {
+                return "No staff records found.";
+            }
+            StaffRecord profile = staffDirectory.findExact(username);
+            if (profile == null) {
+                return "No profile found for username: " + username;
+            }
+            return "\n--- Your Staff Profile ---\n" + profile.toBlock();
+        }
+    }
 
-        JPanel formPanel = new JPanel(new GridBagLayout());
-        formPanel.setBackground(new Color(240, 248, 255));
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.insets = new Insets(10, 10, 10, 10);
-        gbc.anchor = GridBagConstraints.WEST;
+    /**
+     * GUI-friendly: Per-operation timings and I/O since startup (or the last reset), then data file
+     * sizes and record counts
+     */
+    public String performanceReportGUI() throws IOException {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("%-28s %7s %9s %9s %9s %9s %9s %10s %10s %10s%n", "Operation", "Calls",
+                "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms", "KB read", "KB written", "Records"));
+        List<Metrics.OpStats> operations = Metrics.operationsSincePanelReset();
+        if (operations.isEmpty()) {
+            result.append("(no operations yet)\n");
+        }
+        for (Metrics.OpStats stats : operations) {
+            LatencyHistogram latency = stats.latency();
+            result.append(String.format("%-28s %7d %9.2f %9.2f %9.2f %9.2f %9.2f %10.1f %10.1f %10d%n",
+                    stats.name, stats.calls.sum(), latency.mean() / 1000.0,
+                    latency.percentile(50) / 1000.0, latency.percentile(95) / 1000.0,
+                    latency.percentile(99) / 1000.0, latency.max() / 1000.0,
+                    stats.bytesRead.sum() / 1024.0, stats.bytesWritten.sum() / 1024.0, stats.records.sum()));
+        }
 
-        gbc.gridx = 0;
-        gbc.gridy = 0;
-        JLabel usernameLabel = new JLabel("Username:");
-        usernameLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        formPanel.add(usernameLabel, gbc);
+        result.append(String.format("%nData files%n"));
+        long total = 0;
+        for (File location : dataLocations) {
+            if (location.exists()) {
+                long size = sizeOf(location);
+                total += size;
+                result.append(String.format("%-40s %12.1f KB%n", location.getPath(), size / 1024.0));
+            }
+        }
+        result.append(String.format("%-40s %12.1f KB%n", "Total", total / 1024.0));
 
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        usernameField = new JTextField(20);
-        usernameField.setFont(new Font("Arial", Font.PLAIN, 14));
-        formPanel.add(usernameField, gbc);
+        result.append(String.format("%nRecords%n"));
+        Metrics.countLookups(false);
+        try {
+            result.append(String.format("%-40s %12d%n", "Animals", animalStore.size()));
+            result.append(String.format("%-40s %12d%n", "Staff", staffDirectory.all().size()));
+            result.append(String.format("%-40s %12d%n", "Archived milk readings", milkStore.archivedRecordCount()));
+        } finally {
+            Metrics.countLookups(true);
+        }
 
-        gbc.gridx = 0;
-        gbc.gridy = 1;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        JLabel passwordLabel = new JLabel("Password:");
-        passwordLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        formPanel.add(passwordLabel, gbc);
+        Map<String, long[]> caches = Metrics.cachesSincePanelReset();
+        if (!caches.isEmpty()) {
+            result.append(String.format("%n%-28s %10s %10s %9s%n", "Cache", "Hits", "Misses", "Hit rate"));
+            for (Map.Entry<String, long[]> cache : caches.entrySet()) {
+                long[] counts = cache.getValue();
+                result.append(String.format("%-28s %10d %10d %8.1f%%%n", cache.getKey(), counts[0], counts[1],
+                        100.0 * counts[0] / Math.max(1, counts[0] + counts[1])));
+            }
+        }
+        result.append(String.format("%nResult cache: %d result(s), %.1f KB of %.1f KB%n", resultCache.size(),
+                resultCache.bytes() / 1024.0, resultCache.maxBytes() / 1024.0));
+        return result.toString();
+    }
 
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        passwordField = new JPasswordField(20);
-        passwordField.setFont(new Font("Arial", Font.PLAIN, 14));
-        formPanel.add(passwordField, gbc);
+    /**
+     * GUI-friendly: Operation, storage, cache and JVM memory metrics in the Prometheus text format
+     */
+    public String prometheusMetricsGUI() throws IOException {
+        PrometheusText text = new PrometheusText();
+        List<Metrics.OpStats> operations = Metrics.operations();
+        text.family("farm_operation_latency_seconds", "summary", "Main operation latency since startup");
+        for (Metrics.OpStats stats : operations) {
+            LatencyHistogram latency = stats.latency();
+            for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+                text.sample("farm_operation_latency_seconds", latency.percentile(quantile * 100) / 1e6,
+                        "operation", stats.name, "quantile", String.valueOf(quantile));
+            }
+            text.sample("farm_operation_latency_seconds_sum", stats.nanos.sum() / 1e9, "operation", stats.name);
+            text.sample("farm_operation_latency_seconds_count", stats.calls.sum(), "operation", stats.name);
+        }
+        text.family("farm_operation_read_bytes_total", "counter", "Bytes read from storage on behalf of each operation");
+        for (Metrics.OpStats stats : operations) {
+            text.sample("farm_operation_read_bytes_total", stats.bytesRead.sum(), "operation", stats.name);
+        }
+        text.family("farm_operation_written_bytes_total", "counter", "Bytes written to storage on behalf of each operation");
+        for (Metrics.OpStats stats : operations) {
+            text.sample("farm_operation_written_bytes_total", stats.bytesWritten.sum(), "operation", stats.name);
+        }
+        text.family("farm_operation_records_total", "counter", "Records scanned on behalf of each operation");
+        for (Metrics.OpStats stats : operations) {
+            text.sample("farm_operation_records_total", stats.records.sum(), "operation", stats.name);
+        }
 
-        mainPanel.add(formPanel, BorderLayout.CENTER);
+        Map<String, long[]> caches = Metrics.caches();
+        text.family("farm_cache_hits_total", "counter", "Lookups answered from memory");
+        for (Map.Entry<String, long[]> cache : caches.entrySet()) {
+            text.sample("farm_cache_hits_total", cache.getValue()[0], "cache", cache.getKey());
+        }
+        text.family("farm_cache_misses_total", "counter", "Lookups that reloaded or recomputed");
+        for (Map.Entry<String, long[]> cache : caches.entrySet()) {
+            text.sample("farm_cache_misses_total", cache.getValue()[1], "cache", cache.getKey());
+        }
 
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
-        buttonPanel.setBackground(new Color(240, 248, 255));
+        text.family("farm_result_cache_entries", "gauge", "Show results held by the result cache");
+        text.sample("farm_result_cache_entries", resultCache.size());
+        text.family("farm_result_cache_bytes", "gauge", "Approximate memory used by the cached results");
+        text.sample("farm_result_cache_bytes", resultCache.bytes());
 
-        JButton signUpButton = new JButton("Sign Up");
-        signUpButton.setFont(new Font("Arial", Font.PLAIN, 14));
-        signUpButton.setPreferredSize(new Dimension(100, 35));
-        signUpButton.setBackground(new Color(70, 130, 180));
-        signUpButton.setForeground(Color.black);
-        signUpButton.setFocusPainted(false);
-        signUpButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                handleSignUp();
+        text.family("farm_data_file_bytes", "gauge", "Size of each data file or folder");
+        for (File location : dataLocations) {
+            if (location.exists()) {
+                text.sample("farm_data_file_bytes", sizeOf(location), "path", location.getPath());
             }
-        });
+        }
+        // The scrape's own lookups are not counted as cache hits
+        Metrics.countLookups(false);
+        try {
+            text.family("farm_index_entries", "gauge", "Entries in the in-memory indexes");
+            text.sample("farm_index_entries", animalStore.size(), "index", "animals");
+            text.sample("farm_index_entries", staffDirectory.all().size(), "index", "staff");
+            text.sample("farm_index_entries", summaryStore.all().size(), "index", "daily_summaries");
+            text.family("farm_archived_milk_readings", "gauge", "Milk readings moved to the archive");
+            text.sample("farm_archived_milk_readings", milkStore.archivedRecordCount());
+        } finally {
+            Metrics.countLookups(true);
+        }
 
-        JButton loginButton = new JButton("Login");
-        loginButton.setFont(new Font("Arial", Font.PLAIN, 14));
-        loginButton.setPreferredSize(new Dimension(100, 35));
-        loginButton.setBackground(new Color(34, 139, 34));
-        loginButton.setForeground(Color.black);
-        loginButton.setFocusPainted(false);
-        loginButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                handleLogin();
-            }
-        });
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        text.family("jvm_memory_used_bytes", "gauge", "Used JVM memory");
+        text.sample("jvm_memory_used_bytes", heap.getUsed(), "area", "heap");
+        text.sample("jvm_memory_used_bytes", nonHeap.getUsed(), "area", "nonheap");
+        text.family("jvm_memory_committed_bytes", "gauge", "Committed JVM memory");
+        text.sample("jvm_memory_committed_bytes", heap.getCommitted(), "area", "heap");
+        text.sample("jvm_memory_committed_bytes", nonHeap.getCommitted(), "area", "nonheap");
+        text.family("jvm_memory_max_bytes", "gauge", "Maximum JVM memory (-1 when unbounded)");
+        text.sample("jvm_memory_max_bytes", heap.getMax(), "area", "heap");
+        text.sample("jvm_memory_max_bytes", nonHeap.getMax(), "area", "nonheap");
+        return text.toString();
+    }
 
-        JButton cancelButton = new JButton("Cancel");
-        cancelButton.setFont(new Font("Arial", Font.PLAIN, 14));
-        cancelButton.setPreferredSize(new Dimension(100, 35));
-        cancelButton.setBackground(new Color(220, 20, 60));
-        cancelButton.setForeground(Color.black);
-        cancelButton.setFocusPainted(false);
-        cancelButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                dispose();
+    private static long sizeOf(File location) {
+        if (!location.isDirectory()) {
+            return location.length();
+        }
+        long size = 0;
+        File[] children = location.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                size += sizeOf(child);
             }
-        });
-
-        buttonPanel.add(signUpButton);
-        buttonPanel.add(loginButton);
-        buttonPanel.add(cancelButton);
-        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
-        add(mainPanel);
+        }
+        return size;
     }
 
-    private void handleSignUp() {
-        String username = usernameField.getText().trim();
-        String password = new String(passwordField.getPassword());
+    /**
+     * GUI-friendly: The data folder change feed, started on first use; null if it could not be started
+     */
+    public synchronized ChangeFeed getChangeFeedGUI() {
+        if (changeFeed == null) {
+            try {
+                List<File> others = new ArrayList<>(dataLocations);
+                others.removeAll(animalFiles);
+                others.remove(openMilkFile);
+                others.remove(changeLog.file());
+                ChangeFeed feed = new ChangeFeed(openMilkFile, animalFiles, others);
+                feed.start();
+                changeFeed = feed;
+            } catch (IOException e) {
+                System.out.println("Error watching data files: " + e.getMessage());
+            }
+        }
+        return changeFeed;
+    }
 
-        if (username.isEmpty() || password.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Please enter both username and password.", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
+    /**
+     * GUI-friendly: Up to limit change log events after the given sequence number, oldest first
+     */
+    public List<ChangeLog.Event> getChangesGUI(long afterSeq, int limit) throws IOException {
+        try (Metrics.Timer timer = Metrics.time("getChanges", afterSeq, limit)) {
+            List<ChangeLog.Event> events = new ArrayList<>();
+            changeLog.read(afterSeq, limit, events::add);
+            return events;
         }
+    }
 
-        try {
-            if (mainSystem.staffSignUpGUI(username, password)) {
-                JOptionPane.showMessageDialog(this, "Sign up successfully! Please login now.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                passwordField.setText("");
-            } else {
-                JOptionPane.showMessageDialog(this, "Staff already exists, try another username.", "Error", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Get current staff username
+     */
+    public String getCurrentStaffUsername() {
+        return currentStaffUsername;
+    }
+
+    /**
+     * Get current owner username
+     */
+    public String getCurrentOwnerUsername() {
+        return currentOwnerUsername;
+    }
+}
+
+// ==================== STORAGE CLASSES ====================
+
+/**
+ * Farm Config - Optional settings read from farm.properties in the working directory.
+ * A system property with the same key (e.g. -Dmilk.retentionDays=90) takes precedence.
+ */
+final class FarmConfig {
+    private static final String CONFIG_FILE = "farm.properties";
+    private static final Properties PROPERTIES = new Properties();
+
+    static {
+        File file = new File(CONFIG_FILE);
+        if (file.exists()) {
+            try (FileReader reader = new FileReader(file)) {
+                PROPERTIES.load(reader);
+            } catch (IOException e) {
+                System.out.println("Error reading " + CONFIG_FILE + ": " + e.getMessage());
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    private void handleLogin() {
-        String username = usernameField.getText().trim();
-        String password = new String(passwordField.getPassword());
+    private FarmConfig() {
+    }
 
-        if (username.isEmpty() || password.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Please enter both username and password.", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
+    static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = PROPERTIES.getProperty(key);
         }
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
 
+    static int getInt(String key, int defaultValue) {
         try {
-            if (mainSystem.staffLoginGUI(username, password)) {
-                loginSuccessful = true;
-                JOptionPane.showMessageDialog(this, "Login successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                dispose();
-                StaffDashboardGUI dashboard = new StaffDashboardGUI((JFrame) getParent(), mainSystem);
-                dashboard.setVisible(true);
-            } else {
-                JOptionPane.showMessageDialog(this, "Incorrect username or password.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
         }
     }
-
-    public boolean isLoginSuccessful() {
-        return loginSuccessful;
-    }
 }
 
 /**
- * Owner Login GUI - Handles owner login
+ * Farm Dates - Parsing helpers for the DD-MM-YYYY dates typed into the forms
  */
-class OwnerLoginGUI extends JDialog {
-    private Main mainSystem;
-    private JTextField usernameField;
-    private JPasswordField passwordField;
-    private boolean loginSuccessful = false;
+final class FarmDates {
+    static final DateTimeFormatter INPUT_FORMAT =
+            DateTimeFormatter.ofPattern("d-M-uuuu").withResolverStyle(ResolverStyle.STRICT);
+    static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("dd-MM-uuuu");
 
-    public OwnerLoginGUI(Frame parent, Main mainSystem) {
-        super(parent, "Owner Login", true);
-        this.mainSystem = mainSystem;
-        initializeGUI();
+    private FarmDates() {
     }
 
-    private void initializeGUI() {
-        setSize(450, 300);
-        setLocationRelativeTo(getParent());
-        setResizable(false);
-
-        JPanel mainPanel = new JPanel(new BorderLayout());
-        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-        mainPanel.setBackground(new Color(240, 248, 255));
+    /**
+     * Parses a DD-MM-YYYY date, returns null when the text is not a valid date
+     */
+    static LocalDate parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text.trim(), INPUT_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
 
-        JLabel titleLabel = new JLabel("Welcome Owner", JLabel.CENTER);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
-        mainPanel.add(titleLabel, BorderLayout.NORTH);
+    static String format(LocalDate date) {
+        return date.format(DISPLAY_FORMAT);
+    }
+}
 
-        JPanel formPanel = new JPanel(new GridBagLayout());
-        formPanel.setBackground(new Color(240, 248, 255));
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.insets = new Insets(10, 10, 10, 10);
-        gbc.anchor = GridBagConstraints.WEST;
+/**
+ * Legacy Block Parser - Reads "Key = value" blocks such as A_record.txt and staff_record.txt.
+ * A block starts at a line beginning with startKey and ends at a line beginning with endPrefix.
+ */
+final class LegacyBlockParser {
+    private LegacyBlockParser() {
+    }
 
-        gbc.gridx = 0;
-        gbc.gridy = 0;
-        JLabel usernameLabel = new JLabel("Username:");
-        usernameLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        formPanel.add(usernameLabel, gbc);
+    static void parse(File file, String startKey, String endPrefix, Consumer<Map<String, String>> blocks) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        final long[] count = new long[1];
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            parse(reader, startKey, endPrefix, block -> {
+                count[0]++;
+                blocks.accept(block);
+            });
+        }
+        span.end(count[0], file.length());
+        Metrics.read(file.length(), count[0]);
+    }
 
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        usernameField = new JTextField(20);
-        usernameField.setFont(new Font("Arial", Font.PLAIN, 14));
-        formPanel.add(usernameField, gbc);
+    /**
+     * Parses the file on all cores (see ParallelBlockParser), returning the mapped blocks in file order
+     */
+    static <T> List<T> parseParallel(File file, final String startKey, final String endPrefix,
+                                     final Function<Map<String, String>, T> mapper) throws IOException {
+        if (!ParallelBlockParser.worthSplitting(file)) {
+            final List<T> result = new ArrayList<>();
+            parse(file, startKey, endPrefix, f -> result.add(mapper.apply(f)));
+            return result;
+        }
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        List<T> result = ParallelBlockParser.parse(file, startKey, (chunk, offset, out) ->
+                parse(ParallelBlockParser.reader(chunk), startKey, endPrefix, f -> out.accept(mapper.apply(f))));
+        span.end(result.size(), file.length());
+        Metrics.read(file.length(), result.size());
+        return result;
+    }
 
-        gbc.gridx = 0;
-        gbc.gridy = 1;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        JLabel passwordLabel = new JLabel("Password:");
-        passwordLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        formPanel.add(passwordLabel, gbc);
+    static void parse(BufferedReader reader, String startKey, String endPrefix, Consumer<Map<String, String>> blocks) throws IOException {
+        Map<String, String> block = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(startKey)) {
+                if (block != null) {
+                    blocks.accept(block);
+                }
+                block = new LinkedHashMap<>();
+            }
+            if (block == null) {
+                continue;
+            }
+            if (line.startsWith(endPrefix)) {
+                blocks.accept(block);
+                block = null;
+                continue;
+            }
+            int eq = line.indexOf(" = ");
+            if (eq > 0) {
+                block.put(line.substring(0, eq).trim(), line.substring(eq + 3).trim());
+            }
+        }
+        if (block != null) {
+            blocks.accept(block);
+        }
+    }
+}
 
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        passwordField = new JPasswordField(20);
-        passwordField.setFont(new Font("Arial", Font.PLAIN, 14));
-        formPanel.add(passwordField, gbc);
+/**
+ * Parallel Block Parser - Splits a legacy text file into chunks at block boundaries and parses
+ * the chunks on all cores. The file is memory-mapped one chunk at a time; every chunk after the
+ * first starts at a line beginning with startKey, where the sequential parsers also start a new
+ * block, so parsing the chunks separately gives the same records as one pass. Results keep
+ * file order. Small files are parsed on the calling thread.
+ */
+final class ParallelBlockParser {
+    private static final long MIN_CHUNK_BYTES = 4L << 20;
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+    private static final int SEARCH_WINDOW = 64 * 1024;
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
 
-        mainPanel.add(formPanel, BorderLayout.CENTER);
+    private ParallelBlockParser() {
+    }
 
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
-        buttonPanel.setBackground(new Color(240, 248, 255));
+    /**
+     * Parses one chunk; offset is the chunk's byte position in the file
+     */
+    interface ChunkParser<T> {
+        void parse(ByteBuffer chunk, long offset, Consumer<T> out) throws IOException;
+    }
 
-        JButton loginButton = new JButton("Login");
-        loginButton.setFont(new Font("Arial", Font.PLAIN, 14));
-        loginButton.setPreferredSize(new Dimension(100, 35));
-        loginButton.setBackground(new Color(34, 139, 34));
-        loginButton.setForeground(Color.black);
-        loginButton.setFocusPainted(false);
-        loginButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                handleLogin();
+    static <T> List<T> parse(File file, String startKey, final ChunkParser<T> parser) throws IOException {
+        List<T> result = new ArrayList<>();
+        if (!file.exists()) {
+            return result;
+        }
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<long[]> ranges = split(channel, startKey.getBytes(Charset.defaultCharset()));
+            if (ranges.size() <= 1) {
+                for (long[] range : ranges) {
+                    parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]), range[0], result::add);
+                }
+                return result;
             }
-        });
-
-        JButton cancelButton = new JButton("Cancel");
-        cancelButton.setFont(new Font("Arial", Font.PLAIN, 14));
-        cancelButton.setPreferredSize(new Dimension(100, 35));
-        cancelButton.setBackground(new Color(220, 20, 60));
-        cancelButton.setForeground(Color.black);
-        cancelButton.setFocusPainted(false);
-        cancelButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                dispose();
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(THREADS, ranges.size()));
+            try {
+                List<Future<List<T>>> parts = new ArrayList<>();
+                for (final long[] range : ranges) {
+                    parts.add(pool.submit(new Callable<List<T>>() {
+                        @Override
+                        public List<T> call() throws IOException {
+                            List<T> part = new ArrayList<>();
+                            parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]), range[0], part::add);
+                            return part;
+                        }
+                    }));
+                }
+                for (Future<List<T>> part : parts) {
+                    result.addAll(part.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Parsing " + file + " was interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Parsing " + file + " failed: " + e.getCause(), e.getCause());
+            } finally {
+                pool.shutdownNow();
             }
-        });
+        }
+        return result;
+    }
 
-        buttonPanel.add(loginButton);
-        buttonPanel.add(cancelButton);
-        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
-        add(mainPanel);
+    /**
+     * Decodes a chunk for the line based parsers
+     */
+    static BufferedReader reader(ByteBuffer chunk) {
+        CharBuffer chars = Charset.defaultCharset().decode(chunk);
+        return new BufferedReader(new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()));
     }
 
-    private void handleLogin() {
-        String username = usernameField.getText().trim();
-        String password = new String(passwordField.getPassword());
+    /**
+     * False when splitting would not pay off (one core, or a file smaller than one chunk);
+     * callers then use their streaming single-threaded parse instead
+     */
+    static boolean worthSplitting(File file) {
+        return THREADS > 1 && file.length() > MIN_CHUNK_BYTES;
+    }
 
-        if (username.isEmpty() || password.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Please enter both username and password.", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
+    /**
+     * Byte ranges [start, end) covering the file, each after the first starting at a startKey line
+     */
+    private static List<long[]> split(FileChannel channel, byte[] startKey) throws IOException {
+        long size = channel.size();
+        long chunk = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (THREADS * 4L)));
+        List<long[]> ranges = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunk >= size ? size : nextBlockStart(channel, start + chunk, size, startKey);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Block too large to map at byte " + start);
+            }
+            ranges.add(new long[]{start, end});
+            start = end;
         }
+        return ranges;
+    }
 
-        try {
-            if (mainSystem.ownerLoginGUI(username, password)) {
-                loginSuccessful = true;
-                JOptionPane.showMessageDialog(this, "Login successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                dispose();
-                OwnerDashboardGUI dashboard = new OwnerDashboardGUI((JFrame) getParent(), mainSystem);
-                dashboard.setVisible(true);
-            } else {
-                JOptionPane.showMessageDialog(this, "Incorrect username or password.", "Error", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Position of the first line at or after from that begins with key, or size if there is none
+     */
+    private static long nextBlockStart(FileChannel channel, long from, long size, byte[] key) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(SEARCH_WINDOW + key.length + 1);
+        long position = from - 1; // include the newline that ends the previous line
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
             }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            int last = read - key.length - 1; // last index that can hold a newline plus the key
+            for (int i = 0; i <= last; i++) {
+                if (window.get(i) == '\n' && startsWith(window, i + 1, key)) {
+                    return position + i + 1;
+                }
+            }
+            if (position + read >= size) {
+                break;
+            }
+            // Windows overlap so a key straddling the edge is seen by the next one
+            position += Math.max(1, last + 1);
         }
+        return size;
     }
 
-    public boolean isLoginSuccessful() {
-        return loginSuccessful;
+    private static boolean startsWith(ByteBuffer buffer, int at, byte[] key) {
+        for (int k = 0; k < key.length; k++) {
+            if (buffer.get(at + k) != key[k]) {
+                return false;
+            }
+        }
+        return true;
     }
 }
 
 /**
- * Staff Dashboard GUI - Main interface for staff operations
+ * Animal Record - One animal block from A_record.txt
  */
-class StaffDashboardGUI extends JFrame {
-    private Main mainSystem;
-    private JTextArea outputArea;
+final class AnimalRecord {
+    static final String SEPARATOR = "=======================================================================================";
+
+    final String animalId;
+    final String age;
+    final String gender;
+    final String purchaseDate;
+    final String feedType;
+    final String feedTimes;
+    final String vaccinated;
+    final String animalType;
+
+    AnimalRecord(String animalId, String age, String gender, String purchaseDate,
+                 String feedType, String feedTimes, String vaccinated, String animalType) {
+        this.animalId = animalId;
+        this.age = age;
+        this.gender = gender;
+        this.purchaseDate = purchaseDate;
+        this.feedType = feedType;
+        this.feedTimes = feedTimes;
+        this.vaccinated = vaccinated;
+        this.animalType = animalType;
+    }
 
-    public StaffDashboardGUI(JFrame parent, Main mainSystem) {
-        super("Staff Dashboard");
-        this.mainSystem = mainSystem;
-        initializeGUI();
+    static AnimalRecord fromFields(Map<String, String> f) {
+        return new AnimalRecord(f.getOrDefault("Animal ID", ""), f.getOrDefault("Animal Age", ""),
+                f.getOrDefault("Animal Gender", ""), f.getOrDefault("Animal Purchase Date", ""),
+                f.getOrDefault("Feed Type", ""), f.getOrDefault("Times per day", ""),
+                f.getOrDefault("Vaccination", ""), f.getOrDefault("Animal Type", ""));
     }
 
-    private void initializeGUI() {
-        setSize(800, 700);
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+    static void parseFile(File file, Consumer<AnimalRecord> visitor) throws IOException {
+        for (AnimalRecord record : LegacyBlockParser.parseParallel(file, "Animal ID =", "===", AnimalRecord::fromFields)) {
+            visitor.accept(record);
+        }
+    }
 
-        JPanel mainPanel = new JPanel(new BorderLayout());
-        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        mainPanel.setBackground(new Color(40, 99, 148));
+    String[] toFields() {
+        return new String[]{animalId, age, gender, purchaseDate, feedType, feedTimes, vaccinated, animalType};
+    }
 
-        JLabel titleLabel = new JLabel("Staff Menu", JLabel.CENTER);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 22));
-        titleLabel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
-        mainPanel.add(titleLabel, BorderLayout.NORTH);
+    static AnimalRecord fromFields(String[] f) {
+        return new AnimalRecord(f[0], f[1], f[2], f[3], f[4], f[5], f[6], f[7]);
+    }
 
-        JPanel buttonPanel = new JPanel(new GridLayout(4, 2, 10, 10));
-        buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        buttonPanel.setBackground(new Color(0, 0, 0));
+    /**
+     * Copy of this record with one field (by its A_record.txt key, e.g. "Vaccination") replaced
+     */
+    AnimalRecord with(String key, String value) {
+        Map<String, String> f = new LinkedHashMap<>();
+        f.put("Animal ID", animalId);
+        f.put("Animal Age", age);
+        f.put("Animal Gender", gender);
+        f.put("Animal Purchase Date", purchaseDate);
+        f.put("Feed Type", feedType);
+        f.put("Times per day", feedTimes);
+        f.put("Vaccination", vaccinated);
+        f.put("Animal Type", animalType);
+        if (!f.containsKey(key) || key.equals("Animal ID")) {
+            throw new IllegalArgumentException("Unknown animal field: " + key);
+        }
+        f.put(key, value);
+        return fromFields(f);
+    }
 
-        createButton(buttonPanel, "1. Add Animal", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAddAnimalDialog();
-            }
-        });
+    /**
+     * Renders the record in the A_record.txt block format
+     */
+    String toBlock() {
+        return "Animal ID = " + animalId + "\n" +
+                "Animal Age = " + age + "\n" +
+                "Animal Gender = " + gender + "\n" +
+                "Animal Purchase Date = " + purchaseDate + "\n" +
+                "Feed Type = " + feedType + "\n" +
+                "Times per day = " + feedTimes + "\n" +
+                "Vaccination = " + vaccinated + "\n" +
+                "Animal Type = " + animalType + "\n" +
+                SEPARATOR + "\n";
+    }
+}
 
-        createButton(buttonPanel, "2. Search Animal", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showSearchAnimalDialog();
-            }
-        });
+/**
+ * Staff Record - One staff block (staff record or staff profile) from staff_record.txt
+ */
+final class StaffRecord {
+    static final String SEPARATOR = "--------------------------------------------------";
 
-        createButton(buttonPanel, "3. Add Your Profile", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAddProfileDialog();
-            }
-        });
+    final String name;
+    final String workStatus;
+    final String workingHours;
+    final String salary;
+    final String staffType;
 
-        createButton(buttonPanel, "4. See Your Profile", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showSeeProfileDialog();
-            }
-        });
+    StaffRecord(String name, String workStatus, String workingHours, String salary, String staffType) {
+        this.name = name;
+        this.workStatus = workStatus;
+        this.workingHours = workingHours;
+        this.salary = salary;
+        this.staffType = staffType;
+    }
 
-        createButton(buttonPanel, "5. Show Animals by Type", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAnimalsByTypeDialog();
-            }
-        });
+    static StaffRecord fromFields(Map<String, String> f) {
+        return new StaffRecord(f.getOrDefault("Staff Name", ""), f.getOrDefault("Work Status", ""),
+                f.getOrDefault("Working Hours", ""), f.getOrDefault("Salary", ""),
+                f.getOrDefault("Staff type", ""));
+    }
 
-        createButton(buttonPanel, "6. Add Milk Record", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAddMilkRecordDialog();
-            }
-        });
+    String[] toFields() {
+        return new String[]{name, workStatus, workingHours, salary, staffType};
+    }
 
-        createButton(buttonPanel, "7. Show Milk Record by Animal ID", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showMilkRecordByAnimalIdDialog();
-            }
-        });
+    static StaffRecord fromFields(String[] f) {
+        return new StaffRecord(f[0], f[1], f[2], f[3], f[4]);
+    }
 
-        createButton(buttonPanel, "8. Show All Animal Records", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAllAnimalsDialog();
-            }
-        });
+    static void parseFile(File file, Consumer<StaffRecord> visitor) throws IOException {
+        for (StaffRecord record : LegacyBlockParser.parseParallel(file, "Staff Name =", "---", StaffRecord::fromFields)) {
+            visitor.accept(record);
+        }
+    }
 
-        mainPanel.add(buttonPanel, BorderLayout.CENTER);
+    /**
+     * Renders the record in the staff_record.txt block format
+     */
+    String toBlock() {
+        return "Staff Name = " + name + "\n" +
+                "Work Status = " + workStatus + "\n" +
+                "Working Hours = " + workingHours + "\n" +
+                "Salary = " + salary + "\n" +
+                "Staff type = " + staffType + "\n" +
+                SEPARATOR + "\n";
+    }
+}
 
-        outputArea = new JTextArea(10, 50);
-        outputArea.setEditable(false);
-        outputArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        outputArea.setBackground(Color.white);
-        JScrollPane scrollPane = new JScrollPane(outputArea);
-        scrollPane.setBorder(BorderFactory.createTitledBorder("Output"));
-        scrollPane.setPreferredSize(new Dimension(0, 150));
-        mainPanel.add(scrollPane, BorderLayout.SOUTH);
+/**
+ * File Stamp - Remembers a file's size and modification time to detect outside changes
+ */
+final class FileStamp {
+    private long modified = -1;
+    private long length = -1;
 
-        JPanel exitPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-        exitPanel.setBackground(new Color(240, 248, 255));
-        JButton exitButton = new JButton("Exit");
-        exitButton.setFont(new Font("Arial", Font.PLAIN, 14));
-        exitButton.setPreferredSize(new Dimension(100, 35));
-        exitButton.setBackground(new Color(220, 20, 60));
-        exitButton.setForeground(Color.black);
-        exitButton.setFocusPainted(false);
-        exitButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                System.exit(0);
-            }
-        });
-        exitPanel.add(exitButton);
+    boolean changed(File file) {
+        return file.lastModified() != modified || file.length() != length;
+    }
 
-        JPanel southPanel = new JPanel(new BorderLayout());
-        southPanel.add(scrollPane, BorderLayout.CENTER);
-        southPanel.add(exitPanel, BorderLayout.SOUTH);
-        mainPanel.add(southPanel, BorderLayout.SOUTH);
-        add(mainPanel);
+    void update(File file) {
+        modified = file.lastModified();
+        length = file.length();
     }
 
-    private void createButton(JPanel panel, String text, ActionListener listener) {
-        JButton button = new JButton(text);
-        button.setFont(new Font("Arial", Font.PLAIN, 14));
-        button.setPreferredSize(new Dimension(200, 50));
-        button.setBackground(new Color(70, 130, 180));
-        button.setForeground(Color.black);
-        button.setFocusPainted(false);
-        button.addActionListener(listener);
-        panel.add(button);
+    void set(long modified, long length) {
+        this.modified = modified;
+        this.length = length;
     }
 
-    private void showAddAnimalDialog() {
-        AddAnimalDialog dialog = new AddAnimalDialog(this, mainSystem);
-        dialog.setVisible(true);
-        if (dialog.isSuccess()) {
-            outputArea.append("Animal record added successfully.\n");
+    /**
+     * Size when last updated, -1 before the first update
+     */
+    long length() {
+        return length;
+    }
+}
+
+/**
+ * Animal Store - Animal records by ID. The first record stored for an ID is the one used.
+ */
+interface AnimalStore {
+    boolean exists(String animalId) throws IOException;
+
+    AnimalRecord get(String animalId) throws IOException;
+
+    /**
+     * Current records in storage order
+     */
+    List<AnimalRecord> all() throws IOException;
+
+    int size() throws IOException;
+
+    void add(AnimalRecord record) throws IOException;
+
+    void addAll(List<AnimalRecord> records) throws IOException;
+
+    /**
+     * Replaces an existing animal's record, returns false if the animal does not exist
+     */
+    boolean update(AnimalRecord record) throws IOException;
+
+    /**
+     * Deletes an animal, returns false if it did not exist
+     */
+    boolean delete(String animalId) throws IOException;
+
+    /**
+     * Applies a change to many animals with one write. The change returns the new record,
+     * or null to delete the animal. Returns whether each ID was found, in input order.
+     */
+    Map<String, Boolean> bulkApply(Collection<String> animalIds, UnaryOperator<AnimalRecord> change) throws IOException;
+}
+
+/**
+ * Text Animal Store - Keyed access to A_record.txt with cheap single-record edits.
+ * Each animal block is a slot at a known byte offset in the file. An edit that renders to the
+ * same number of bytes (e.g. flipping Vaccination Y/N) is written straight into its slot; any
+ * other edit, and every delete, is appended to a small delta log (A_record_delta.txt) that is
+ * applied on load and folded back into A_record.txt once it grows past a threshold.
+ */
+class TextAnimalStore implements AnimalStore {
+    private static final int COMPACT_THRESHOLD = 256;
+    private static final String DELETED_PREFIX = "Deleted Animal ID = ";
+
+    private final File file;
+    private final File deltaFile;
+    private final FileStamp stamp = new FileStamp();
+    private final FileStamp deltaStamp = new FileStamp();
+    private final Charset charset = Charset.defaultCharset();
+    private final List<Slot> slots = new ArrayList<>(); // file order, deleted slots are null
+    private final Map<String, Integer> byId = new HashMap<>(); // animal ID -> first slot
+    private final Set<String> deletedInDelta = new HashSet<>(); // IDs with a "Deleted" line in the delta log
+    private int deltaEntries;
+
+    TextAnimalStore(File file, File deltaFile) {
+        this.file = file;
+        this.deltaFile = deltaFile;
+    }
+
+    private static final class Slot {
+        AnimalRecord record;
+        long offset;
+        int length;
+        boolean inDelta;
+
+        Slot(AnimalRecord record, long offset, int length) {
+            this.record = record;
+            this.offset = offset;
+            this.length = length;
         }
     }
 
-    private void showSearchAnimalDialog() {
-        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to search:", "Search Animal", JOptionPane.QUESTION_MESSAGE);
-        if (animalId != null && !animalId.trim().isEmpty()) {
-            try {
-                String result = mainSystem.searchAnimalGUI(animalId.trim());
-                outputArea.append(result + "\n");
-                DisplayDialog.showResult(this, "Search Result", result);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Reloads after an outside change. When the files were only appended to, just the new blocks
+     * are read (and counted as a cache hit); anything else reloads both files.
+     */
+    private void refreshIfChanged() throws IOException {
+        boolean baseChanged = stamp.changed(file);
+        boolean deltaChanged = deltaStamp.changed(deltaFile);
+        if (!baseChanged && !deltaChanged) {
+            Metrics.cacheHit("animals");
+            return;
+        }
+        if (tailAppended(baseChanged, deltaChanged)) {
+            Metrics.cacheHit("animals");
+            return;
+        }
+        Metrics.cacheMiss("animals");
+        slots.clear();
+        byId.clear();
+        deletedInDelta.clear();
+        deltaEntries = 0;
+        loadBase();
+        loadDelta();
+        stamp.update(file);
+        deltaStamp.update(deltaFile);
+    }
+
+    /**
+     * Applies blocks another process appended since the last look. Returns false when that is not
+     * safe (never loaded, a file shrank or was rewritten, or a write is still in progress).
+     * An in-place edit made together with an append is not noticed until the next full reload.
+     */
+    private boolean tailAppended(boolean baseChanged, boolean deltaChanged) throws IOException {
+        if (stamp.length() < 0 || deltaStamp.length() < 0) {
+            return false;
+        }
+        long baseModified = file.lastModified(), baseLength = file.length();
+        long deltaModified = deltaFile.lastModified(), deltaLength = deltaFile.length();
+        if ((baseChanged && baseLength <= stamp.length()) || (deltaChanged && deltaLength <= deltaStamp.length())) {
+            return false;
+        }
+        byte[] base = baseChanged ? readRange(file, stamp.length() - AnimalRecord.SEPARATOR.length() - 1, baseLength) : null;
+        byte[] delta = deltaChanged ? readRange(deltaFile, deltaStamp.length(), deltaLength) : null;
+        String baseText = base == null ? null : new String(base, charset);
+        String deltaText = delta == null ? null : new String(delta, charset);
+        if (baseText != null && (!baseText.startsWith(AnimalRecord.SEPARATOR + "\n") && stamp.length() > 0
+                || !baseText.endsWith(AnimalRecord.SEPARATOR + "\n"))) {
+            return false;
+        }
+        if (deltaText != null && !deltaText.endsWith("\n")) {
+            return false;
+        }
+
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        int added = 0;
+        if (base != null) {
+            final List<Slot> tail = new ArrayList<>();
+            int skip = stamp.length() > 0 ? AnimalRecord.SEPARATOR.length() + 1 : 0;
+            scanSlots(ByteBuffer.wrap(base, skip, base.length - skip), stamp.length(), tail::add);
+            for (Slot slot : tail) {
+                addSlot(slot.record, slot.offset, slot.length);
             }
+            added = tail.size();
+            stamp.set(baseModified, baseLength);
+        }
+        if (delta != null) {
+            int before = deltaEntries;
+            applyDeltaLines(new BufferedReader(new StringReader(deltaText)));
+            added += deltaEntries - before;
+            deltaStamp.set(deltaModified, deltaLength);
         }
+        long bytes = (base == null ? 0 : base.length) + (delta == null ? 0 : delta.length);
+        span.end(added, bytes);
+        Metrics.read(bytes, added);
+        return true;
     }
 
-    private void showAddProfileDialog() {
-        AddProfileDialog dialog = new AddProfileDialog(this, mainSystem, mainSystem.getCurrentStaffUsername());
-        dialog.setVisible(true);
-        if (dialog.isSuccess()) {
-            outputArea.append("Your profile has been added.\n");
+    private static byte[] readRange(File source, long from, long to) throws IOException {
+        from = Math.max(0, from);
+        byte[] bytes = new byte[(int) (to - from)];
+        try (RandomAccessFile raf = new RandomAccessFile(source, "r")) {
+            raf.seek(from);
+            raf.readFully(bytes);
         }
+        return bytes;
     }
 
-    private void showSeeProfileDialog() {
-        try {
-            String result = mainSystem.seeStaffProfileGUI(mainSystem.getCurrentStaffUsername());
-            outputArea.append(result + "\n");
-            DisplayDialog.showResult(this, "Your Staff Profile", result);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Reads A_record.txt remembering the byte range of every block. Large files are split at
+     * "Animal ID =" lines and scanned in parallel; slots are added back in file order.
+     */
+    private void loadBase() throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.INDEX_BUILD, file);
+        List<Slot> loaded = ParallelBlockParser.parse(file, "Animal ID =", (chunk, offset, out) -> scanSlots(chunk, offset, out));
+        for (Slot slot : loaded) {
+            addSlot(slot.record, slot.offset, slot.length);
         }
+        span.end(loaded.size(), file.length());
+        Metrics.read(file.length(), loaded.size());
     }
 
-    private void showAnimalsByTypeDialog() {
-        String type = JOptionPane.showInputDialog(this, "Enter animal type to list (e.g., cow, goat):", "Show Animals by Type", JOptionPane.QUESTION_MESSAGE);
-        if (type != null && !type.trim().isEmpty()) {
-            try {
-                String result = mainSystem.showAnimalsByTypeGUI(type.trim());
-                outputArea.append(result + "\n");
-                DisplayDialog.showResult(this, "Animals by Type", result);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    private void scanSlots(ByteBuffer chunk, long offset, Consumer<Slot> out) {
+        byte[] bytes = new byte[chunk.remaining()];
+        chunk.get(bytes);
+        int blockStart = -1;
+        Map<String, String> fields = null;
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i < bytes.length && bytes[i] != '\n') {
+                continue;
+            }
+            String line = new String(bytes, lineStart, i - lineStart, charset);
+            if (line.startsWith("Animal ID =")) {
+                if (fields != null) {
+                    out.accept(new Slot(AnimalRecord.fromFields(fields), offset + blockStart, lineStart - blockStart));
+                }
+                fields = new LinkedHashMap<>();
+                blockStart = lineStart;
+            }
+            if (fields != null) {
+                if (line.startsWith("===")) {
+                    out.accept(new Slot(AnimalRecord.fromFields(fields), offset + blockStart, Math.min(i + 1, bytes.length) - blockStart));
+                    fields = null;
+                } else {
+                    int eq = line.indexOf(" = ");
+                    if (eq > 0) {
+                        fields.put(line.substring(0, eq).trim(), line.substring(eq + 3).trim());
+                    }
+                }
             }
+            lineStart = i + 1;
+        }
+        if (fields != null) {
+            out.accept(new Slot(AnimalRecord.fromFields(fields), offset + blockStart, bytes.length - blockStart));
         }
     }
 
-    private void showAddMilkRecordDialog() {
-        AddMilkRecordDialog dialog = new AddMilkRecordDialog(this, mainSystem);
-        dialog.setVisible(true);
-        if (dialog.isSuccess()) {
-            outputArea.append("Milk record added.\n");
+    /**
+     * Applies the delta log: animal blocks replace (or add) records, "Deleted" lines remove them
+     */
+    private void loadDelta() throws IOException {
+        if (!deltaFile.exists()) {
+            return;
         }
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, deltaFile);
+        try (BufferedReader reader = new BufferedReader(new FileReader(deltaFile))) {
+            applyDeltaLines(reader);
+        }
+        span.end(deltaEntries, deltaFile.length());
+        Metrics.read(deltaFile.length(), deltaEntries);
     }
 
-    private void showMilkRecordByAnimalIdDialog() {
-        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to show milk records:", "Milk Records", JOptionPane.QUESTION_MESSAGE);
-        if (animalId != null && !animalId.trim().isEmpty()) {
-            try {
-                String result = mainSystem.showMilkRecordByAnimalIdGUI(animalId.trim());
-                outputArea.append(result + "\n");
-                DisplayDialog.showResult(this, "Milk Records", result);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    private void applyDeltaLines(BufferedReader reader) throws IOException {
+        Map<String, String> fields = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(DELETED_PREFIX)) {
+                String animalId = line.substring(DELETED_PREFIX.length()).trim();
+                removeAll(animalId);
+                deletedInDelta.add(animalId);
+                deltaEntries++;
+            } else if (line.startsWith("Animal ID =")) {
+                fields = new LinkedHashMap<>();
+            }
+            if (fields != null) {
+                if (line.startsWith("===")) {
+                    applyDelta(AnimalRecord.fromFields(fields));
+                    deltaEntries++;
+                    fields = null;
+                } else {
+                    int eq = line.indexOf(" = ");
+                    if (eq > 0) {
+                        fields.put(line.substring(0, eq).trim(), line.substring(eq + 3).trim());
+                    }
+                }
             }
         }
     }
 
-    private void showAllAnimalsDialog() {
-        try {
-            String result = mainSystem.showAllAnimalsGUI();
-            outputArea.append(result + "\n");
-            DisplayDialog.showResult(this, "All Animal Records", result);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+    private void addSlot(AnimalRecord record, long offset, int length) {
+        byId.putIfAbsent(record.animalId, slots.size());
+        slots.add(new Slot(record, offset, length));
     }
-}
 
-/**
- * Owner Dashboard GUI - Main interface for owner operations
- */
-class OwnerDashboardGUI extends JFrame {
-    private Main mainSystem;
-    private JTextArea outputArea;
+    private void applyDelta(AnimalRecord record) {
+        Integer id = byId.get(record.animalId);
+        if (id == null) {
+            addSlot(record, -1, 0);
+            id = byId.get(record.animalId);
+        }
+        Slot slot = slots.get(id);
+        slot.record = record;
+        slot.inDelta = true;
+    }
 
-    public OwnerDashboardGUI(JFrame parent, Main mainSystem) {
-        super("Owner Dashboard");
-        this.mainSystem = mainSystem;
-        initializeGUI();
+    private boolean removeAll(String animalId) {
+        Integer first = byId.remove(animalId);
+        if (first == null) {
+            return false;
+        }
+        for (int i = first; i < slots.size(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.record.animalId.equals(animalId)) {
+                slots.set(i, null);
+            }
+        }
+        return true;
     }
 
-    private void initializeGUI() {
-        setSize(900, 800);
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+    public synchronized boolean exists(String animalId) throws IOException {
+        refreshIfChanged();
+        Metrics.usedIndex("animals by ID");
+        return byId.containsKey(animalId);
+    }
 
-        JPanel mainPanel = new JPanel(new BorderLayout());
-        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        mainPanel.setBackground(new Color(240, 248, 255));
+    public synchronized AnimalRecord get(String animalId) throws IOException {
+        refreshIfChanged();
+        Metrics.usedIndex("animals by ID");
+        Integer id = byId.get(animalId);
+        return id == null ? null : slots.get(id).record;
+    }
 
-        JLabel titleLabel = new JLabel("Owner Menu", JLabel.CENTER);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 22));
-        titleLabel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
-        mainPanel.add(titleLabel, BorderLayout.NORTH);
+    /**
+     * Current records in file order
+     */
+    public synchronized List<AnimalRecord> all() throws IOException {
+        refreshIfChanged();
+        List<AnimalRecord> result = new ArrayList<>(byId.size());
+        for (Slot slot : slots) {
+            if (slot != null) {
+                result.add(slot.record);
+            }
+        }
+        return result;
+    }
 
-        JPanel buttonPanel = new JPanel(new GridLayout(7, 2, 10, 10));
-        buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        buttonPanel.setBackground(new Color(240, 248, 255));
+    public synchronized int size() throws IOException {
+        refreshIfChanged();
+        return byId.size();
+    }
 
-        createButton(buttonPanel, "1. Add Animal", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAddAnimalDialog();
-            }
-        });
+    /**
+     * Appends a new animal block to A_record.txt (or to the delta log when the ID was deleted there)
+     */
+    public synchronized void add(AnimalRecord record) throws IOException {
+        refreshIfChanged();
+        if (deletedInDelta.contains(record.animalId)) {
+            readdInDelta(record);
+            compactIfNeeded();
+            return;
+        }
+        byte[] block = record.toBlock().getBytes(charset);
+        long offset = file.length();
+        Metrics.Span span = Metrics.begin(Metrics.APPEND, file);
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(block);
+        }
+        span.end(1, block.length);
+        Metrics.wrote(block.length);
+        addSlot(record, offset, block.length);
+        stamp.update(file);
+    }
 
-        createButton(buttonPanel, "2. Search Animal", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showSearchAnimalDialog();
+    /**
+     * Appends many new animal blocks to A_record.txt in one write
+     */
+    public synchronized void addAll(List<AnimalRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        refreshIfChanged();
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        long offset = file.length();
+        for (AnimalRecord record : records) {
+            if (deletedInDelta.contains(record.animalId)) {
+                readdInDelta(record);
+                continue;
             }
-        });
+            byte[] block = record.toBlock().getBytes(charset);
+            blocks.write(block, 0, block.length);
+            addSlot(record, offset, block.length);
+            offset += block.length;
+        }
+        Metrics.Span span = Metrics.begin(Metrics.APPEND, file);
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            blocks.writeTo(out);
+        }
+        span.end(records.size(), blocks.size());
+        Metrics.wrote(blocks.size());
+        stamp.update(file);
+        compactIfNeeded();
+    }
 
-        createButton(buttonPanel, "3. Delete Animal", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showDeleteAnimalDialog();
-            }
-        });
+    /**
+     * A deleted ID goes back in through the delta log, after its "Deleted" line. Appended to
+     * A_record.txt the new block would be loaded before the deletion and removed with the old one.
+     */
+    private void readdInDelta(AnimalRecord record) throws IOException {
+        appendDelta(record.toBlock());
+        applyDelta(record);
+    }
 
-        createButton(buttonPanel, "4. Add Staff", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAddStaffDialog();
+    /**
+     * Replaces an existing animal's record, returns false if the animal does not exist.
+     * Only the animal's own slot (or one delta log entry) is written.
+     */
+    public synchronized boolean update(AnimalRecord record) throws IOException {
+        refreshIfChanged();
+        Integer id = byId.get(record.animalId);
+        if (id == null) {
+            return false;
+        }
+        Slot slot = slots.get(id);
+        byte[] block = record.toBlock().getBytes(charset);
+        if (!slot.inDelta && slot.offset >= 0 && block.length == slot.length) {
+            Metrics.Span span = Metrics.begin(Metrics.REWRITE, file);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(slot.offset);
+                raf.write(block);
             }
-        });
+            span.end(1, block.length);
+            Metrics.wrote(block.length);
+            stamp.update(file);
+        } else {
+            appendDelta(record.toBlock());
+            slot.inDelta = true;
+        }
+        slot.record = record;
+        compactIfNeeded();
+        return true;
+    }
 
-        createButton(buttonPanel, "5. Show All Staff", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAllStaffDialog();
-            }
-        });
+    /**
+     * Deletes an animal (every block with this exact ID), returns false if it did not exist
+     */
+    public synchronized boolean delete(String animalId) throws IOException {
+        refreshIfChanged();
+        if (!removeAll(animalId)) {
+            return false;
+        }
+        appendDelta(DELETED_PREFIX + animalId + "\n");
+        deletedInDelta.add(animalId);
+        compactIfNeeded();
+        return true;
+    }
 
-        createButton(buttonPanel, "6. Search Staff", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showSearchStaffDialog();
-            }
-        });
+    private void appendDelta(String entry) throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.APPEND, deltaFile);
+        long before = deltaFile.length();
+        try (FileWriter writer = new FileWriter(deltaFile, true)) {
+            writer.write(entry);
+        }
+        span.end(1, deltaFile.length() - before);
+        Metrics.wrote(deltaFile.length() - before);
+        deltaEntries++;
+        deltaStamp.update(deltaFile);
+    }
 
-        createButton(buttonPanel, "7. Remove Staff", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showRemoveStaffDialog();
-            }
-        });
+    private void compactIfNeeded() throws IOException {
+        if (deltaEntries >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
 
-        createButton(buttonPanel, "8. Show Animals by Type", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAnimalsByTypeDialog();
+    /**
+     * Applies a change to many animals and writes A_record.txt once. The change returns the
+     * new record, or null to delete the animal. Returns whether each ID was found, in input order.
+     * If the change or the write fails the records are reloaded from the files.
+     */
+    public synchronized Map<String, Boolean> bulkApply(Collection<String> animalIds, UnaryOperator<AnimalRecord> change) throws IOException {
+        refreshIfChanged();
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        try {
+            for (String animalId : animalIds) {
+                Integer first = byId.get(animalId);
+                if (first == null) {
+                    results.putIfAbsent(animalId, false);
+                    continue;
+                }
+                AnimalRecord updated = change.apply(slots.get(first).record);
+                if (updated == null) {
+                    removeAll(animalId);
+                } else {
+                    slots.get(first).record = updated;
+                }
+                results.put(animalId, true);
             }
-        });
-
-        createButton(buttonPanel, "9. Show Staff by Type", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showStaffByTypeDialog();
+            if (results.containsValue(true)) {
+                compact();
             }
-        });
+        } catch (IOException | RuntimeException e) {
+            forgetLoaded();
+            throw e;
+        }
+        return results;
+    }
 
-        createButton(buttonPanel, "10. Add Milk Record", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAddMilkRecordDialog();
+    /**
+     * Folds the delta log into A_record.txt
+     */
+    synchronized void compact() throws IOException {
+        refreshIfChanged();
+        File temp = new File(file.getPath() + ".tmp");
+        Metrics.Span span = Metrics.begin(Metrics.REWRITE, file);
+        List<Slot> live = new ArrayList<>();
+        long offset = 0;
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+                for (Slot slot : slots) {
+                    if (slot == null) {
+                        continue;
+                    }
+                    byte[] block = slot.record.toBlock().getBytes(charset);
+                    out.write(block);
+                    Slot moved = new Slot(slot.record, offset, block.length);
+                    offset += block.length;
+                    live.add(moved);
+                }
             }
-        });
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(deltaFile.toPath());
+        } catch (IOException | RuntimeException e) {
+            forgetLoaded();
+            throw e;
+        }
+        span.end(live.size(), offset);
+        Metrics.wrote(offset);
+        slots.clear();
+        byId.clear();
+        for (Slot slot : live) {
+            byId.putIfAbsent(slot.record.animalId, slots.size());
+            slots.add(slot);
+        }
+        deletedInDelta.clear();
+        deltaEntries = 0;
+        stamp.update(file);
+        deltaStamp.update(deltaFile);
+    }
 
-        createButton(buttonPanel, "11. Calculate Daily Milk Price", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showCalculateDailyMilkPriceDialog();
-            }
-        });
+    /**
+     * Makes the next access reload both files, after a failed write left memory ahead of them
+     */
+    private void forgetLoaded() {
+        stamp.set(-1, -1);
+        deltaStamp.set(-1, -1);
+    }
+}
 
-        createButton(buttonPanel, "12. Show All Animal Records", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                showAllAnimalsDialog();
-            }
-        });
+/**
+ * Binary Animal Store - Animal records held in memory over a BinaryRecordLog.
+ * Adds and edits append the full record to the log and deletes append the bare ID, so
+ * every change is one small write; the log is folded into the snapshot once it gets long.
+ * Looking up one ID while the records are not loaded (or another PC changed them) reads
+ * just that ID through the snapshot's key index and the log, not every record; a caller
+ * that keeps looking up IDs (e.g. an import) loads them all after a few lookups.
+ */
+class BinaryAnimalStore implements AnimalStore {
+    private static final int COMPACT_THRESHOLD = 4096;
+    private static final int MAX_INDEX_LOOKUPS = 16;
 
-        createButton(buttonPanel, "13. Exit", new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                System.exit(0);
+    private final BinaryRecordLog log;
+    private final LinkedHashMap<String, AnimalRecord> byId = new LinkedHashMap<>();
+    // Lookups through the key index since the records were last loaded
+    private int indexLookups;
+
+    BinaryAnimalStore(BinaryRecordLog log) {
+        this.log = log;
+    }
+
+    private void refreshIfChanged() throws IOException {
+        if (!log.changed()) {
+            Metrics.cacheHit("animals");
+            return;
+        }
+        Metrics.cacheMiss("animals");
+        byId.clear();
+        indexLookups = 0;
+        log.load(row -> {
+            if (row.length == 1) {
+                byId.remove(row[0]);
+            } else {
+                byId.put(row[0], AnimalRecord.fromFields(row));
             }
         });
+    }
 
-        mainPanel.add(buttonPanel, BorderLayout.CENTER);
+    public synchronized boolean exists(String animalId) throws IOException {
+        return get(animalId) != null;
+    }
 
-        outputArea = new JTextArea(10, 50);
-        outputArea.setEditable(false);
-        outputArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        outputArea.setBackground(Color.WHITE);
-        JScrollPane scrollPane = new JScrollPane(outputArea);
-        scrollPane.setBorder(BorderFactory.createTitledBorder("Output"));
-        scrollPane.setPreferredSize(new Dimension(0, 150));
-        mainPanel.add(scrollPane, BorderLayout.SOUTH);
-        add(mainPanel);
+    public synchronized AnimalRecord get(String animalId) throws IOException {
+        Metrics.usedIndex("animals by ID");
+        if (log.changed() && indexLookups < MAX_INDEX_LOOKUPS) {
+            indexLookups++;
+            Metrics.cacheMiss("animals");
+            String[] row = log.find(animalId);
+            return row == null ? null : AnimalRecord.fromFields(row);
+        }
+        refreshIfChanged();
+        return byId.get(animalId);
     }
 
-    private void createButton(JPanel panel, String text, ActionListener listener) {
-        JButton button = new JButton(text);
-        button.setFont(new Font("Arial", Font.PLAIN, 13));
-        button.setPreferredSize(new Dimension(200, 45));
-        button.setBackground(new Color(34, 139, 34));
-        button.setForeground(Color.black);
-        button.setFocusPainted(false);
-        button.addActionListener(listener);
-        panel.add(button);
+    public synchronized List<AnimalRecord> all() throws IOException {
+        refreshIfChanged();
+        return new ArrayList<>(byId.values());
     }
 
-    private void showAddAnimalDialog() {
-        AddAnimalDialog dialog = new AddAnimalDialog(this, mainSystem);
-        dialog.setVisible(true);
-        if (dialog.isSuccess()) {
-            outputArea.append("Animal record added successfully.\n");
-        }
+    public synchronized int size() throws IOException {
+        refreshIfChanged();
+        return byId.size();
     }
 
-    private void showSearchAnimalDialog() {
-        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to search:", "Search Animal", JOptionPane.QUESTION_MESSAGE);
-        if (animalId != null && !animalId.trim().isEmpty()) {
-            try {
-                String result = mainSystem.searchAnimalGUI(animalId.trim());
-                outputArea.append(result + "\n");
-                DisplayDialog.showResult(this, "Search Result", result);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        }
+    /**
+     * Adds a new animal; an ID that is already stored is left as it is
+     */
+    public synchronized void add(AnimalRecord record) throws IOException {
+        addAll(Collections.singletonList(record));
     }
 
-    private void showDeleteAnimalDialog() {
-        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to delete:", "Delete Animal", JOptionPane.QUESTION_MESSAGE);
-        if (animalId != null && !animalId.trim().isEmpty()) {
-            try {
-                String result = mainSystem.deleteAnimalGUI(animalId.trim());
-                outputArea.append(result + "\n");
-                JOptionPane.showMessageDialog(this, result, "Delete Animal", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    public synchronized void addAll(List<AnimalRecord> records) throws IOException {
+        refreshIfChanged();
+        List<String[]> rows = new ArrayList<>();
+        for (AnimalRecord record : records) {
+            if (byId.putIfAbsent(record.animalId, record) == null) {
+                rows.add(record.toFields());
             }
         }
+        log.append(rows);
+        compactIfNeeded();
     }
 
-    private void showAddStaffDialog() {
-        AddStaffDialog dialog = new AddStaffDialog(this, mainSystem);
-        dialog.setVisible(true);
-        if (dialog.isSuccess()) {
-            outputArea.append("Staff record added successfully.\n");
+    public synchronized boolean update(AnimalRecord record) throws IOException {
+        refreshIfChanged();
+        if (!byId.containsKey(record.animalId)) {
+            return false;
         }
+        byId.put(record.animalId, record);
+        log.append(Collections.singletonList(record.toFields()));
+        compactIfNeeded();
+        return true;
     }
 
-    private void showAllStaffDialog() {
-        try {
-            String result = mainSystem.showAllStaffGUI();
-            outputArea.append(result + "\n");
-            DisplayDialog.showResult(this, "All Staff Records", result);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    public synchronized boolean delete(String animalId) throws IOException {
+        refreshIfChanged();
+        if (byId.remove(animalId) == null) {
+            return false;
         }
+        log.append(Collections.singletonList(new String[]{animalId}));
+        compactIfNeeded();
+        return true;
     }
 
-    private void showSearchStaffDialog() {
-        String keyword = JOptionPane.showInputDialog(this, "Enter Staff Name or ID to search:", "Search Staff", JOptionPane.QUESTION_MESSAGE);
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            try {
-                String result = mainSystem.searchStaffGUI(keyword.trim());
-                outputArea.append(result + "\n");
-                DisplayDialog.showResult(this, "Search Result", result);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    public synchronized Map<String, Boolean> bulkApply(Collection<String> animalIds, UnaryOperator<AnimalRecord> change) throws IOException {
+        refreshIfChanged();
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        List<String[]> rows = new ArrayList<>();
+        for (String animalId : animalIds) {
+            AnimalRecord current = byId.get(animalId);
+            if (current == null) {
+                results.putIfAbsent(animalId, false);
+                continue;
+            }
+            AnimalRecord updated = change.apply(current);
+            if (updated == null) {
+                byId.remove(animalId);
+                rows.add(new String[]{animalId});
+            } else {
+                byId.put(animalId, updated);
+                rows.add(updated.toFields());
             }
+            results.put(animalId, true);
         }
+        log.append(rows);
+        compactIfNeeded();
+        return results;
     }
 
-    private void showRemoveStaffDialog() {
-        String name = JOptionPane.showInputDialog(this, "Enter Staff Name to remove:", "Remove Staff", JOptionPane.QUESTION_MESSAGE);
-        if (name != null && !name.trim().isEmpty()) {
-            try {
-                String result = mainSystem.removeStaffGUI(name.trim());
-                outputArea.append(result + "\n");
-                JOptionPane.showMessageDialog(this, result, "Remove Staff", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    private void compactIfNeeded() throws IOException {
+        if (log.logEntries() >= COMPACT_THRESHOLD) {
+            List<String[]> rows = new ArrayList<>(byId.size());
+            for (AnimalRecord record : byId.values()) {
+                rows.add(record.toFields());
             }
+            log.rewrite(rows);
         }
     }
+}
 
-    private void showAnimalsByTypeDialog() {
-        String type = JOptionPane.showInputDialog(this, "Enter animal type to list (e.g., cow, goat):", "Show Animals by Type", JOptionPane.QUESTION_MESSAGE);
-        if (type != null && !type.trim().isEmpty()) {
-            try {
-                String result = mainSystem.showAnimalsByTypeGUI(type.trim());
-                outputArea.append(result + "\n");
-                DisplayDialog.showResult(this, "Animals by Type", result);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+/**
+ * Credential Store - Usernames with their login secrets
+ */
+interface CredentialStore {
+    boolean exists(String username) throws IOException;
+
+    /**
+     * Adds a user, returns false if the username is taken
+     */
+    boolean add(String username, String password) throws IOException;
+
+    boolean verify(String username, String password) throws IOException;
+}
+
+/**
+ * Hashed Credential Store - Logins (username and secret per row) held in memory for O(1) lookups.
+ * Secrets are salted PBKDF2 hashes; legacy plain text passwords are upgraded to a hash the
+ * first time they are used successfully. The map is reloaded when the log changes, and a
+ * successful check is remembered for a few minutes so repeated checks skip the slow hash.
+ */
+class HashedCredentialStore implements CredentialStore {
+    private static final String HASH_PREFIX = "pbkdf2$";
+    private static final int ITERATIONS = 120000;
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final long VERIFIED_TTL_MILLIS = 5 * 60 * 1000L;
+    // Hashed against for unknown usernames, so a failed login takes as long whether or not the user exists
+    private static final byte[] DUMMY_SALT = new byte[SALT_BYTES];
+
+    private final RecordLog log;
+    private final Map<String, String> secrets = new LinkedHashMap<>();
+    private final Map<String, Verified> verified = new HashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final byte[] cacheKey = new byte[SALT_BYTES];
+
+    HashedCredentialStore(RecordLog log) {
+        this.log = log;
+        random.nextBytes(cacheKey);
+    }
+
+    private void refreshIfChanged() throws IOException {
+        if (!log.changed()) {
+            Metrics.cacheHit("logins");
+            return;
+        }
+        Metrics.cacheMiss("logins");
+        secrets.clear();
+        verified.clear();
+        log.load(row -> {
+            if (row.length == 2 && !secrets.containsKey(row[0])) {
+                secrets.put(row[0], row[1]);
+            }
+        });
+    }
+
+    public synchronized boolean exists(String username) throws IOException {
+        refreshIfChanged();
+        return secrets.containsKey(username);
+    }
+
+    /**
+     * Adds a user with a freshly hashed password, returns false if the username is taken
+     */
+    public boolean add(String username, String password) throws IOException {
+        // Hashed before taking the lock, so logins are not held up behind a sign-up
+        String secret = hash(password);
+        synchronized (this) {
+            refreshIfChanged();
+            if (secrets.containsKey(username)) {
+                return false;
+            }
+            log.append(Collections.singletonList(new String[]{username, secret}));
+            secrets.put(username, secret);
+            return true;
+        }
+    }
+
+    public boolean verify(String username, String password) throws IOException {
+        byte[] fingerprint = fingerprint(username, password);
+        String secret;
+        synchronized (this) {
+            refreshIfChanged();
+            secret = secrets.get(username);
+            Verified cached = verified.get(username);
+            if (cached != null && cached.secret.equals(secret) && cached.expiresAt > System.currentTimeMillis()
+                    && MessageDigest.isEqual(cached.fingerprint, fingerprint)) {
+                Metrics.cacheHit("login_checks");
+                return true;
+            }
+        }
+        Metrics.cacheMiss("login_checks");
+
+        // The slow hash runs without the lock, so one login does not queue every other one behind it
+        if (secret == null) {
+            pbkdf2(password, DUMMY_SALT, ITERATIONS);
+            return false;
+        }
+        boolean ok;
+        String upgraded = null;
+        if (secret.startsWith(HASH_PREFIX)) {
+            ok = matches(secret, password);
+        } else {
+            ok = MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+            if (ok) {
+                upgraded = hash(password);
+            }
+        }
+        if (ok) {
+            synchronized (this) {
+                // Unless the login was changed while the hash ran
+                if (secret.equals(secrets.get(username))) {
+                    if (upgraded != null) {
+                        secret = upgraded;
+                        secrets.put(username, secret);
+                        save();
+                    }
+                    verified.put(username, new Verified(secret, fingerprint, System.currentTimeMillis() + VERIFIED_TTL_MILLIS));
+                }
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Number of entries still holding a plain text password
+     */
+    synchronized int plainTextCount() throws IOException {
+        refreshIfChanged();
+        int count = 0;
+        for (String secret : secrets.values()) {
+            if (!secret.startsWith(HASH_PREFIX)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void save() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        for (Map.Entry<String, String> entry : secrets.entrySet()) {
+            rows.add(new String[]{entry.getKey(), entry.getValue()});
+        }
+        log.rewrite(rows);
+    }
+
+    private String hash(String password) throws IOException {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return HASH_PREFIX + ITERATIONS + "$" + encoder.encodeToString(salt) + "$" +
+                encoder.encodeToString(pbkdf2(password, salt, ITERATIONS));
+    }
+
+    private static boolean matches(String secret, String password) throws IOException {
+        String[] parts = secret.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] expected = decoder.decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, decoder.decode(parts[2]), Integer.parseInt(parts[1])));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) throws IOException {
+        try {
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Password hashing unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fast keyed digest of a login attempt, used only to recognise a recently verified password
+     */
+    private byte[] fingerprint(String username, String password) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(cacheKey);
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Password hashing unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class Verified {
+        final String secret;
+        final byte[] fingerprint;
+        final long expiresAt;
+
+        Verified(String secret, byte[] fingerprint, long expiresAt) {
+            this.secret = secret;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
+
+/**
+ * Staff Store - Staff records keyed by staff name (case insensitive)
+ */
+interface StaffStore {
+    /**
+     * Inserts or replaces the record for its staff name, returns true if it was a new name
+     */
+    boolean upsert(StaffRecord record) throws IOException;
+
+    void upsertAll(List<StaffRecord> batch) throws IOException;
+
+    boolean remove(String name) throws IOException;
+
+    /**
+     * Drops stale duplicate entries left by older versions, returns how many were dropped
+     */
+    int dedupe() throws IOException;
+
+    List<StaffRecord> all() throws IOException;
+
+    StaffRecord findExact(String name) throws IOException;
+
+    /**
+     * Records whose name, status or type contains the keyword
+     */
+    List<StaffRecord> search(String keyword) throws IOException;
+}
+
+/**
+ * Staff Directory - In-memory index over the staff records, keyed by staff name.
+ * An exact (case-insensitive) name map answers profile lookups, and a trigram index narrows
+ * substring searches to the few records that can match before they are checked.
+ * Staff writes go through the directory so the index stays current; it is rebuilt only if
+ * the underlying log (e.g. staff_record.txt) is changed outside the app. Each name has one entry: saving a record for a known
+ * name replaces that entry instead of appending another block.
+ */
+class StaffDirectory implements StaffStore {
+    private final RecordLog log;
+    private final List<StaffRecord> records = new ArrayList<>(); // removed entries are null
+    private final Map<String, Integer> byName = new HashMap<>(); // lower-case name -> record
+    private final Map<String, Set<Integer>> trigrams = new HashMap<>();
+    private int duplicateBlocks;
+
+    StaffDirectory(RecordLog log) {
+        this.log = log;
+    }
+
+    private void refreshIfChanged() throws IOException {
+        if (!log.changed()) {
+            Metrics.cacheHit("staff");
+            return;
+        }
+        Metrics.cacheMiss("staff");
+        records.clear();
+        byName.clear();
+        trigrams.clear();
+        duplicateBlocks = 0;
+        log.load(row -> index(StaffRecord.fromFields(row)));
+    }
+
+    /**
+     * Indexes a record, replacing the entry for the same name if there is one.
+     * Returns false when an existing entry was replaced.
+     */
+    private boolean index(StaffRecord record) {
+        String key = record.name.toLowerCase();
+        Integer id = byName.get(key);
+        boolean inserted = id == null;
+        if (inserted) {
+            id = records.size();
+            records.add(null);
+            byName.put(key, id);
+        } else {
+            // Older files hold one appended block per profile update; the last one is current
+            duplicateBlocks++;
+            unindex(id);
+        }
+        records.set(id, record);
+        for (String gram : trigramsOf(searchText(record))) {
+            trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+        }
+        return inserted;
+    }
+
+    private void unindex(int id) {
+        StaffRecord record = records.get(id);
+        records.set(id, null);
+        for (String gram : trigramsOf(searchText(record))) {
+            Set<Integer> posting = trigrams.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    trigrams.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts or replaces the record for its staff name, returns true if it was a new name.
+     * A new name is a single append; replacing an entry rewrites the (small) staff file.
+     */
+    public synchronized boolean upsert(StaffRecord record) throws IOException {
+        refreshIfChanged();
+        if (!byName.containsKey(record.name.toLowerCase())) {
+            log.append(Collections.singletonList(record.toFields()));
+            index(record);
+            return true;
+        }
+        index(record);
+        save();
+        return false;
+    }
+
+    /**
+     * Upserts many records with at most one file write: new names are appended together,
+     * and if any existing entry was replaced the file is rewritten once instead.
+     */
+    public synchronized void upsertAll(List<StaffRecord> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        refreshIfChanged();
+        List<String[]> appended = new ArrayList<>();
+        boolean replaced = false;
+        for (StaffRecord record : batch) {
+            if (index(record)) {
+                appended.add(record.toFields());
+            } else {
+                replaced = true;
+            }
+        }
+        if (replaced) {
+            save();
+            return;
+        }
+        log.append(appended);
+    }
+
+    /**
+     * Removes the entry with exactly this name (ignoring case), returns false if there was none
+     */
+    public synchronized boolean remove(String name) throws IOException {
+        refreshIfChanged();
+        Integer id = byName.remove(name.trim().toLowerCase());
+        if (id == null) {
+            return false;
+        }
+        unindex(id);
+        save();
+        return true;
+    }
+
+    /**
+     * One-time cleanup of files written before upserts: keeps only the latest block for each
+     * name (at the position of its first block). Returns the number of stale blocks dropped.
+     */
+    public synchronized int dedupe() throws IOException {
+        refreshIfChanged();
+        int dropped = duplicateBlocks;
+        if (dropped > 0) {
+            save();
+        }
+        return dropped;
+    }
+
+    private void save() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        for (StaffRecord record : records) {
+            if (record != null) {
+                rows.add(record.toFields());
+            }
+        }
+        log.rewrite(rows);
+        duplicateBlocks = 0;
+    }
+
+    /**
+     * Every staff entry, in file order
+     */
+    public synchronized List<StaffRecord> all() throws IOException {
+        refreshIfChanged();
+        List<StaffRecord> result = new ArrayList<>(byName.size());
+        for (StaffRecord record : records) {
+            if (record != null) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Record with exactly this name (ignoring case), or null
+     */
+    public synchronized StaffRecord findExact(String name) throws IOException {
+        refreshIfChanged();
+        Metrics.usedIndex("staff by name");
+        Integer id = byName.get(name.trim().toLowerCase());
+        return id == null ? null : records.get(id);
+    }
+
+    /**
+     * All staff whose name, status or type contains the keyword, best matches first:
+     * exact name, then name prefix, then name substring, then other fields.
+     */
+    public synchronized List<StaffRecord> search(String keyword) throws IOException {
+        refreshIfChanged();
+        final String query = keyword.trim().toLowerCase();
+        List<Integer> candidates = new ArrayList<>();
+        if (query.length() < 3) {
+            for (int id = 0; id < records.size(); id++) {
+                if (records.get(id) != null) {
+                    candidates.add(id);
+                }
+            }
+        } else {
+            Metrics.usedIndex("staff trigrams");
+            Set<Integer> smallest = null;
+            List<Set<Integer>> postings = new ArrayList<>();
+            for (String gram : trigramsOf(query)) {
+                Set<Integer> posting = trigrams.get(gram);
+                if (posting == null) {
+                    return new ArrayList<>();
+                }
+                postings.add(posting);
+                if (smallest == null || posting.size() < smallest.size()) {
+                    smallest = posting;
+                }
+            }
+            for (Integer id : smallest) {
+                boolean inAll = true;
+                for (Set<Integer> posting : postings) {
+                    if (!posting.contains(id)) {
+                        inAll = false;
+                        break;
+                    }
+                }
+                if (inAll) {
+                    candidates.add(id);
+                }
+            }
+        }
+
+        List<StaffRecord> matches = new ArrayList<>();
+        final Map<StaffRecord, Integer> rank = new HashMap<>();
+        for (Integer id : candidates) {
+            StaffRecord record = records.get(id);
+            int r = rank(record, query);
+            if (r >= 0) {
+                matches.add(record);
+                rank.put(record, r);
+            }
+        }
+        matches.sort((a, b) -> {
+            int byRank = Integer.compare(rank.get(a), rank.get(b));
+            return byRank != 0 ? byRank : a.name.compareToIgnoreCase(b.name);
+        });
+        return matches;
+    }
+
+    /**
+     * Match quality (lower is better), -1 when the record does not contain the query
+     */
+    private static int rank(StaffRecord record, String query) {
+        String name = record.name.toLowerCase();
+        if (name.equals(query)) {
+            return 0;
+        }
+        if (name.startsWith(query)) {
+            return 1;
+        }
+        if (name.contains(query)) {
+            return 2;
+        }
+        return searchText(record).contains(query) ? 3 : -1;
+    }
+
+    private static String searchText(StaffRecord record) {
+        return (record.name + "\n" + record.workStatus + "\n" + record.staffType).toLowerCase();
+    }
+
+    private static Set<String> trigramsOf(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
+
+/**
+ * Milk Reading - One "Date / Animal ID / Milk Quantity / Staff Name / Price per Liter" block
+ */
+final class MilkReading {
+    final String date;
+    final String animalId;
+    final String quantity;
+    final String staffName;
+    final String pricePerLiter;
+    private final LocalDate localDate;
+
+    MilkReading(String date, String animalId, String quantity, String staffName, String pricePerLiter) {
+        this.date = date;
+        this.animalId = animalId;
+        this.quantity = quantity;
+        this.staffName = staffName;
+        this.pricePerLiter = pricePerLiter;
+        this.localDate = FarmDates.parse(date);
+    }
+
+    /**
+     * Parsed reading date, null when the stored date text is not DD-MM-YYYY
+     */
+    LocalDate localDate() {
+        return localDate;
+    }
+
+    /**
+     * Quantity in liters, 0 when the stored quantity is not a number
+     */
+    double liters() {
+        try {
+            return Double.parseDouble(quantity);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    String[] toFields() {
+        return new String[]{date, animalId, quantity, staffName, pricePerLiter};
+    }
+
+    static MilkReading fromFields(String[] f) {
+        return new MilkReading(f[0], f[1], f[2], f[3], f[4]);
+    }
+
+    /**
+     * Renders the reading in the milk_record.txt block format
+     */
+    String toBlock() {
+        return "Date = " + date + "\n" +
+                "Animal ID = " + animalId + "\n" +
+                "Milk Quantity = " + quantity + " liters\n" +
+                "Staff Name = " + staffName + "\n" +
+                "Price per Liter = " + pricePerLiter + "\n" +
+                "--------------------------------------------------\n";
+    }
+}
+
+/**
+ * Milk Log Parser - Reads milk_record.txt style text into readings.
+ * Lines that are not part of a reading block (e.g. daily summaries) are passed through separately.
+ */
+final class MilkLogParser {
+    private MilkLogParser() {
+    }
+
+    static void parse(File file, Consumer<MilkReading> readings, Consumer<String> otherLines) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        final long[] count = new long[1];
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            parse(reader, r -> {
+                count[0]++;
+                readings.accept(r);
+            }, otherLines);
+        }
+        span.end(count[0], file.length());
+        Metrics.read(file.length(), count[0]);
+    }
+
+    /**
+     * Same as parse, but the file is parsed on all cores (see ParallelBlockParser).
+     * Readings and other lines are still delivered in file order on the calling thread.
+     */
+    static void parseParallel(File file, Consumer<MilkReading> readings, Consumer<String> otherLines) throws IOException {
+        if (!ParallelBlockParser.worthSplitting(file)) {
+            parse(file, readings, otherLines);
+            return;
+        }
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        List<Object> items = ParallelBlockParser.parse(file, "Date = ", (chunk, offset, out) ->
+                parse(ParallelBlockParser.reader(chunk), out::accept, out::accept));
+        span.end(items.size(), file.length());
+        Metrics.read(file.length(), items.size());
+        for (Object item : items) {
+            if (item instanceof MilkReading) {
+                readings.accept((MilkReading) item);
+            } else {
+                otherLines.accept((String) item);
+            }
+        }
+    }
+
+    static void parse(BufferedReader reader, Consumer<MilkReading> readings, Consumer<String> otherLines) throws IOException {
+        String date = null, animalId = "", quantity = "", staffName = "", price = "";
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("Date = ")) {
+                if (date != null) {
+                    readings.accept(new MilkReading(date, animalId, quantity, staffName, price));
+                }
+                date = line.substring(7).trim();
+                animalId = "";
+                quantity = "";
+                staffName = "";
+                price = "";
+            } else if (date != null && line.startsWith("---")) {
+                readings.accept(new MilkReading(date, animalId, quantity, staffName, price));
+                date = null;
+            } else if (date != null && line.startsWith("Animal ID = ")) {
+                animalId = line.substring(12).trim();
+            } else if (date != null && line.startsWith("Milk Quantity = ")) {
+                quantity = line.substring(16).replace("liters", "").replace("liter", "").trim();
+            } else if (date != null && line.startsWith("Staff Name = ")) {
+                staffName = line.substring(13).trim();
+            } else if (date != null && line.startsWith("Price per Liter = ")) {
+                price = line.substring(18).trim();
+            } else {
+                if (date != null) {
+                    readings.accept(new MilkReading(date, animalId, quantity, staffName, price));
+                    date = null;
+                }
+                otherLines.accept(line);
+            }
+        }
+        if (date != null) {
+            readings.accept(new MilkReading(date, animalId, quantity, staffName, price));
+        }
+    }
+}
+
+/**
+ * Milk Segment Codec - Compact binary encoding for sealed monthly milk segments.
+ * Readings are sorted by date; dates are delta encoded and everything else is written as
+ * varints against a per-segment string dictionary.
+ */
+final class MilkSegmentCodec {
+    private static final int MAGIC = 0x4D534547; // "MSEG"
+    private static final int VERSION = 1;
+
+    private MilkSegmentCodec() {
+    }
+
+    static void write(File file, List<MilkReading> readings) throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.REWRITE, file);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(out, readings);
+        }
+        span.end(readings.size(), file.length());
+        Metrics.wrote(file.length());
+    }
+
+    static void read(File file, Consumer<MilkReading> visitor) throws IOException {
+        final long[] count = new long[1];
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            read(in, r -> {
+                count[0]++;
+                visitor.accept(r);
+            });
+        }
+        span.end(count[0], file.length());
+        Metrics.read(file.length(), count[0]);
+    }
+
+    static void write(OutputStream stream, List<MilkReading> readings) throws IOException {
+        List<MilkReading> sorted = new ArrayList<>(readings);
+        sorted.sort(Comparator.comparing(MilkReading::localDate));
+
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (MilkReading r : sorted) {
+            dictionary.putIfAbsent(r.animalId, dictionary.size());
+            dictionary.putIfAbsent(r.staffName, dictionary.size());
+            if (!FarmDates.format(r.localDate()).equals(r.date)) {
+                dictionary.putIfAbsent(r.date, dictionary.size());
+            }
+            if (decimalScale(r.quantity) < 0) {
+                dictionary.putIfAbsent(r.quantity, dictionary.size());
+            }
+            if (decimalScale(r.pricePerLiter) < 0) {
+                dictionary.putIfAbsent(r.pricePerLiter, dictionary.size());
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeVarint(out, sorted.size());
+        writeVarint(out, dictionary.size());
+        for (String s : dictionary.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+        long previousDay = sorted.isEmpty() ? 0 : sorted.get(0).localDate().toEpochDay();
+        writeVarint(out, zigZag(previousDay));
+        for (MilkReading r : sorted) {
+            long day = r.localDate().toEpochDay();
+            boolean canonicalDate = FarmDates.format(r.localDate()).equals(r.date);
+            writeVarint(out, ((day - previousDay) << 1) | (canonicalDate ? 0 : 1));
+            if (!canonicalDate) {
+                writeVarint(out, dictionary.get(r.date));
+            }
+            previousDay = day;
+            writeVarint(out, dictionary.get(r.animalId));
+            writeVarint(out, dictionary.get(r.staffName));
+            writeDecimal(out, r.quantity, dictionary);
+            writeDecimal(out, r.pricePerLiter, dictionary);
+        }
+        out.flush();
+    }
+
+    static void read(InputStream stream, Consumer<MilkReading> visitor) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+            throw new IOException("Not a milk segment");
+        }
+        int count = (int) readVarint(in);
+        String[] dictionary = new String[(int) readVarint(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[(int) readVarint(in)];
+            in.readFully(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        long day = unZigZag(readVarint(in));
+        for (int i = 0; i < count; i++) {
+            long header = readVarint(in);
+            day += header >>> 1;
+            String date = (header & 1) == 0
+                    ? FarmDates.format(LocalDate.ofEpochDay(day))
+                    : dictionary[(int) readVarint(in)];
+            String animalId = dictionary[(int) readVarint(in)];
+            String staffName = dictionary[(int) readVarint(in)];
+            String quantity = readDecimal(in, dictionary);
+            String price = readDecimal(in, dictionary);
+            visitor.accept(new MilkReading(date, animalId, quantity, staffName, price));
+        }
+    }
+
+    /**
+     * Scale of a plain decimal that survives a BigDecimal round trip, -1 if it must be stored as text
+     */
+    private static int decimalScale(String text) {
+        if (text.isEmpty() || text.length() > 18) {
+            return -1;
+        }
+        try {
+            BigDecimal value = new BigDecimal(text);
+            if (value.scale() < 0 || value.scale() > 9 || !value.toPlainString().equals(text)) {
+                return -1;
+            }
+            return value.scale();
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void writeDecimal(DataOutputStream out, String text, Map<String, Integer> dictionary) throws IOException {
+        int scale = decimalScale(text);
+        if (scale < 0) {
+            writeVarint(out, 0);
+            writeVarint(out, dictionary.get(text));
+        } else {
+            writeVarint(out, scale + 1);
+            writeVarint(out, zigZag(new BigDecimal(text).unscaledValue().longValueExact()));
+        }
+    }
+
+    private static String readDecimal(DataInputStream in, String[] dictionary) throws IOException {
+        int header = (int) readVarint(in);
+        if (header == 0) {
+            return dictionary[(int) readVarint(in)];
+        }
+        return BigDecimal.valueOf(unZigZag(readVarint(in)), header - 1).toPlainString();
+    }
+
+    static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IOException("Malformed varint");
+            }
+        }
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
+
+/**
+ * Record File - Binary table of string records used by the migrated storage format.
+ * Layout: magic, version, then each record as a field count and length-prefixed UTF-8 fields,
+ * then a key index (record offsets sorted by first field, first record wins for a duplicate key),
+ * then a footer with the record count, index position and the records' checksum.
+ * Lookups by key are a binary search over the index without reading the whole file.
+ */
+final class RecordFile {
+    private static final int MAGIC = 0x46524543; // "FREC"
+    private static final int VERSION = 1;
+    private static final int FOOTER_BYTES = 4 + 8 + 8;
+
+    private RecordFile() {
+    }
+
+    /**
+     * Writes the records and returns their checksum
+     */
+    static long write(File file, List<String[]> records) throws IOException {
+        final Map<String, Long> firstOffset = new HashMap<>();
+        Metrics.Span span = Metrics.begin(Metrics.REWRITE, file);
+        long checksum = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            for (String[] record : records) {
+                firstOffset.putIfAbsent(record[0], (long) out.size());
+                writeRecord(out, record);
+                checksum += checksum(record);
+            }
+            long indexPosition = out.size();
+            List<String> keys = new ArrayList<>(firstOffset.keySet());
+            keys.sort(Comparator.naturalOrder());
+            for (String key : keys) {
+                out.writeLong(firstOffset.get(key));
+            }
+            out.writeInt(records.size());
+            out.writeLong(indexPosition);
+            out.writeLong(checksum);
+        }
+        span.end(records.size(), file.length());
+        Metrics.wrote(file.length());
+        return checksum;
+    }
+
+    /**
+     * Reads every record, failing if the count or checksum does not match the footer
+     */
+    static List<String[]> read(File file) throws IOException {
+        List<String[]> records = new ArrayList<>();
+        long length = file.length();
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (length < 5 + FOOTER_BYTES || in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                throw new IOException("Not a record file: " + file);
+            }
+            long[] footer = footer(file);
+            long position = 5;
+            long checksum = 0;
+            while (position < footer[1]) {
+                String[] record = new String[in.readUnsignedShort()];
+                position += 2;
+                for (int i = 0; i < record.length; i++) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    record[i] = new String(bytes, StandardCharsets.UTF_8);
+                    position += 4 + bytes.length;
+                }
+                records.add(record);
+                checksum += checksum(record);
+            }
+            if (records.size() != footer[0] || checksum != footer[2]) {
+                throw new IOException("Record file is damaged: " + file);
+            }
+        }
+        span.end(records.size(), length);
+        Metrics.read(length, records.size());
+        return records;
+    }
+
+    /**
+     * First record whose first field is key, or null
+     */
+    static String[] find(File file, String key) throws IOException {
+        long[] footer = footer(file);
+        Metrics.usedIndex("record file key index");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long low = 0;
+            long high = (file.length() - FOOTER_BYTES - footer[1]) / 8 - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                raf.seek(footer[1] + mid * 8);
+                raf.seek(raf.readLong());
+                String[] record = readRecord(raf);
+                int cmp = record[0].compareTo(key);
+                if (cmp == 0) {
+                    return record;
+                } else if (cmp < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Order independent checksum of a set of records (sum of each record's CRC32)
+     */
+    static long checksum(List<String[]> records) {
+        long sum = 0;
+        for (String[] record : records) {
+            sum += checksum(record);
+        }
+        return sum;
+    }
+
+    static long checksum(String[] record) {
+        CRC32 crc = new CRC32();
+        for (String field : record) {
+            crc.update(field.getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * {record count, index position, checksum}
+     */
+    private static long[] footer(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(file.length() - FOOTER_BYTES);
+            return new long[]{raf.readInt(), raf.readLong(), raf.readLong()};
+        }
+    }
+
+    /**
+     * Writes one record (field count, then each field as length and UTF-8 bytes)
+     */
+    static void writeRecord(DataOutput out, String[] record) throws IOException {
+        out.writeShort(record.length);
+        for (String field : record) {
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    static String[] readRecord(DataInput in) throws IOException {
+        String[] record = new String[in.readUnsignedShort()];
+        for (int i = 0; i < record.length; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            record[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return record;
+    }
+}
+
+/**
+ * Record Log - Where a store keeps its rows (each row a String[]).
+ * Stores hold their data in memory and use the log to load, append and rewrite it.
+ */
+interface RecordLog {
+    /**
+     * True when the stored rows changed since the last load or write through this log
+     */
+    boolean changed();
+
+    void load(Consumer<String[]> visitor) throws IOException;
+
+    void append(List<String[]> rows) throws IOException;
+
+    /**
+     * Replaces every stored row
+     */
+    void rewrite(List<String[]> rows) throws IOException;
+}
+
+/**
+ * Staff Text Log - Staff rows kept as staff_record.txt blocks
+ */
+class StaffTextLog implements RecordLog {
+    private final File file;
+    private final FileStamp stamp = new FileStamp();
+
+    StaffTextLog(File file) {
+        this.file = file;
+    }
+
+    public boolean changed() {
+        return stamp.changed(file);
+    }
+
+    public void load(Consumer<String[]> visitor) throws IOException {
+        StaffRecord.parseFile(file, r -> visitor.accept(r.toFields()));
+        stamp.update(file);
+    }
+
+    public void append(List<String[]> rows) throws IOException {
+        StringBuilder blocks = new StringBuilder();
+        for (String[] row : rows) {
+            blocks.append(StaffRecord.fromFields(row).toBlock());
+        }
+        Metrics.Span span = Metrics.begin(Metrics.APPEND, file);
+        long before = file.length();
+        try (FileWriter writer = new FileWriter(file, true)) {
+            writer.write(blocks.toString());
+        }
+        span.end(rows.size(), file.length() - before);
+        Metrics.wrote(file.length() - before);
+        stamp.update(file);
+    }
+
+    public void rewrite(List<String[]> rows) throws IOException {
+        File temp = new File(file.getParentFile(), "temp_staff.txt");
+        Metrics.Span span = Metrics.begin(Metrics.REWRITE, file);
+        try (FileWriter writer = new FileWriter(temp)) {
+            for (String[] row : rows) {
+                writer.write(StaffRecord.fromFields(row).toBlock());
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        span.end(rows.size(), file.length());
+        Metrics.wrote(file.length());
+        stamp.update(file);
+    }
+}
+
+/**
+ * Login Text Log - Login rows kept as "username,secret" lines
+ */
+class LoginTextLog implements RecordLog {
+    private final File file;
+    private final FileStamp stamp = new FileStamp();
+
+    LoginTextLog(File file) {
+        this.file = file;
+    }
+
+    public boolean changed() {
+        return stamp.changed(file);
+    }
+
+    public void load(Consumer<String[]> visitor) throws IOException {
+        long count = 0;
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",", 2);
+                    if (parts.length == 2) {
+                        visitor.accept(parts);
+                        count++;
+                    }
+                }
+            }
+        }
+        span.end(count, file.length());
+        Metrics.read(file.length(), count);
+        stamp.update(file);
+    }
+
+    public void append(List<String[]> rows) throws IOException {
+        for (String[] row : rows) {
+            if (row[0].contains(",")) {
+                // The row would read back as a different username
+                throw new IOException("Username cannot contain a comma: " + row[0]);
+            }
+        }
+        long before = file.length();
+        Metrics.Span span = Metrics.begin(Metrics.APPEND, file);
+        try (FileWriter writer = new FileWriter(file, true)) {
+            for (String[] row : rows) {
+                writer.write(row[0] + "," + row[1] + "\n");
+            }
+        }
+        span.end(rows.size(), file.length() - before);
+        Metrics.wrote(file.length() - before);
+        stamp.update(file);
+    }
+
+    public void rewrite(List<String[]> rows) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        Metrics.Span span = Metrics.begin(Metrics.REWRITE, file);
+        try (FileWriter writer = new FileWriter(temp)) {
+            for (String[] row : rows) {
+                writer.write(row[0] + "," + row[1] + "\n");
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        span.end(rows.size(), file.length());
+        Metrics.wrote(file.length());
+        stamp.update(file);
+    }
+}
+
+/**
+ * Binary Record Log - A RecordFile snapshot (name.dat) plus an append-only log (name.log)
+ * of rows written since, in the same field encoding. Loading reads the snapshot and then
+ * replays the log; a rewrite writes a new snapshot and empties the log. A torn entry at the
+ * end of the log (a crash mid-write) is ignored and cut off by the next append.
+ */
+class BinaryRecordLog implements RecordLog {
+    private final File snapshot;
+    private final File log;
+    private final FileStamp snapshotStamp = new FileStamp();
+    private final FileStamp logStamp = new FileStamp();
+    private long validLength = -1;
+    private int logEntries;
+
+    BinaryRecordLog(File snapshot) {
+        this.snapshot = snapshot;
+        this.log = logFile(snapshot);
+    }
+
+    /**
+     * The log that goes with a snapshot file (animals.dat -> animals.log)
+     */
+    static File logFile(File snapshot) {
+        String name = snapshot.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(snapshot.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + ".log");
+    }
+
+    public boolean changed() {
+        return snapshotStamp.changed(snapshot) || logStamp.changed(log);
+    }
+
+    /**
+     * Rows appended since the last snapshot
+     */
+    int logEntries() {
+        return logEntries;
+    }
+
+    public void load(Consumer<String[]> visitor) throws IOException {
+        if (snapshot.exists()) {
+            for (String[] row : RecordFile.read(snapshot)) {
+                visitor.accept(row);
+            }
+        }
+        validLength = 0;
+        logEntries = 0;
+        if (log.exists()) {
+            Metrics.Span span = Metrics.begin(Metrics.SCAN, log);
+            byte[] data = Files.readAllBytes(log.toPath());
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+            DataInputStream in = new DataInputStream(bytes);
+            while (bytes.available() > 0) {
+                String[] row;
+                try {
+                    row = RecordFile.readRecord(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                validLength = data.length - bytes.available();
+                logEntries++;
+                visitor.accept(row);
+            }
+            span.end(logEntries, data.length);
+            Metrics.read(data.length, logEntries);
+        }
+        snapshotStamp.update(snapshot);
+        logStamp.update(log);
+    }
+
+    /**
+     * The current row for a key, or null if it was never stored or has been deleted. The snapshot
+     * is searched through its key index and only the log is read in full.
+     */
+    String[] find(String key) throws IOException {
+        String[] found = snapshot.exists() ? RecordFile.find(snapshot, key) : null;
+        if (log.exists()) {
+            Metrics.Span span = Metrics.begin(Metrics.SCAN, log);
+            byte[] data = Files.readAllBytes(log.toPath());
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+            DataInputStream in = new DataInputStream(bytes);
+            int rows = 0;
+            while (bytes.available() > 0) {
+                String[] row;
+                try {
+                    row = RecordFile.readRecord(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                rows++;
+                if (row[0].equals(key)) {
+                    found = row.length == 1 ? null : row;
+                }
+            }
+            span.end(rows, data.length);
+            Metrics.read(data.length, rows);
+        }
+        return found;
+    }
+
+    public void append(List<String[]> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (validLength < 0) {
+            validLength = log.length();
+        } else if (log.length() > validLength) {
+            try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (String[] row : rows) {
+            RecordFile.writeRecord(out, row);
+        }
+        Metrics.Span span = Metrics.begin(Metrics.APPEND, log);
+        try (FileOutputStream file = new FileOutputStream(log, true)) {
+            bytes.writeTo(file);
+        }
+        span.end(rows.size(), bytes.size());
+        Metrics.wrote(bytes.size());
+        validLength += bytes.size();
+        logEntries += rows.size();
+        logStamp.update(log);
+    }
+
+    public void rewrite(List<String[]> rows) throws IOException {
+        File temp = new File(snapshot.getPath() + ".tmp");
+        RecordFile.write(temp, rows);
+        Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(log.toPath());
+        validLength = 0;
+        logEntries = 0;
+        snapshotStamp.update(snapshot);
+        logStamp.update(log);
+    }
+}
+
+/**
+ * Milk Store - Milk readings by date, with an archive for readings past the retention period
+ */
+interface MilkStore {
+    /**
+     * True when there is any live milk data
+     */
+    boolean hasData();
+
+    boolean hasData(boolean includeArchive) throws IOException;
+
+    long archivedRecordCount() throws IOException;
+
+    void append(MilkReading reading) throws IOException;
+
+    void appendAll(List<MilkReading> readings) throws IOException;
+
+    /**
+     * Moves finished months out of the open segment
+     */
+    void roll() throws IOException;
+
+    /**
+     * Stored lines that are not milk readings (e.g. legacy daily summaries)
+     */
+    List<String> nonReadingLines() throws IOException;
+
+    void dropNonReadingLines() throws IOException;
+
+    /**
+     * Moves readings dated before the cutoff to the archive, returns how many were moved
+     */
+    int archiveBefore(LocalDate cutoff) throws IOException;
+
+    void scan(LocalDate from, LocalDate to, Consumer<MilkReading> visitor) throws IOException;
+
+    /**
+     * Streams every reading dated within [from, to] (null bounds are open)
+     */
+    void scan(LocalDate from, LocalDate to, boolean includeArchive, Consumer<MilkReading> visitor) throws IOException;
+}
+
+/**
+ * Milk Segment Store - Month partitioned milk storage.
+ * New readings are appended to milk_record.txt, which holds the open (current) month.
+ * Once a month is over its readings are sealed into a compressed milk_segments/YYYY-MM.seg
+ * file, so queries only open the segments that overlap the requested dates.
+ * Readings past the retention period are moved to the MilkArchive and are only read
+ * by queries that ask for the archive. Appends, sealing and archiving hold a lock on
+ * milk_record.txt.lock, so PCs sharing the data folder never rewrite the open month under
+ * each other's appends; the sealed months are listed again whenever milk_segments changes.
+ */
+class MilkSegmentStore implements MilkStore {
+    static final String SEGMENT_DIR = "milk_segments";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File hotFile;
+    private final File lockFile;
+    private final File segmentDir;
+    private final TreeSet<YearMonth> sealedMonths = new TreeSet<>();
+    private final FileStamp segmentStamp = new FileStamp();
+    private final MilkArchive archive;
+    private YearMonth openMonth;
+
+    MilkSegmentStore(String hotFileName) {
+        this(new File(hotFileName), new File(SEGMENT_DIR), new File(MilkArchive.ARCHIVE_DIR));
+    }
+
+    MilkSegmentStore(File hotFile, File segmentDir, File archiveDir) {
+        this.hotFile = hotFile;
+        this.lockFile = new File(hotFile.getPath() + ".lock");
+        this.segmentDir = segmentDir;
+        this.archive = new MilkArchive(archiveDir);
+        recover();
+        refreshSegments();
+    }
+
+    /**
+     * Lists the sealed months again if milk_segments changed (another PC sealed or archived a month)
+     */
+    private void refreshSegments() {
+        if (!segmentStamp.changed(segmentDir)) {
+            return;
+        }
+        segmentStamp.update(segmentDir);
+        sealedMonths.clear();
+        File[] files = segmentDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                YearMonth month = monthOf(f);
+                if (month != null) {
+                    sealedMonths.add(month);
+                }
+            }
+        }
+    }
+
+    private FileChannel openLock() throws IOException {
+        return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private File journalFile() {
+        return new File(segmentDir, "pending.journal");
+    }
+
+    /**
+     * Finishes a seal or archive interrupted after its commit point, or drops the temporary
+     * files of one interrupted before it
+     */
+    private void recover() {
+        try {
+            if (!MilkJournal.finish(journalFile())) {
+                File[] files = segmentDir.listFiles();
+                if (files != null) {
+                    for (File f : files) {
+                        if (f.getName().endsWith(".tmp")) {
+                            Files.delete(f.toPath());
+                        }
+                    }
+                }
+                Files.deleteIfExists(new File(hotFile.getPath() + ".tmp").toPath());
+            }
+        } catch (IOException e) {
+            System.out.println("Error finishing an interrupted milk update: " + e.getMessage());
+        }
+    }
+
+    /**
+     * True when there is any milk data, sealed or open
+     */
+    public synchronized boolean hasData() {
+        refreshSegments();
+        return hotFile.exists() || !sealedMonths.isEmpty();
+    }
+
+    /**
+     * True when there is any milk data, optionally counting the archive
+     */
+    public synchronized boolean hasData(boolean includeArchive) throws IOException {
+        return hasData() || (includeArchive && !archive.isEmpty());
+    }
+
+    public long archivedRecordCount() throws IOException {
+        return archive.recordCount();
+    }
+
+    /**
+     * Appends a reading to the open segment, sealing finished months first if the month has turned
+     */
+    public synchronized void append(MilkReading reading) throws IOException {
+        appendAll(Collections.singletonList(reading));
+    }
+
+    /**
+     * Appends a batch of readings with a single write to the open segment
+     */
+    public synchronized void appendAll(List<MilkReading> readings) throws IOException {
+        if (readings.isEmpty()) {
+            return;
+        }
+        StringBuilder blocks = new StringBuilder();
+        for (MilkReading reading : readings) {
+            blocks.append(reading.toBlock());
+        }
+        try (FileChannel channel = openLock()) {
+            FileLock lock = channel.lock();
+            try {
+                if (!YearMonth.now().equals(openMonth)) {
+                    rollLocked();
+                }
+                Metrics.Span span = Metrics.begin(Metrics.APPEND, hotFile);
+                long before = hotFile.length();
+                try (FileWriter writer = new FileWriter(hotFile, true)) {
+                    writer.write(blocks.toString());
+                }
+                span.end(readings.size(), hotFile.length() - before);
+                Metrics.wrote(hotFile.length() - before);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Seals every finished month found in milk_record.txt into its compressed segment.
+     * Readings for an already sealed month (late entries) are merged into that segment.
+     */
+    public synchronized void roll() throws IOException {
+        try (FileChannel channel = openLock()) {
+            FileLock lock = channel.lock();
+            try {
+                rollLocked();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private void rollLocked() throws IOException {
+        refreshSegments();
+        YearMonth current = YearMonth.now();
+        openMonth = current;
+        if (!hotFile.exists()) {
+            return;
+        }
+        final Map<YearMonth, List<MilkReading>> closed = new TreeMap<>();
+        final StringBuilder keep = new StringBuilder();
+        MilkLogParser.parseParallel(hotFile, r -> {
+            LocalDate d = r.localDate();
+            if (d != null && YearMonth.from(d).isBefore(current)) {
+                closed.computeIfAbsent(YearMonth.from(d), m -> new ArrayList<>()).add(r);
+            } else {
+                keep.append(r.toBlock());
+            }
+        }, line -> keep.append(line).append("\n"));
+        if (closed.isEmpty()) {
+            return;
+        }
+
+        if (!segmentDir.exists() && !segmentDir.mkdirs()) {
+            throw new IOException("Could not create " + segmentDir);
+        }
+        // The sealed months and the shortened milk_record.txt replace the old files together
+        MilkJournal journal = new MilkJournal(journalFile());
+        for (Map.Entry<YearMonth, List<MilkReading>> entry : closed.entrySet()) {
+            List<MilkReading> readings = entry.getValue();
+            File segment = segmentFile(entry.getKey());
+            if (segment.exists()) {
+                List<MilkReading> merged = new ArrayList<>();
+                MilkSegmentCodec.read(segment, merged::add);
+                merged.addAll(readings);
+                readings = merged;
+            }
+            File temp = new File(segmentDir, segment.getName() + ".tmp");
+            MilkSegmentCodec.write(temp, readings);
+            journal.move(temp, segment);
+        }
+        File hotTemp = new File(hotFile.getPath() + ".tmp");
+        Metrics.Span span = Metrics.begin(Metrics.REWRITE, hotFile);
+        try (FileWriter writer = new FileWriter(hotTemp)) {
+            writer.write(keep.toString());
+        }
+        span.end(0, hotTemp.length());
+        Metrics.wrote(hotTemp.length());
+        journal.move(hotTemp, hotFile);
+        journal.commit();
+        sealedMonths.addAll(closed.keySet());
+    }
+
+    /**
+     * Lines in milk_record.txt that are not part of a reading block (e.g. legacy daily summaries)
+     */
+    public synchronized List<String> nonReadingLines() throws IOException {
+        List<String> lines = new ArrayList<>();
+        MilkLogParser.parseParallel(hotFile, r -> { }, lines::add);
+        return lines;
+    }
+
+    /**
+     * Rewrites milk_record.txt keeping only reading blocks
+     */
+    public synchronized void dropNonReadingLines() throws IOException {
+        try (FileChannel channel = openLock()) {
+            FileLock lock = channel.lock();
+            try {
+                final StringBuilder keep = new StringBuilder();
+                MilkLogParser.parseParallel(hotFile, r -> keep.append(r.toBlock()), line -> { });
+                File hotTemp = new File(hotFile.getPath() + ".tmp");
+                Metrics.Span span = Metrics.begin(Metrics.REWRITE, hotFile);
+                try (FileWriter writer = new FileWriter(hotTemp)) {
+                    writer.write(keep.toString());
+                }
+                span.end(0, hotTemp.length());
+                Metrics.wrote(hotTemp.length());
+                Files.move(hotTemp.toPath(), hotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Moves every reading dated before the cutoff out of the live segments into the archive.
+     * Returns the number of readings archived.
+     */
+    public synchronized int archiveBefore(LocalDate cutoff) throws IOException {
+        try (FileChannel channel = openLock()) {
+            FileLock lock = channel.lock();
+            try {
+                return archiveLocked(cutoff);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private int archiveLocked(LocalDate cutoff) throws IOException {
+        rollLocked();
+        int moved = 0;
+        // The archive blocks become visible in the same step that removes their readings from the live files
+        MilkJournal journal = new MilkJournal(journalFile());
+        List<YearMonth> emptied = new ArrayList<>();
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        for (YearMonth month : new ArrayList<>(sealedMonths)) {
+            if (month.isAfter(cutoffMonth)) {
+                break;
+            }
+            final List<MilkReading> old = new ArrayList<>();
+            final List<MilkReading> live = new ArrayList<>();
+            File segment = segmentFile(month);
+            if (!segment.exists()) {
+                continue;
+            }
+            MilkSegmentCodec.read(segment, r -> (r.localDate().isBefore(cutoff) ? old : live).add(r));
+            if (old.isEmpty()) {
+                continue;
+            }
+            journal.append(archive.indexFile(), archive.writeBlock(old));
+            if (live.isEmpty()) {
+                journal.delete(segment);
+                emptied.add(month);
+            } else {
+                File temp = new File(segmentDir, segment.getName() + ".tmp");
+                MilkSegmentCodec.write(temp, live);
+                journal.move(temp, segment);
+            }
+            moved += old.size();
+        }
+
+        // The open month only has archivable readings when the retention is shorter than a month
+        if (hotFile.exists() && !cutoff.isBefore(openMonth.atDay(1))) {
+            final List<MilkReading> old = new ArrayList<>();
+            final StringBuilder keep = new StringBuilder();
+            MilkLogParser.parse(hotFile, r -> {
+                if (r.localDate() != null && r.localDate().isBefore(cutoff)) {
+                    old.add(r);
+                } else {
+                    keep.append(r.toBlock());
+                }
+            }, line -> keep.append(line).append("\n"));
+            if (!old.isEmpty()) {
+                journal.append(archive.indexFile(), archive.writeBlock(old));
+                File hotTemp = new File(hotFile.getPath() + ".tmp");
+                Metrics.Span span = Metrics.begin(Metrics.REWRITE, hotFile);
+                try (FileWriter writer = new FileWriter(hotTemp)) {
+                    writer.write(keep.toString());
+                }
+                span.end(0, hotTemp.length());
+                Metrics.wrote(hotTemp.length());
+                journal.move(hotTemp, hotFile);
+                moved += old.size();
+            }
+        }
+        if (moved > 0) {
+            if (!segmentDir.exists() && !segmentDir.mkdirs()) {
+                throw new IOException("Could not create " + segmentDir);
+            }
+            journal.commit();
+            sealedMonths.removeAll(emptied);
+            archive.reload();
+        }
+        return moved;
+    }
+
+    /**
+     * Streams every live reading dated within [from, to]
+     */
+    public void scan(LocalDate from, LocalDate to, Consumer<MilkReading> visitor) throws IOException {
+        scan(from, to, false, visitor);
+    }
+
+    /**
+     * Streams every reading dated within [from, to] (either bound may be null for open ended).
+     * Only sealed segments overlapping the range are opened; the open segment is always read
+     * and the archive only when includeArchive is set.
+     * Readings with an unparseable date are only returned for unbounded scans.
+     */
+    public synchronized void scan(LocalDate from, LocalDate to, boolean includeArchive,
+                           Consumer<MilkReading> visitor) throws IOException {
+        final boolean bounded = from != null || to != null;
+        Consumer<MilkReading> filter = r -> {
+            LocalDate d = r.localDate();
+            if (!bounded) {
+                visitor.accept(r);
+            } else if (d != null && (from == null || !d.isBefore(from)) && (to == null || !d.isAfter(to))) {
+                visitor.accept(r);
+            }
+        };
+        if (includeArchive) {
+            archive.scan(from, to, visitor);
+        }
+        refreshSegments();
+        YearMonth first = from == null ? null : YearMonth.from(from);
+        YearMonth last = to == null ? null : YearMonth.from(to);
+        if (bounded) {
+            Metrics.usedIndex("milk segments by month");
+        }
+        for (YearMonth month : sealedMonths) {
+            if ((first == null || !month.isBefore(first)) && (last == null || !month.isAfter(last))) {
+                File segment = segmentFile(month);
+                try {
+                    MilkSegmentCodec.read(segment, filter);
+                } catch (FileNotFoundException e) {
+                    // Archived by another PC since the months were listed
+                }
+            }
+        }
+        MilkLogParser.parse(hotFile, filter, line -> { });
+    }
+
+    private File segmentFile(YearMonth month) {
+        return new File(segmentDir, month + SEGMENT_SUFFIX);
+    }
+
+    private static YearMonth monthOf(File file) {
+        String name = file.getName();
+        if (!name.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
+
+/**
+ * Milk Journal - Makes a change that spans several milk files (sealing a month, archiving
+ * readings) all or nothing. New files are written under temporary names first; the list of
+ * steps that puts them in place is then saved to the journal file, which is the commit point.
+ * A crash before that leaves the old files as they were (the next start deletes the temporary
+ * files); a crash after it is finished by the next start. Every step can safely run twice.
+ */
+final class MilkJournal {
+    private final File file;
+    private final List<String> steps = new ArrayList<>();
+
+    MilkJournal(File file) {
+        this.file = file;
+    }
+
+    void move(File from, File to) {
+        steps.add("move\t" + from.getAbsolutePath() + "\t" + to.getAbsolutePath());
+    }
+
+    void delete(File target) {
+        steps.add("delete\t" + target.getAbsolutePath());
+    }
+
+    /**
+     * Appends a line unless the file already has it (from an earlier, interrupted run)
+     */
+    void append(File target, String line) {
+        steps.add("append\t" + target.getAbsolutePath() + "\t" + line);
+    }
+
+    /**
+     * Saves the steps (the commit point) and carries them out
+     */
+    void commit() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileWriter writer = new FileWriter(temp)) {
+            for (String step : steps) {
+                writer.write(step + "\n");
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        finish(file);
+    }
+
+    /**
+     * Finishes a journal left by an interrupted change, returns false when there was none
+     */
+    static boolean finish(File journal) throws IOException {
+        if (!journal.exists()) {
+            return false;
+        }
+        for (String step : Files.readAllLines(journal.toPath(), Charset.defaultCharset())) {
+            String[] parts = step.split("\t");
+            if (parts[0].equals("move") && new File(parts[1]).exists()) {
+                Files.move(new File(parts[1]).toPath(), new File(parts[2]).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } else if (parts[0].equals("delete")) {
+                Files.deleteIfExists(new File(parts[1]).toPath());
+            } else if (parts[0].equals("append")) {
+                File target = new File(parts[1]);
+                List<String> lines = target.exists() ? Files.readAllLines(target.toPath(), Charset.defaultCharset())
+                        : Collections.<String>emptyList();
+                if (!lines.contains(parts[2])) {
+                    try (FileWriter writer = new FileWriter(target, true)) {
+                        writer.write(parts[2] + "\n");
+                    }
+                }
+            }
+        }
+        Files.delete(journal.toPath());
+        return true;
+    }
+}
+
+/**
+ * Milk Archive - Cold storage for milk readings past the retention period.
+ * archive.dat holds deflated segment blocks; archive.idx lists each block's date range,
+ * offset and length so a query only inflates the blocks overlapping its dates.
+ */
+class MilkArchive {
+    static final String ARCHIVE_DIR = "milk_archive";
+
+    private final File dataFile;
+    private final File indexFile;
+    private final List<long[]> index = new ArrayList<>(); // {firstDay, lastDay, offset, length, count}
+    // archive.idx as last loaded; other PCs sharing the folder add to it too
+    private final FileStamp stamp = new FileStamp();
+
+    MilkArchive(File dir) {
+        this.dataFile = new File(dir, "archive.dat");
+        this.indexFile = new File(dir, "archive.idx");
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (!stamp.changed(indexFile)) {
+            return;
+        }
+        stamp.update(indexFile);
+        index.clear();
+        if (!indexFile.exists()) {
+            return;
+        }
+        long dataLength = dataFile.length();
+        Metrics.Span span = Metrics.begin(Metrics.INDEX_BUILD, indexFile);
+        try (BufferedReader reader = new BufferedReader(new FileReader(indexFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length != 5) {
+                    continue;
+                }
+                long[] entry = new long[5];
+                for (int i = 0; i < 5; i++) {
+                    entry[i] = Long.parseLong(parts[i].trim());
+                }
+                // Ignore index entries for a block that never finished writing
+                if (entry[2] + entry[3] <= dataLength) {
+                    index.add(entry);
+                }
+            }
+        }
+        span.end(index.size(), indexFile.length());
+    }
+
+    synchronized boolean isEmpty() throws IOException {
+        ensureLoaded();
+        return index.isEmpty();
+    }
+
+    synchronized long recordCount() throws IOException {
+        ensureLoaded();
+        long total = 0;
+        for (long[] entry : index) {
+            total += entry[4];
+        }
+        return total;
+    }
+
+    File indexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Re-reads archive.idx on next use, after a MilkJournal has added lines to it
+     */
+    synchronized void reload() {
+        stamp.set(-1, -1);
+    }
+
+    /**
+     * Appends one compressed block of readings (all with valid dates) to archive.dat and returns
+     * its archive.idx line. The block is not part of the archive until that line is added.
+     */
+    synchronized String writeBlock(List<MilkReading> readings) throws IOException {
+        File dir = dataFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        long firstDay = Long.MAX_VALUE, lastDay = Long.MIN_VALUE;
+        for (MilkReading r : readings) {
+            long day = r.localDate().toEpochDay();
+            firstDay = Math.min(firstDay, day);
+            lastDay = Math.max(lastDay, day);
+        }
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(block, new Deflater(Deflater.BEST_COMPRESSION))) {
+            MilkSegmentCodec.write(out, readings);
+        }
+        long offset = dataFile.length();
+        Metrics.Span span = Metrics.begin(Metrics.APPEND, dataFile);
+        try (FileOutputStream out = new FileOutputStream(dataFile, true)) {
+            block.writeTo(out);
+        }
+        span.end(readings.size(), block.size());
+        Metrics.wrote(block.size());
+        return firstDay + "," + lastDay + "," + offset + "," + block.size() + "," + readings.size();
+    }
+
+    /**
+     * Streams archived readings dated within [from, to] (either bound may be null)
+     */
+    synchronized void scan(LocalDate from, LocalDate to, Consumer<MilkReading> visitor) throws IOException {
+        ensureLoaded();
+        if (index.isEmpty()) {
+            return;
+        }
+        long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        if (from != null || to != null) {
+            Metrics.usedIndex("milk archive dates");
+        }
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, dataFile);
+        long bytesRead = 0, recordsRead = 0;
+        try (RandomAccessFile file = new RandomAccessFile(dataFile, "r")) {
+            for (long[] entry : index) {
+                if (entry[1] < fromDay || entry[0] > toDay) {
+                    continue;
+                }
+                byte[] block = new byte[(int) entry[3]];
+                file.seek(entry[2]);
+                file.readFully(block);
+                Metrics.read(block.length, entry[4]);
+                bytesRead += block.length;
+                recordsRead += entry[4];
+                try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(block))) {
+                    MilkSegmentCodec.read(in, r -> {
+                        long day = r.localDate().toEpochDay();
+                        if (day >= fromDay && day <= toDay) {
+                            visitor.accept(r);
+                        }
+                    });
+                }
+            }
+        }
+        span.end(recordsRead, bytesRead);
+    }
+}
+
+/**
+ * Daily Summary Store - One summary per date and price per liter, kept in daily_summary.txt.
+ * Every entry occupies a fixed width line, so recalculating a summary overwrites its own
+ * slot in place instead of appending another block. A summary too long for one slot runs on
+ * through as many slots as it needs; only its last slot ends with a newline.
+ */
+class DailySummaryStore {
+    private static final int SLOT_SIZE = 160;
+    private static final byte[] ENTRY_START = "Date = ".getBytes(StandardCharsets.UTF_8);
+
+    private final File file;
+    private final Map<String, long[]> slots = new LinkedHashMap<>(); // {offset, length}
+    private final Map<String, String> entries = new LinkedHashMap<>();
+    private boolean loaded;
+
+    DailySummaryStore(String fileName) {
+        this.file = new File(fileName);
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        Metrics.Span span = Metrics.begin(Metrics.INDEX_BUILD, file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] slot = new byte[SLOT_SIZE];
+            ByteArrayOutputStream entry = new ByteArrayOutputStream();
+            long start = 0;
+            for (long offset = 0; offset + SLOT_SIZE <= raf.length(); offset += SLOT_SIZE) {
+                raf.seek(offset);
+                raf.readFully(slot);
+                if (entry.size() == 0 || startsEntry(slot)) {
+                    // An unfinished entry followed by a new one was cut off by a crash
+                    entry.reset();
+                    start = offset;
+                }
+                entry.write(slot, 0, SLOT_SIZE);
+                if (slot[SLOT_SIZE - 1] != '\n') {
+                    continue;
+                }
+                String line = new String(entry.toByteArray(), StandardCharsets.UTF_8).trim();
+                String[] fields = fields(line);
+                if (fields != null) {
+                    String key = key(fields[0], fields[1]);
+                    slots.put(key, new long[]{start, entry.size()});
+                    entries.put(key, line);
+                }
+                entry.reset();
+            }
+        }
+        span.end(entries.size(), file.length());
+        Metrics.read(file.length(), entries.size());
+    }
+
+    /**
+     * Stores the summary for a date and price, replacing any earlier one for the same pair
+     */
+    synchronized void put(String date, double pricePerLiter, double totalLiters, double totalPrice) throws IOException {
+        ensureLoaded();
+        String line = "Date = " + date + " | Price per liter = " + pricePerLiter +
+                " | Total Milk = " + totalLiters + " liters | Total Price = " + totalPrice;
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        byte[] record = blank(bytes.length / SLOT_SIZE + 1);
+        for (int end = SLOT_SIZE - 1; end < record.length - 1; end += SLOT_SIZE) {
+            record[end] = ' ';
+        }
+        System.arraycopy(bytes, 0, record, 0, bytes.length);
+
+        String key = key(date, String.valueOf(pricePerLiter));
+        Metrics.Span span = Metrics.begin(slots.containsKey(key) ? Metrics.REWRITE : Metrics.APPEND, file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long[] slot = slots.get(key);
+            if (slot != null && slot[1] != record.length) {
+                // It no longer fits its old slots; they become blank lines and it moves to the end
+                raf.seek(slot[0]);
+                raf.write(blank((int) (slot[1] / SLOT_SIZE)));
+                slot = null;
+            }
+            if (slot == null) {
+                // A torn trailing slot is overwritten by the next new entry
+                slot = new long[]{raf.length() - raf.length() % SLOT_SIZE, record.length};
+                slots.put(key, slot);
+            }
+            raf.seek(slot[0]);
+            raf.write(record);
+        }
+        span.end(1, record.length);
+        Metrics.wrote(record.length);
+        entries.put(key, line);
+    }
+
+    /**
+     * Imports legacy "Daily Summary for ..." blocks; later blocks win over earlier ones
+     */
+    synchronized int importLegacyBlocks(List<String> lines) throws IOException {
+        int imported = 0;
+        String date = null, liters = null, price = null, total = null;
+        for (String line : lines) {
+            if (line.startsWith("Daily Summary for ")) {
+                date = line.substring(18).replaceAll(":$", "").trim();
+                liters = price = total = null;
+            } else if (line.startsWith("Total Milk = ")) {
+                liters = line.substring(13).replace("liters", "").trim();
+            } else if (line.startsWith("Price per liter = ")) {
+                price = line.substring(18).trim();
+            } else if (line.startsWith("Total Price = ")) {
+                total = line.substring(14).trim();
+            } else if (line.startsWith("===") && date != null) {
+                try {
+                    put(date, Double.parseDouble(price), Double.parseDouble(liters), Double.parseDouble(total));
+                    imported++;
+                } catch (NumberFormatException | NullPointerException e) {
+                    // skip incomplete summary
+                }
+                date = null;
+            }
+        }
+        return imported;
+    }
+
+    /**
+     * All stored summaries, one line each, in the order they were first stored
+     */
+    synchronized List<String> all() throws IOException {
+        ensureLoaded();
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * The given number of empty slots, each a line of spaces
+     */
+    private static byte[] blank(int count) {
+        byte[] slots = new byte[count * SLOT_SIZE];
+        Arrays.fill(slots, (byte) ' ');
+        for (int end = SLOT_SIZE - 1; end < slots.length; end += SLOT_SIZE) {
+            slots[end] = '\n';
+        }
+        return slots;
+    }
+
+    private static boolean startsEntry(byte[] slot) {
+        for (int i = 0; i < ENTRY_START.length; i++) {
+            if (slot[i] != ENTRY_START[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] fields(String line) {
+        String[] parts = line.split(" \\| ");
+        if (parts.length != 4 || !parts[0].startsWith("Date = ") || !parts[1].startsWith("Price per liter = ")) {
+            return null;
+        }
+        return new String[]{parts[0].substring(7), parts[1].substring(18)};
+    }
+
+    private static String key(String date, String pricePerLiter) {
+        LocalDate day = FarmDates.parse(date);
+        String price;
+        try {
+            price = String.valueOf(Double.parseDouble(pricePerLiter));
+        } catch (NumberFormatException e) {
+            price = pricePerLiter;
+        }
+        return (day != null ? FarmDates.format(day) : date.trim()) + "|" + price;
+    }
+}
+
+/**
+ * Price Schedule - Milk price per liter by effective-from date, kept in price_schedule.txt.
+ * A price applies from its date until the next entry; lookups are a binary search.
+ */
+class PriceSchedule {
+    private final File file;
+    private long[] days = new long[0];
+    private double[] prices = new double[0];
+    private boolean loaded;
+
+    PriceSchedule(String fileName) {
+        this.file = new File(fileName);
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        TreeMap<Long, Double> entries = new TreeMap<>();
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" \\| ");
+                    if (parts.length != 2 || !parts[0].startsWith("Effective From = ")
+                            || !parts[1].startsWith("Price per Liter = ")) {
+                        continue;
+                    }
+                    LocalDate from = FarmDates.parse(parts[0].substring(17));
+                    try {
+                        if (from != null) {
+                            entries.put(from.toEpochDay(), Double.parseDouble(parts[1].substring(18).trim()));
+                        }
+                    } catch (NumberFormatException e) {
+                        // skip invalid
+                    }
+                }
+            }
+        }
+        setEntries(entries);
+    }
+
+    private void setEntries(TreeMap<Long, Double> entries) {
+        days = new long[entries.size()];
+        prices = new double[entries.size()];
+        int i = 0;
+        for (Map.Entry<Long, Double> entry : entries.entrySet()) {
+            days[i] = entry.getKey();
+            prices[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    /**
+     * Sets the price from the given date onwards, replacing an entry with the same date.
+     * Returns the replaced price, or null if the date had no entry.
+     */
+    synchronized Double setPrice(LocalDate effectiveFrom, double pricePerLiter) throws IOException {
+        ensureLoaded();
+        TreeMap<Long, Double> entries = new TreeMap<>();
+        for (int i = 0; i < days.length; i++) {
+            entries.put(days[i], prices[i]);
+        }
+        Double replaced = entries.put(effectiveFrom.toEpochDay(), pricePerLiter);
+        File temp = new File(file.getPath() + ".tmp");
+        Metrics.Span span = Metrics.begin(Metrics.REWRITE, file);
+        try (FileWriter writer = new FileWriter(temp)) {
+            for (Map.Entry<Long, Double> entry : entries.entrySet()) {
+                writer.write("Effective From = " + FarmDates.format(LocalDate.ofEpochDay(entry.getKey())) +
+                        " | Price per Liter = " + entry.getValue() + "\n");
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        span.end(entries.size(), file.length());
+        Metrics.wrote(file.length());
+        setEntries(entries);
+        return replaced;
+    }
+
+    /**
+     * Price of the entry starting on exactly this date, null if the date has none
+     */
+    synchronized Double priceSetOn(LocalDate effectiveFrom) throws IOException {
+        ensureLoaded();
+        int i = Arrays.binarySearch(days, effectiveFrom.toEpochDay());
+        return i >= 0 ? prices[i] : null;
+    }
+
+    /**
+     * Price in effect on the given date, null when the schedule starts later (or is empty)
+     */
+    synchronized Double priceOn(LocalDate date) throws IOException {
+        ensureLoaded();
+        int i = indexOn(date.toEpochDay());
+        return i < 0 ? null : prices[i];
+    }
+
+    private int indexOn(long day) {
+        int i = Arrays.binarySearch(days, day);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    synchronized List<String> entries() throws IOException {
+        ensureLoaded();
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < days.length; i++) {
+            result.add(FarmDates.format(LocalDate.ofEpochDay(days[i])) + " onwards: " + prices[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Snapshot lookup for a single pass over readings. Consecutive readings usually fall in the
+     * same price interval, so the last interval is checked before falling back to binary search.
+     */
+    synchronized Cursor cursor() throws IOException {
+        ensureLoaded();
+        return new Cursor(days, prices);
+    }
+
+    static final class Cursor {
+        private final long[] days;
+        private final double[] prices;
+        private int current = -1;
+
+        private Cursor(long[] days, double[] prices) {
+            this.days = days;
+            this.prices = prices;
+        }
+
+        /**
+         * Scheduled price on the given day, NaN when no entry covers it
+         */
+        double priceOn(LocalDate date) {
+            long day = date.toEpochDay();
+            if (current < 0 || day < days[current] || (current + 1 < days.length && day >= days[current + 1])) {
+                int i = Arrays.binarySearch(days, day);
+                current = i >= 0 ? i : -i - 2;
+            }
+            return current < 0 ? Double.NaN : prices[current];
+        }
+    }
+}
+
+/**
+ * Revenue Engine - Joins milk readings with the price schedule in a single pass.
+ * The scheduled price for a reading's date wins; the price stored on the reading is only
+ * used for dates the schedule does not cover.
+ */
+class RevenueEngine {
+    private final MilkStore milkStore;
+    private final PriceSchedule schedule;
+
+    RevenueEngine(MilkStore milkStore, PriceSchedule schedule) {
+        this.milkStore = milkStore;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Revenue for readings within [from, to], optionally restricted to one animal and/or staff member
+     */
+    Report run(LocalDate from, LocalDate to, String animalId, String staffName, boolean includeArchive) throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.AGGREGATION, "revenue");
+        final PriceSchedule.Cursor prices = schedule.cursor();
+        final Report report = new Report();
+        milkStore.scan(from, to, includeArchive, r -> {
+            if (r.localDate() == null
+                    || (animalId != null && !animalId.equals(r.animalId))
+                    || (staffName != null && !staffName.equalsIgnoreCase(r.staffName))) {
+                return;
+            }
+            double price = prices.priceOn(r.localDate());
+            if (Double.isNaN(price)) {
+                try {
+                    price = Double.parseDouble(r.pricePerLiter);
+                } catch (NumberFormatException e) {
+                    report.unpriced++;
+                    return;
+                }
+                report.storedPriceUsed++;
+            }
+            double liters = r.liters();
+            report.readings++;
+            report.liters += liters;
+            report.revenue += liters * price;
+            double[] month = report.byMonth.computeIfAbsent(YearMonth.from(r.localDate()), m -> new double[2]);
+            month[0] += liters;
+            month[1] += liters * price;
+        });
+        span.end(report.readings, 0);
+        return report;
+    }
+
+    static final class Report {
+        int readings;
+        int storedPriceUsed;
+        int unpriced;
+        double liters;
+        double revenue;
+        final TreeMap<YearMonth, double[]> byMonth = new TreeMap<>(); // {liters, revenue}
+    }
+}
+
+/**
+ * Join Engine - Groups milk readings by an attribute of the animal or the milkman.
+ * The animal or staff records (the small side) are loaded into a hash table once and the milk
+ * readings are streamed through it, so every report is a single pass over the milk data.
+ */
+class JoinEngine {
+    enum GroupBy {
+        ANIMAL_TYPE("Animal Type"),
+        FEED_TYPE("Feed Type"),
+        VACCINATION("Vaccination"),
+        MILKMAN("Milkman"),
+        STAFF_TYPE("Milkman Staff Type");
+
+        final String label;
+
+        GroupBy(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    static final String UNMATCHED = "(no matching record)";
+
+    private final AnimalStore animals;
+    private final StaffStore staff;
+    private final MilkStore milkStore;
+    private final PriceSchedule schedule;
+
+    JoinEngine(AnimalStore animals, StaffStore staff, MilkStore milkStore, PriceSchedule schedule) {
+        this.animals = animals;
+        this.staff = staff;
+        this.milkStore = milkStore;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Milk totals per group for readings within [from, to] (null bounds are open), largest first
+     */
+    List<Group> milkBy(GroupBy groupBy, LocalDate from, LocalDate to, boolean includeArchive) throws IOException {
+        Metrics.Span build = Metrics.begin(Metrics.INDEX_BUILD, "join " + groupBy);
+        final Map<String, String> buildSide = new HashMap<>();
+        final boolean byStaff = groupBy == GroupBy.MILKMAN || groupBy == GroupBy.STAFF_TYPE;
+        if (byStaff) {
+            for (StaffRecord r : staff.all()) {
+                buildSide.put(r.name.toLowerCase(), groupBy == GroupBy.MILKMAN ? r.name : r.staffType);
+            }
+        } else {
+            for (AnimalRecord r : animals.all()) {
+                buildSide.putIfAbsent(r.animalId, groupBy == GroupBy.ANIMAL_TYPE ? r.animalType
+                        : groupBy == GroupBy.FEED_TYPE ? r.feedType : r.vaccinated);
+            }
+        }
+        build.end(buildSide.size(), 0);
+
+        Metrics.Span span = Metrics.begin(Metrics.AGGREGATION, "milk by " + groupBy);
+        final PriceSchedule.Cursor prices = schedule.cursor();
+        final Map<String, Group> groups = new HashMap<>();
+        milkStore.scan(from, to, includeArchive, r -> {
+            String key = buildSide.get(byStaff ? r.staffName.toLowerCase() : r.animalId);
+            if (key == null || key.isEmpty()) {
+                key = UNMATCHED;
+            }
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group(key);
+                groups.put(key, group);
+            }
+            double liters = r.liters();
+            group.readings++;
+            group.liters += liters;
+            double price = r.localDate() == null ? Double.NaN : prices.priceOn(r.localDate());
+            if (Double.isNaN(price)) {
+                try {
+                    price = Double.parseDouble(r.pricePerLiter);
+                } catch (NumberFormatException e) {
+                    price = 0;
+                }
+            }
+            group.revenue += liters * price;
+        });
+        List<Group> result = new ArrayList<>(groups.values());
+        result.sort((a, b) -> Double.compare(b.liters, a.liters));
+        long readings = 0;
+        for (Group group : result) {
+            readings += group.readings;
+        }
+        span.end(readings, 0);
+        return result;
+    }
+
+    static final class Group {
+        final String key;
+        int readings;
+        double liters;
+        double revenue;
+
+        Group(String key) {
+            this.key = key;
+        }
+    }
+}
+
+/**
+ * CSV Importer - Bulk loads animals, milk readings or staff from a CSV file with a header row.
+ * Lines are read in chunks that are parsed and validated on a worker pool while the next
+ * chunks are read; valid rows are then written in file order, one batched write per chunk.
+ * Bad rows are skipped and listed in an error report next to the CSV file.
+ */
+class CsvImporter {
+    enum Kind {
+        ANIMALS("Animals", "animalId", "age", "gender", "purchaseDate", "feedType", "feedTimes", "vaccinated", "animalType"),
+        MILK("Milk Records", "date", "animalId", "quantity", "staffName", "pricePerLiter"),
+        STAFF("Staff", "name", "workStatus", "workingHours", "salary", "staffType");
+
+        final String label;
+        final String[] columns;
+
+        Kind(String label, String... columns) {
+            this.label = label;
+            this.columns = columns;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final int CHUNK_LINES = 10000;
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_PENDING_CHUNKS = THREADS * 2;
+
+    private final AnimalStore animals;
+    private final MilkStore milkStore;
+    private final StaffStore staffDirectory;
+    private final ChangeLog changeLog;
+
+    CsvImporter(AnimalStore animals, MilkStore milkStore, StaffStore staffDirectory, ChangeLog changeLog) {
+        this.animals = animals;
+        this.milkStore = milkStore;
+        this.staffDirectory = staffDirectory;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Rows of one chunk that passed the per-row checks, plus the errors of the ones that did not
+     */
+    private static final class Chunk {
+        final List<Object> records = new ArrayList<>();
+        final List<Integer> lineNumbers = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+    }
+
+    static final class Result {
+        int rows;
+        int imported;
+        final List<String> errors = new ArrayList<>();
+        File errorReport;
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Rows read: ").append(rows).append("\n");
+            sb.append("Imported: ").append(imported).append("\n");
+            sb.append("Rejected: ").append(errors.size()).append("\n");
+            if (errorReport != null) {
+                sb.append("Error report: ").append(errorReport.getPath()).append("\n");
+                for (int i = 0; i < Math.min(20, errors.size()); i++) {
+                    sb.append("  ").append(errors.get(i)).append("\n");
+                }
+                if (errors.size() > 20) {
+                    sb.append("  ... ").append(errors.size() - 20).append(" more in the report\n");
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Imports the rows of csv in chunks; progress gets the running row count after each chunk is saved
+     */
+    Result importFile(final Kind kind, File csv, LongConsumer progress) throws IOException {
+        Result result = new Result();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try (BufferedReader reader = new BufferedReader(new FileReader(csv))) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("The file is empty.");
+            }
+            final int[] columnIndex = mapColumns(kind, parseLine(header));
+
+            ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+            List<String> lines = new ArrayList<>(CHUNK_LINES);
+            int lineNumber = 1;
+            int firstLine = 2;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+                if (lines.size() == CHUNK_LINES) {
+                    pending.add(submit(pool, kind, columnIndex, lines, firstLine));
+                    lines = new ArrayList<>(CHUNK_LINES);
+                    firstLine = lineNumber + 1;
+                    if (pending.size() >= MAX_PENDING_CHUNKS) {
+                        write(kind, await(pending.poll()), result);
+                        progress.accept(result.rows);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                pending.add(submit(pool, kind, columnIndex, lines, firstLine));
+            }
+            while (!pending.isEmpty()) {
+                write(kind, await(pending.poll()), result);
+                progress.accept(result.rows);
+            }
+            if (kind == Kind.MILK) {
+                // Imported readings from earlier months go straight into their sealed segments
+                milkStore.roll();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        if (!result.errors.isEmpty()) {
+            result.errors.sort(Comparator.comparingInt(CsvImporter::lineOf));
+            result.errorReport = new File(csv.getPath() + ".errors.txt");
+            try (FileWriter writer = new FileWriter(result.errorReport)) {
+                for (String error : result.errors) {
+                    writer.write(error + "\n");
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int lineOf(String error) {
+        return Integer.parseInt(error.substring("Line ".length(), error.indexOf(':')));
+    }
+
+    private static int[] mapColumns(Kind kind, List<String> header) throws IOException {
+        int[] index = new int[kind.columns.length];
+        for (int i = 0; i < kind.columns.length; i++) {
+            index[i] = -1;
+            for (int h = 0; h < header.size(); h++) {
+                if (normalize(header.get(h)).equals(normalize(kind.columns[i]))) {
+                    index[i] = h;
+                }
+            }
+            if (index[i] < 0) {
+                throw new IOException("Missing column \"" + kind.columns[i] + "\". Expected header: " +
+                        String.join(",", kind.columns));
+            }
+        }
+        return index;
+    }
+
+    private static String normalize(String column) {
+        return column.replaceAll("[\\s_]", "").toLowerCase();
+    }
+
+    private static Future<Chunk> submit(ExecutorService pool, final Kind kind, final int[] columnIndex,
+                                        final List<String> lines, final int firstLine) {
+        return pool.submit(new Callable<Chunk>() {
+            @Override
+            public Chunk call() {
+                return parseChunk(kind, columnIndex, lines, firstLine);
+            }
+        });
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    private static Chunk parseChunk(Kind kind, int[] columnIndex, List<String> lines, int firstLine) {
+        Chunk chunk = new Chunk();
+        for (int i = 0; i < lines.size(); i++) {
+            int lineNumber = firstLine + i;
+            String line = lines.get(i);
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            List<String> cells = parseLine(line);
+            String[] v = new String[columnIndex.length];
+            for (int c = 0; c < columnIndex.length; c++) {
+                v[c] = columnIndex[c] < cells.size() ? cells.get(columnIndex[c]).trim() : "";
+            }
+            String error = validate(kind, v);
+            if (error != null) {
+                chunk.errors.add("Line " + lineNumber + ": " + error);
+                continue;
+            }
+            switch (kind) {
+                case ANIMALS:
+                    chunk.records.add(new AnimalRecord(v[0], v[1], v[2].toUpperCase(), v[3], v[4], v[5], v[6].toUpperCase(), v[7]));
+                    break;
+                case MILK:
+                    chunk.records.add(new MilkReading(v[0], v[1], v[2], v[3], v[4]));
+                    break;
+                default:
+                    chunk.records.add(new StaffRecord(v[0], v[1], v[2], v[3], v[4]));
+                    break;
+            }
+            chunk.lineNumbers.add(lineNumber);
+        }
+        return chunk;
+    }
+
+    /**
+     * Per-row checks that need nothing but the row itself, returns null when the row is valid
+     */
+    static String validate(Kind kind, String[] v) {
+        for (int c = 0; c < v.length; c++) {
+            if (v[c].isEmpty()) {
+                return "missing " + kind.columns[c];
+            }
+        }
+        switch (kind) {
+            case ANIMALS:
+                if (!isNumber(v[1], true)) {
+                    return "age is not a whole number: " + v[1];
+                }
+                if (!v[2].equalsIgnoreCase("M") && !v[2].equalsIgnoreCase("F")) {
+                    return "gender must be M or F: " + v[2];
+                }
+                if (FarmDates.parse(v[3]) == null) {
+                    return "invalid purchase date (use DD-MM-YYYY): " + v[3];
+                }
+                if (!v[6].equalsIgnoreCase("Y") && !v[6].equalsIgnoreCase("N")) {
+                    return "vaccinated must be Y or N: " + v[6];
+                }
+                return null;
+            case MILK:
+                if (FarmDates.parse(v[0]) == null) {
+                    return "invalid date (use DD-MM-YYYY): " + v[0];
+                }
+                if (!isNumber(v[2], false)) {
+                    return "quantity is not a number: " + v[2];
+                }
+                if (!isNumber(v[4], false)) {
+                    return "price per liter is not a number: " + v[4];
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isNumber(String value, boolean whole) {
+        try {
+            if (whole) {
+                return Integer.parseInt(value) >= 0;
+            }
+            return Double.parseDouble(value) >= 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Applies the cross-row checks and writes the chunk's surviving rows in one batch. The checks
+     * against stored animals run inside the change log write, so an animal added or deleted
+     * meanwhile (here or on another PC) is seen.
+     */
+    private void write(Kind kind, Chunk chunk, Result result) throws IOException {
+        result.rows += chunk.records.size() + chunk.errors.size();
+        result.errors.addAll(chunk.errors);
+        List<ChangeLog.Change> changes = new ArrayList<>();
+        switch (kind) {
+            case ANIMALS: {
+                List<AnimalRecord> batch = new ArrayList<>();
+                changeLog.write(() -> {
+                    Set<String> ids = new HashSet<>();
+                    for (int i = 0; i < chunk.records.size(); i++) {
+                        AnimalRecord animal = (AnimalRecord) chunk.records.get(i);
+                        if (!ids.add(animal.animalId) || animals.exists(animal.animalId)) {
+                            result.errors.add("Line " + chunk.lineNumbers.get(i) + ": Animal ID already exists: " + animal.animalId);
+                            continue;
+                        }
+                        batch.add(animal);
+                        changes.add(ChangeLog.Change.animal(null, animal));
+                    }
+                    return changes;
+                }, () -> {
+                    animals.addAll(batch);
+                    return true;
+                });
+                result.imported += batch.size();
+                break;
+            }
+            case MILK: {
+                List<MilkReading> batch = new ArrayList<>();
+                changeLog.write(() -> {
+                    for (int i = 0; i < chunk.records.size(); i++) {
+                        MilkReading reading = (MilkReading) chunk.records.get(i);
+                        if (!animals.exists(reading.animalId)) {
+                            result.errors.add("Line " + chunk.lineNumbers.get(i) + ": unknown Animal ID: " + reading.animalId);
+                            continue;
+                        }
+                        batch.add(reading);
+                        changes.add(ChangeLog.Change.milk(reading));
+                    }
+                    return changes;
+                }, () -> {
+                    milkStore.appendAll(batch);
+                    return true;
+                });
+                result.imported += batch.size();
+                break;
+            }
+            default: {
+                List<StaffRecord> batch = new ArrayList<>();
+                for (Object row : chunk.records) {
+                    batch.add((StaffRecord) row);
+                }
+                changeLog.write(() -> {
+                    // A name can appear twice in one chunk; the second row updates the first
+                    Map<String, StaffRecord> latest = new HashMap<>();
+                    for (StaffRecord record : batch) {
+                        String name = record.name.toLowerCase();
+                        StaffRecord before = latest.containsKey(name) ? latest.get(name) : staffDirectory.findExact(record.name);
+                        latest.put(name, record);
+                        changes.add(ChangeLog.Change.staff(before, record));
+                    }
+                    return changes;
+                }, () -> {
+                    staffDirectory.upsertAll(batch);
+                    return true;
+                });
+                result.imported += batch.size();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted cells ("" is a literal quote)
+     */
+    static List<String> parseLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cell.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    cell.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(ch);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+}
+
+/**
+ * Data Exporter - Streams animals, milk readings or staff to a CSV or JSON Lines file.
+ * Rows are written as they are read (milk straight from the segment scan), so memory use does
+ * not grow with the amount of history. The export goes to a ".part" file that is only moved
+ * into place when it completes; cancelling or failing leaves no partial file behind.
+ */
+class DataExporter {
+    enum Format {
+        CSV("CSV", ".csv"),
+        JSON_LINES("JSON Lines", ".jsonl");
+
+        final String label;
+        final String extension;
+
+        Format(String label, String extension) {
+            this.label = label;
+            this.extension = extension;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Optional filters, null fields match everything. type is the animal type for animals and
+     * milk (joined through the animal's record) and the staff type for staff.
+     */
+    static final class Filter {
+        LocalDate from;
+        LocalDate to;
+        String animalId;
+        String type;
+        boolean includeArchive;
+    }
+
+    private static final int PROGRESS_EVERY = 10000;
+
+    private final AnimalStore animals;
+    private final MilkStore milkStore;
+    private final StaffStore staffDirectory;
+
+    DataExporter(AnimalStore animals, MilkStore milkStore, StaffStore staffDirectory) {
+        this.animals = animals;
+        this.milkStore = milkStore;
+        this.staffDirectory = staffDirectory;
+    }
+
+    /**
+     * Writes the matching rows to target and returns how many were written.
+     * Throws CancellationException once cancel is set; progress receives the running row count.
+     */
+    long export(CsvImporter.Kind kind, Format format, Filter filter, File target,
+                final AtomicBoolean cancel, final LongConsumer progress) throws IOException {
+        File part = new File(target.getPath() + ".part");
+        final long[] rows = new long[1];
+        boolean done = false;
+        try (final Writer writer = new BufferedWriter(new FileWriter(part), 1 << 16)) {
+            final String[] columns = kind.columns;
+            if (format == Format.CSV) {
+                writer.write(String.join(",", columns));
+                writer.write("\n");
+            }
+            final Consumer<String[]> sink = values -> {
+                if (cancel.get()) {
+                    throw new CancellationException("Export cancelled");
+                }
+                try {
+                    if (format == Format.CSV) {
+                        writeCsv(writer, values);
+                    } else {
+                        writeJson(writer, columns, values);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++rows[0] % PROGRESS_EVERY == 0) {
+                    progress.accept(rows[0]);
+                }
+            };
+            final String type = filter.type == null || filter.type.trim().isEmpty() ? null : filter.type.trim().toLowerCase();
+            final String animalId = filter.animalId == null || filter.animalId.trim().isEmpty() ? null : filter.animalId.trim();
+            switch (kind) {
+                case ANIMALS:
+                    for (AnimalRecord r : animals.all()) {
+                        if ((animalId == null || r.animalId.equals(animalId))
+                                && (type == null || r.animalType.toLowerCase().contains(type))) {
+                            sink.accept(new String[]{r.animalId, r.age, r.gender, r.purchaseDate,
+                                    r.feedType, r.feedTimes, r.vaccinated, r.animalType});
+                        }
+                    }
+                    break;
+                case MILK: {
+                    final Set<String> ofType = new HashSet<>();
+                    if (type != null) {
+                        for (AnimalRecord r : animals.all()) {
+                            if (r.animalType.toLowerCase().contains(type)) {
+                                ofType.add(r.animalId);
+                            }
+                        }
+                    }
+                    milkStore.scan(filter.from, filter.to, filter.includeArchive, r -> {
+                        if ((animalId == null || r.animalId.equals(animalId))
+                                && (type == null || ofType.contains(r.animalId))) {
+                            sink.accept(new String[]{r.date, r.animalId, r.quantity, r.staffName, r.pricePerLiter});
+                        }
+                    });
+                    break;
+                }
+                default:
+                    for (StaffRecord r : staffDirectory.all()) {
+                        if (type == null || r.staffType.toLowerCase().contains(type)) {
+                            sink.accept(new String[]{r.name, r.workStatus, r.workingHours, r.salary, r.staffType});
+                        }
+                    }
+                    break;
+            }
+            done = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(part.toPath());
+            }
+        }
+        Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        progress.accept(rows[0]);
+        return rows[0];
+    }
+
+    private static void writeCsv(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write('\n');
+    }
+
+    static void writeJson(Writer writer, String[] columns, String[] values) throws IOException {
+        writer.write('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('"');
+            writer.write(columns[i]);
+            writer.write("\":\"");
+            writeJsonText(writer, values[i]);
+            writer.write('"');
+        }
+        writer.write("}\n");
+    }
+
+    static void writeJsonText(Writer writer, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                writer.write('\\');
+                writer.write(ch);
+            } else if (ch < 0x20) {
+                writer.write(String.format("\\u%04x", (int) ch));
+            } else {
+                writer.write(ch);
+            }
+        }
+    }
+}
+
+/**
+ * Legacy Migration - One-shot copy of the text files into the binary storage format under
+ * storage.dir (default farm_data/). Each step writes to a temporary file, reads it back to
+ * verify the record count and checksum, moves it into place and is then recorded in
+ * migration.properties together with the size and time of its source files. A rerun skips
+ * steps whose sources have not changed, so an interrupted migration resumes where it stopped.
+ * The legacy files are only read, never changed.
+ */
+class LegacyMigration {
+    static final String MANIFEST_FILE = "migration.properties";
+
+    private final File targetDir;
+    private final File manifestFile;
+    private final Properties manifest = new Properties();
+    private final StringBuilder report = new StringBuilder();
+
+    LegacyMigration(File targetDir) {
+        this.targetDir = targetDir;
+        this.manifestFile = new File(targetDir, MANIFEST_FILE);
+    }
+
+    /**
+     * Runs (or resumes) the migration, returns a report of every step
+     */
+    String run(File animalFile, File animalDeltaFile, File staffFile, File milkFile, File segmentDir,
+               File summaryFile, File staffLoginFile, File ownerLoginFile) throws IOException {
+        File milkDir = new File(targetDir, "milk");
+        if (!milkDir.exists() && !milkDir.mkdirs()) {
+            throw new IOException("Could not create " + milkDir);
+        }
+        if (manifestFile.exists()) {
+            try (FileReader reader = new FileReader(manifestFile)) {
+                manifest.load(reader);
+            }
+        }
+        report.append("Migrating to ").append(targetDir.getPath()).append("\n");
+
+        // Animals: the first block for an ID is the one the app uses, later duplicates are dropped
+        if (!done("animals", animalFile, animalDeltaFile)) {
+            List<AnimalRecord> animals = new TextAnimalStore(animalFile, animalDeltaFile).all();
+            List<String[]> rows = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (AnimalRecord animal : animals) {
+                if (seen.add(animal.animalId)) {
+                    rows.add(animal.toFields());
+                }
+            }
+            writeStep("animals", "animals.dat", rows, animals.size() - rows.size(), animalFile, animalDeltaFile);
+        }
+
+        // Staff: keep the latest block per name at the position of its first block
+        if (!done("staff", staffFile)) {
+            final Map<String, String[]> byName = new LinkedHashMap<>();
+            final int[] blocks = new int[1];
+            StaffRecord.parseFile(staffFile, r -> {
+                blocks[0]++;
+                byName.put(r.name.toLowerCase(), r.toFields());
+            });
+            writeStep("staff", "staff.dat", new ArrayList<>(byName.values()), blocks[0] - byName.size(), staffFile);
+        }
+
+        // Logins: the first line for a username is the one checked at login
+        for (File login : new File[]{staffLoginFile, ownerLoginFile}) {
+            String step = login.getName().replace(".txt", "");
+            if (!done(step, login)) {
+                Map<String, String[]> users = new LinkedHashMap<>();
+                int lines = 0;
+                if (login.exists()) {
+                    try (BufferedReader reader = new BufferedReader(new FileReader(login))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            String[] parts = line.split(",", 2);
+                            if (parts.length == 2) {
+                                lines++;
+                                users.putIfAbsent(parts[0], parts);
+                            }
+                        }
+                    }
+                }
+                writeStep(step, step + ".dat", new ArrayList<>(users.values()), lines - users.size(), login);
+            }
+        }
+
+        // Milk: legacy summary blocks in milk_record.txt are merged with daily_summary.txt
+        final List<String> otherLines = new ArrayList<>();
+        final Map<YearMonth, List<MilkReading>> byMonth = new TreeMap<>();
+        final List<String[]> undated = new ArrayList<>();
+        File[] segmentFiles = segmentDir.listFiles();
+        List<File> milkSources = new ArrayList<>();
+        milkSources.add(milkFile);
+        if (segmentFiles != null) {
+            Arrays.sort(segmentFiles);
+            milkSources.addAll(Arrays.asList(segmentFiles));
+        }
+        File[] milkSourceArray = milkSources.toArray(new File[0]);
+        boolean summariesDone = done("summaries", summaryFile, milkFile);
+        boolean milkDone = done("milk", milkSourceArray);
+        if (!summariesDone || !milkDone) {
+            MilkLogParser.parseParallel(milkFile, r -> {
+                if (r.localDate() == null) {
+                    undated.add(r.toFields());
+                } else {
+                    byMonth.computeIfAbsent(YearMonth.from(r.localDate()), m -> new ArrayList<>()).add(r);
+                }
+            }, otherLines::add);
+        }
+
+        if (!summariesDone) {
+            File scratch = new File(targetDir, "summaries.scratch");
+            Files.deleteIfExists(scratch.toPath());
+            if (summaryFile.exists()) {
+                Files.copy(summaryFile.toPath(), scratch.toPath());
+            }
+            DailySummaryStore merged = new DailySummaryStore(scratch.getPath());
+            int before = merged.all().size();
+            int legacyBlocks = merged.importLegacyBlocks(otherLines);
+            List<String[]> rows = new ArrayList<>();
+            for (String line : merged.all()) {
+                // Date = d | Price per liter = p | Total Milk = l liters | Total Price = t
+                String[] parts = line.split(" \\| ");
+                String[] row = new String[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    row[i] = parts[i].substring(parts[i].indexOf(" = ") + 3).replace(" liters", "");
+                }
+                rows.add(row);
+            }
+            Files.deleteIfExists(scratch.toPath());
+            writeStep("summaries", "summaries.dat", rows, before + legacyBlocks - rows.size(), summaryFile, milkFile);
+        }
+
+        if (!milkDone) {
+            if (segmentFiles != null) {
+                for (File segment : segmentFiles) {
+                    if (segment.getName().endsWith(".seg")) {
+                        YearMonth month = YearMonth.parse(segment.getName().substring(0, segment.getName().length() - 4));
+                        List<MilkReading> sealed = new ArrayList<>();
+                        MilkSegmentCodec.read(segment, sealed::add);
+                        byMonth.computeIfAbsent(month, m -> new ArrayList<>()).addAll(sealed);
+                    }
+                }
+            }
+            String fingerprint = fingerprint(milkSourceArray);
+            int total = undated.size();
+            long checksum = RecordFile.checksum(undated);
+            for (Map.Entry<YearMonth, List<MilkReading>> entry : byMonth.entrySet()) {
+                String step = "milk." + entry.getKey();
+                total += entry.getValue().size();
+                if (fingerprint.equals(stepFingerprint(step))) {
+                    checksum += Long.parseLong(manifest.getProperty(step).substring(manifest.getProperty(step).lastIndexOf('|') + 1), 16);
+                    continue;
+                }
+                checksum += writeMonth(step, new File(milkDir, entry.getKey() + ".seg"), entry.getValue(), fingerprint);
+            }
+            writeStep("milk.undated", "milk_undated.dat", undated, 0, milkSourceArray);
+            manifest.setProperty("milk", fingerprint + "|" + total + "|" + Long.toHexString(checksum));
+            saveManifest();
+            report.append("milk: ").append(byMonth.size()).append(" month(s), ").append(total)
+                    .append(" readings, checksum ").append(Long.toHexString(checksum)).append(" verified\n");
+        }
+        report.append("milk_archive/ is already in a compressed binary format and is left as it is.\n");
+        report.append("Migration complete.\n");
+        return report.toString();
+    }
+
+    private boolean done(String step, File... sources) {
+        if (fingerprint(sources).equals(stepFingerprint(step))) {
+            report.append(step).append(": already migrated, skipped\n");
+            return true;
+        }
+        return false;
+    }
+
+    private String stepFingerprint(String step) {
+        String entry = manifest.getProperty(step);
+        return entry == null ? null : entry.substring(0, entry.indexOf('|'));
+    }
+
+    private static String fingerprint(File... sources) {
+        StringBuilder sb = new StringBuilder();
+        for (File source : sources) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(source.getName()).append(':').append(source.length()).append(':').append(source.lastModified());
+        }
+        return sb.toString();
+    }
+
+    private void writeStep(String step, String fileName, List<String[]> rows, int dropped, File... sources) throws IOException {
+        File target = new File(targetDir, fileName);
+        File temp = new File(targetDir, fileName + ".tmp");
+        long expected = RecordFile.checksum(rows);
+        RecordFile.write(temp, rows);
+        List<String[]> check = RecordFile.read(temp);
+        if (check.size() != rows.size() || RecordFile.checksum(check) != expected) {
+            throw new IOException("Verification failed for " + fileName);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        // Edits logged against an older snapshot do not apply to the new one
+        Files.deleteIfExists(BinaryRecordLog.logFile(target).toPath());
+        manifest.setProperty(step, fingerprint(sources) + "|" + rows.size() + "|" + Long.toHexString(expected));
+        saveManifest();
+        report.append(step).append(": ").append(rows.size()).append(" records");
+        if (dropped > 0) {
+            report.append(", ").append(dropped).append(" duplicate(s) dropped");
+        }
+        report.append(", checksum ").append(Long.toHexString(expected)).append(" verified\n");
+    }
+
+    /**
+     * Writes one month of readings as a milk segment, returns its verified checksum
+     */
+    private long writeMonth(String step, File target, List<MilkReading> readings, String fingerprint) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        List<String[]> rows = new ArrayList<>();
+        for (MilkReading r : readings) {
+            rows.add(r.toFields());
+        }
+        long expected = RecordFile.checksum(rows);
+        MilkSegmentCodec.write(temp, readings);
+        final List<String[]> check = new ArrayList<>();
+        MilkSegmentCodec.read(temp, r -> check.add(r.toFields()));
+        if (check.size() != rows.size() || RecordFile.checksum(check) != expected) {
+            throw new IOException("Verification failed for " + target.getName());
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        manifest.setProperty(step, fingerprint + "|" + rows.size() + "|" + Long.toHexString(expected));
+        saveManifest();
+        return expected;
+    }
+
+    private void saveManifest() throws IOException {
+        File temp = new File(targetDir, MANIFEST_FILE + ".tmp");
+        try (FileWriter writer = new FileWriter(temp)) {
+            manifest.store(writer, "Legacy migration progress: step = sources|records|checksum");
+        }
+        Files.move(temp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
+
+/**
+ * Storage Backend - The animal, staff, login and milk stores for one storage format.
+ * "text" uses the original .txt files; "binary" uses the record files written by --migrate,
+ * each with an append-only log, under storage.dir. Daily summaries, prices and the milk
+ * archive are already compact and keep their own files with either backend.
+ */
+final class StorageBackend {
+    static final String OPEN_MILK_FILE = "milk_open.txt";
+
+    final String name;
+    final AnimalStore animals;
+    final StaffStore staff;
+    final CredentialStore staffLogins;
+    final CredentialStore ownerLogins;
+    final MilkStore milk;
+    // Files and directories the backend writes, for size reporting and the change feed
+    final List<File> locations;
+    // Where new milk readings are appended, and the files behind the animal store
+    final File openMilkFile;
+    final List<File> animalFiles;
+
+    private StorageBackend(String name, AnimalStore animals, StaffStore staff, CredentialStore staffLogins,
+                           CredentialStore ownerLogins, MilkStore milk, File openMilkFile, List<File> animalFiles,
+                           File... locations) {
+        this.name = name;
+        this.animals = animals;
+        this.staff = staff;
+        this.staffLogins = staffLogins;
+        this.ownerLogins = ownerLogins;
+        this.milk = milk;
+        this.openMilkFile = openMilkFile;
+        this.animalFiles = animalFiles;
+        this.locations = Collections.unmodifiableList(Arrays.asList(locations));
+    }
+
+    static StorageBackend text(File animalFile, File animalDeltaFile, File staffFile, File staffLoginFile,
+                               File ownerLoginFile, File milkFile, File segmentDir, File archiveDir) {
+        return new StorageBackend("text",
+                new TextAnimalStore(animalFile, animalDeltaFile),
+                new StaffDirectory(new StaffTextLog(staffFile)),
+                new HashedCredentialStore(new LoginTextLog(staffLoginFile)),
+                new HashedCredentialStore(new LoginTextLog(ownerLoginFile)),
+                new MilkSegmentStore(milkFile, segmentDir, archiveDir),
+                milkFile, Arrays.asList(animalFile, animalDeltaFile),
+                animalFile, animalDeltaFile, staffFile, staffLoginFile, ownerLoginFile, milkFile, segmentDir, archiveDir);
+    }
+
+    /**
+     * Record files under dir. Milk months are sealed into dir/milk as .seg files; new readings
+     * go to a small open-month file (milk_open.txt) until their month is over.
+     */
+    static StorageBackend binary(File dir, File archiveDir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        File openMonth = new File(dir, OPEN_MILK_FILE);
+        File undated = new File(dir, "milk_undated.dat");
+        if (!openMonth.exists() && undated.exists()) {
+            // Readings without a valid date have no month segment, so they stay in the open file
+            StringBuilder blocks = new StringBuilder();
+            for (String[] row : RecordFile.read(undated)) {
+                blocks.append(MilkReading.fromFields(row).toBlock());
+            }
+            if (blocks.length() > 0) {
+                try (FileWriter writer = new FileWriter(openMonth)) {
+                    writer.write(blocks.toString());
+                }
+            }
+        }
+        File animals = new File(dir, "animals.dat");
+        return new StorageBackend("binary",
+                new BinaryAnimalStore(new BinaryRecordLog(animals)),
+                new StaffDirectory(new BinaryRecordLog(new File(dir, "staff.dat"))),
+                new HashedCredentialStore(new BinaryRecordLog(new File(dir, "staff_login.dat"))),
+                new HashedCredentialStore(new BinaryRecordLog(new File(dir, "owner_login.dat"))),
+                new MilkSegmentStore(openMonth, new File(dir, "milk"), archiveDir),
+                openMonth, Arrays.asList(animals, BinaryRecordLog.logFile(animals)),
+                dir, archiveDir);
+    }
+}
+
+/**
+ * Storage Check - Runs the same conformance checks and timings against every storage backend
+ * (java Main --check-storage [animals]). Each run uses a fresh temporary directory.
+ */
+final class StorageCheck {
+    private interface Opener {
+        StorageBackend open(File dir) throws IOException;
+    }
+
+    private final StringBuilder report = new StringBuilder();
+    private boolean passed = true;
+
+    boolean passed() {
+        return passed;
+    }
+
+    String run(int count) throws IOException {
+        Map<String, Opener> backends = new LinkedHashMap<>();
+        backends.put("text", dir -> StorageBackend.text(new File(dir, "A_record.txt"), new File(dir, "A_record_delta.txt"),
+                new File(dir, "staff_record.txt"), new File(dir, "staff_login.txt"), new File(dir, "owner_login.txt"),
+                new File(dir, "milk_record.txt"), new File(dir, "milk_segments"), new File(dir, "milk_archive")));
+        backends.put("binary", dir -> StorageBackend.binary(dir, new File(dir, "milk_archive")));
+
+        report.append("Storage check: ").append(count).append(" animals, ").append(count * 5).append(" milk readings\n");
+        for (Map.Entry<String, Opener> backend : backends.entrySet()) {
+            File dir = Files.createTempDirectory("storage-check").toFile();
+            try {
+                conformance(backend.getValue(), new File(dir, "conformance"));
+                report.append(backend.getKey()).append(": conformance OK\n");
+                benchmark(backend.getValue(), new File(dir, "benchmark"), count);
+            } catch (IllegalStateException e) {
+                passed = false;
+                report.append(backend.getKey()).append(": FAILED - ").append(e.getMessage()).append("\n");
+            } finally {
+                deleteTree(dir);
+            }
+        }
+        return report.toString();
+    }
+
+    private void conformance(Opener opener, File dir) throws IOException {
+        dir.mkdirs();
+        StorageBackend store = opener.open(dir);
+        AnimalStore animals = store.animals;
+        animals.add(animal("A1", "Dry"));
+        animals.addAll(Arrays.asList(animal("A2", "Dry"), animal("A3", "Dry"), animal("A4", "Dry")));
+        check(animals.size() == 4 && animals.get("A3") != null && !animals.exists("A9"), "animals after add");
+        check(animals.update(animal("A1", "Hay")), "same size update");
+        check(animals.update(animal("A2", "Silage mix")), "resizing update");
+        check(!animals.update(animal("A9", "Hay")), "update of a missing animal");
+        check(animals.delete("A3") && !animals.delete("A3"), "delete");
+        animals.add(animal("A5", "Dry"));
+        check(animals.delete("A5"), "delete before re-add");
+        animals.add(animal("A5", "Hay"));
+        check(animals.delete("A5") && !animals.exists("A5"), "delete of a re-added animal");
+        animals.addAll(Collections.singletonList(animal("A5", "Straw")));
+        check(animals.get("A5") != null && "Straw".equals(animals.get("A5").feedType), "re-add after delete");
+        Map<String, Boolean> bulk = animals.bulkApply(Arrays.asList("A4", "A9"), r -> r.with("Vaccination", "N"));
+        check(bulk.get("A4") && !bulk.get("A9"), "bulk update results");
+        String expected = "A1/Hay/Y A2/Silage mix/Y A4/Dry/N A5/Straw/Y";
+        check(expected.equals(herd(animals.all())), "animals after edits: " + herd(animals.all()));
+
+        StaffStore staff = store.staff;
+        check(staff.upsert(new StaffRecord("Asha", "Active", "8", "1000", "Milkman")), "new staff name");
+        check(!staff.upsert(new StaffRecord("asha", "Active", "6", "1200", "Milkman")), "upsert by name");
+        staff.upsertAll(Arrays.asList(new StaffRecord("Ravi", "Active", "8", "900", "Cleaner"),
+                new StaffRecord("Meena", "Leave", "0", "1500", "Vet")));
+        check(staff.remove("MEENA") && !staff.remove("Meena"), "remove staff");
+        check(staff.findExact("ASHA") != null && "6".equals(staff.findExact("ASHA").workingHours), "staff lookup");
+        check(staff.search("clean").size() == 1 && staff.all().size() == 2, "staff search");
+
+        check(store.staffLogins.add("asha", "secret1") && !store.staffLogins.add("asha", "other"), "login add");
+        check(store.staffLogins.verify("asha", "secret1") && !store.staffLogins.verify("asha", "wrong"), "login verify");
+        check(!store.ownerLogins.exists("asha"), "separate owner logins");
+
+        LocalDate today = LocalDate.now();
+        LocalDate lastMonth = today.minusMonths(1);
+        store.milk.appendAll(Arrays.asList(reading(today, "A1", "5"), reading(today, "A2", "7"), reading(lastMonth, "A1", "4")));
+        store.milk.append(reading(today, "A4", "3"));
+        store.milk.roll();
+        check(count(store.milk, null, null) == 4 && count(store.milk, today, today) == 3
+                && count(store.milk, lastMonth, lastMonth) == 1, "milk scan");
+
+        StorageBackend reopened = opener.open(dir);
+        check(expected.equals(herd(reopened.animals.all())), "animals after reload: " + herd(reopened.animals.all()));
+        check(reopened.staff.all().size() == 2 && "1200".equals(reopened.staff.findExact("Asha").salary), "staff after reload");
+        check(reopened.staffLogins.verify("asha", "secret1"), "login after reload");
+        check(count(reopened.milk, null, null) == 4, "milk after reload");
+    }
+
+    private void benchmark(Opener opener, File dir, int count) throws IOException {
+        dir.mkdirs();
+        StorageBackend store = opener.open(dir);
+        List<AnimalRecord> herd = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            herd.add(animal("B" + i, "Dry"));
+        }
+        long start = System.nanoTime();
+        store.animals.addAll(herd);
+        long add = millisSince(start);
+
+        int updates = Math.min(count, 1000);
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            store.animals.update(herd.get(i * (count / updates)).with("Feed Type", "Silage mix"));
+        }
+        long update = millisSince(start);
+
+        start = System.nanoTime();
+        check(opener.open(dir).animals.size() == count, "animals after reload");
+        long reload = millisSince(start);
+
+        List<MilkReading> readings = new ArrayList<>(count * 5);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < count * 5; i++) {
+            readings.add(reading(today.minusDays(i % 365), "B" + (i % count), "5"));
+        }
+        start = System.nanoTime();
+        store.milk.appendAll(readings);
+        store.milk.roll();
+        long milkWrite = millisSince(start);
+
+        start = System.nanoTime();
+        check(count(store.milk, null, null) == readings.size(), "milk after append");
+        long scan = millisSince(start);
+
+        report.append(String.format("  add %d ms, %d updates %d ms, reload %d ms, milk append and seal %d ms, milk scan %d ms%n",
+                add, updates, update, reload, milkWrite, scan));
+    }
+
+    private static AnimalRecord animal(String id, String feed) {
+        return new AnimalRecord(id, "3", "Female", "01-01-2024", feed, "2", "Y", "Cow");
+    }
+
+    private static MilkReading reading(LocalDate date, String animalId, String liters) {
+        return new MilkReading(FarmDates.format(date), animalId, liters, "Asha", "50");
+    }
+
+    private static String herd(List<AnimalRecord> animals) {
+        StringBuilder sb = new StringBuilder();
+        for (AnimalRecord r : animals) {
+            sb.append(sb.length() > 0 ? " " : "").append(r.animalId).append('/').append(r.feedType).append('/').append(r.vaccinated);
+        }
+        return sb.toString();
+    }
+
+    private static int count(MilkStore milk, LocalDate from, LocalDate to) throws IOException {
+        final int[] count = new int[1];
+        milk.scan(from, to, r -> count[0]++);
+        return count[0];
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException(what);
+        }
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+}
+
+/**
+ * API Server - Headless mode (java Main --server [port]) so parlour terminals and office PCs
+ * can share one data set. Built on the JDK HttpServer with one virtual thread per request on
+ * JDK 21+ and a cached thread pool on older JDKs; every request goes through the same Main
+ * methods as the GUI. Requests need HTTP Basic auth with a staff or owner login; the owner
+ * only endpoints match the owner dashboard. Write parameters are sent form encoded (or in the
+ * query string) with the same names as the CSV columns. Responses are JSON.
+ */
+final class ApiServer {
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private final Main app;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    ApiServer(Main app, String host, int port) throws IOException {
+        this.app = app;
+        // Without TCP_NODELAY small JSON responses wait on the client's delayed ACK (about 40 ms each)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.createContext("/metrics", this::metrics);
+    }
+
+    static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() when the running JDK has it, otherwise null
+     */
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    private static final class ApiException extends Exception {
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] login = authenticate(exchange);
+            if (login == null) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"Animal Record System\"");
+                throw new ApiException(401, "Login required");
+            }
+            String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+            String id = path.length > 1 ? URLDecoder.decode(path[1], "UTF-8") : null;
+            Map<String, String> params = params(exchange);
+            boolean owner = login[1].equals("owner");
+            switch (path[0]) {
+                case "animals":
+                    animals(exchange, id, params, owner);
+                    break;
+                case "milk":
+                    milk(exchange, params, login[0]);
+                    break;
+                case "staff":
+                    requireOwner(owner);
+                    requireMethod(exchange, "GET");
+                    StringWriter out = new StringWriter();
+                    writeArray(out, CsvImporter.Kind.STAFF.columns, staffRows(app.getStaffGUI(params.get("q"))));
+                    send(exchange, 200, out.toString());
+                    break;
+                case "changes":
+                    requireOwner(owner);
+                    requireMethod(exchange, "GET");
+                    changes(exchange, params);
+                    break;
+                case "totals":
+                    requireOwner(owner);
+                    requireMethod(exchange, "GET");
+                    totals(exchange, id, params);
+                    break;
+                default:
+                    throw new ApiException(404, "Unknown endpoint: " + exchange.getRequestURI().getPath());
+            }
+        } catch (ApiException e) {
+            send(exchange, e.status, error(e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            send(exchange, 500, error(e.getMessage() == null ? e.toString() : e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * /metrics in the Prometheus text format for an owner login; the API port is usually open to
+     * the farm network, a scraper without a login uses metrics.port (127.0.0.1 by default)
+     */
+    private void metrics(HttpExchange exchange) throws IOException {
+        try {
+            String[] login = authenticate(exchange);
+            if (login == null) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"Animal Record System\"");
+                throw new ApiException(401, "Login required");
+            }
+            requireOwner(login[1].equals("owner"));
+            requireMethod(exchange, "GET");
+            send(exchange, 200, app.prometheusMetricsGUI(), PrometheusText.CONTENT_TYPE);
+        } catch (ApiException e) {
+            send(exchange, e.status, error(e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            send(exchange, 500, error(e.getMessage() == null ? e.toString() : e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * /api/animals[?type=] and /api/animals/{id}
+     */
+    private void animals(HttpExchange exchange, String id, Map<String, String> params, boolean owner) throws IOException, ApiException {
+        String method = exchange.getRequestMethod();
+        StringWriter out = new StringWriter();
+        if (id == null && method.equals("GET")) {
+            String type = params.get("type");
+            List<String[]> rows = new ArrayList<>();
+            for (AnimalRecord record : app.getAnimalsGUI()) {
+                if (type == null || record.animalType.toLowerCase().contains(type.toLowerCase())) {
+                    rows.add(record.toFields());
+                }
+            }
+            writeArray(out, CsvImporter.Kind.ANIMALS.columns, rows);
+            send(exchange, 200, out.toString());
+        } else if (id == null && method.equals("POST")) {
+            String[] v = values(CsvImporter.Kind.ANIMALS, params);
+            if (!app.addAnimalRecordGUI(v[0], Integer.parseInt(v[1]), v[2].toUpperCase().charAt(0), v[3],
+                    v[6].toUpperCase().charAt(0), v[4], v[5], v[7])) {
+                throw new ApiException(409, "Animal ID already exists: " + v[0]);
+            }
+            DataExporter.writeJson(out, CsvImporter.Kind.ANIMALS.columns, app.getAnimalGUI(v[0]).toFields());
+            send(exchange, 201, out.toString());
+        } else if (id != null && method.equals("GET")) {
+            DataExporter.writeJson(out, CsvImporter.Kind.ANIMALS.columns, animal(id).toFields());
+            send(exchange, 200, out.toString());
+        } else if (id != null && method.equals("PUT")) {
+            Map<String, String> merged = new HashMap<>();
+            String[] current = animal(id).toFields();
+            for (int i = 0; i < current.length; i++) {
+                merged.put(CsvImporter.Kind.ANIMALS.columns[i], current[i]);
+            }
+            merged.putAll(params);
+            merged.put("animalId", id);
+            String[] v = values(CsvImporter.Kind.ANIMALS, merged);
+            app.updateAnimalGUI(id, Integer.parseInt(v[1]), v[2].toUpperCase().charAt(0), v[3],
+                    v[6].toUpperCase().charAt(0), v[4], v[5], v[7]);
+            DataExporter.writeJson(out, CsvImporter.Kind.ANIMALS.columns, animal(id).toFields());
+            send(exchange, 200, out.toString());
+        } else if (id != null && method.equals("DELETE")) {
+            requireOwner(owner);
+            animal(id);
+            send(exchange, 200, message(app.deleteAnimalGUI(id)));
+        } else {
+            throw new ApiException(405, "Method not allowed: " + method);
+        }
+    }
+
+    /**
+     * /api/milk?from=&to=&animalId=&archive= lists readings, POST adds one (staffName defaults to the login)
+     */
+    private void milk(HttpExchange exchange, Map<String, String> params, String username) throws IOException, ApiException {
+        StringWriter out = new StringWriter();
+        if (exchange.getRequestMethod().equals("GET")) {
+            List<String[]> rows = new ArrayList<>();
+            for (MilkReading reading : app.getMilkReadingsGUI(date(params, "from"), date(params, "to"),
+                    params.get("animalId"), "true".equals(params.get("archive")))) {
+                rows.add(reading.toFields());
+            }
+            writeArray(out, CsvImporter.Kind.MILK.columns, rows);
+            send(exchange, 200, out.toString());
+        } else if (exchange.getRequestMethod().equals("POST")) {
+            params.putIfAbsent("staffName", username);
+            String[] v = values(CsvImporter.Kind.MILK, params);
+            if (app.getAnimalGUI(v[1]) == null) {
+                throw new ApiException(404, "Animal ID not found: " + v[1]);
+            }
+            app.addMilkBatchGUI(v[0], v[3], v[4], Collections.singletonList(new String[]{v[1], v[2]}));
+            DataExporter.writeJson(out, CsvImporter.Kind.MILK.columns, v);
+            send(exchange, 201, out.toString());
+        } else {
+            throw new ApiException(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    /**
+     * /api/totals/daily?date=, /api/totals/revenue?from=&to=&animalId=&staffName= and /api/totals/by?group=&from=&to=
+     */
+    private void totals(HttpExchange exchange, String kind, Map<String, String> params) throws IOException, ApiException {
+        boolean archive = "true".equals(params.get("archive"));
+        StringBuilder json = new StringBuilder();
+        if ("daily".equals(kind) || "revenue".equals(kind)) {
+            LocalDate from = date(params, "daily".equals(kind) ? "date" : "from");
+            LocalDate to = "daily".equals(kind) ? from : date(params, "to");
+            if (from == null || to == null) {
+                throw new ApiException(400, "daily".equals(kind) ? "date is required" : "from and to are required");
+            }
+            RevenueEngine.Report report = app.getRevenueGUI(from, to, params.get("animalId"), params.get("staffName"), archive);
+            json.append("{\"from\":\"").append(FarmDates.format(from)).append("\",\"to\":\"").append(FarmDates.format(to))
+                    .append("\",\"readings\":").append(report.readings).append(",\"liters\":").append(report.liters)
+                    .append(",\"revenue\":").append(report.revenue).append(",\"unpriced\":").append(report.unpriced).append("}\n");
+        } else if ("by".equals(kind)) {
+            JoinEngine.GroupBy groupBy;
+            try {
+                groupBy = JoinEngine.GroupBy.valueOf(params.getOrDefault("group", "").toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "group must be one of " + Arrays.toString(JoinEngine.GroupBy.values()));
+            }
+            json.append('[');
+            for (JoinEngine.Group group : app.getMilkGroupsGUI(groupBy, date(params, "from"), date(params, "to"), archive)) {
+                StringWriter key = new StringWriter();
+                DataExporter.writeJsonText(key, group.key);
+                json.append(json.length() > 1 ? "," : "").append("{\"key\":\"").append(key).append("\",\"readings\":")
+                        .append(group.readings).append(",\"liters\":").append(group.liters)
+                        .append(",\"revenue\":").append(group.revenue).append('}');
+            }
+            json.append("]\n");
+        } else {
+            throw new ApiException(404, "Unknown totals: " + kind);
+        }
+        send(exchange, 200, json.toString());
+    }
+
+    private AnimalRecord animal(String id) throws IOException, ApiException {
+        AnimalRecord record = app.getAnimalGUI(id);
+        if (record == null) {
+            throw new ApiException(404, "Animal ID not found: " + id);
+        }
+        return record;
+    }
+
+    /**
+     * The kind's columns from the request, checked with the CSV import rules
+     */
+    private static String[] values(CsvImporter.Kind kind, Map<String, String> params) throws ApiException {
+        String[] v = new String[kind.columns.length];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = params.getOrDefault(kind.columns[i], "").trim();
+        }
+        String problem = CsvImporter.validate(kind, v);
+        if (problem != null) {
+            throw new ApiException(400, problem);
+        }
+        return v;
+    }
+
+    /**
+     * /api/changes?after=&limit= - change log events after a sequence number, oldest first
+     */
+    private void changes(HttpExchange exchange, Map<String, String> params) throws IOException, ApiException {
+        long after;
+        int limit;
+        try {
+            after = Long.parseLong(params.getOrDefault("after", "0"));
+            limit = Math.min(Integer.parseInt(params.getOrDefault("limit", "1000")), 10000);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "after and limit must be numbers");
+        }
+        StringBuilder out = new StringBuilder("[\n");
+        for (ChangeLog.Event event : app.getChangesGUI(after, limit)) {
+            out.append(out.length() > 2 ? "," : "").append(event.json).append('\n');
+        }
+        out.append("]\n");
+        send(exchange, 200, out.toString());
+    }
+
+    private static LocalDate date(Map<String, String> params, String name) throws ApiException {
+        String text = params.get(name);
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        LocalDate date = FarmDates.parse(text);
+        if (date == null) {
+            throw new ApiException(400, "Invalid " + name + " (use DD-MM-YYYY): " + text);
+        }
+        return date;
+    }
+
+    private static List<String[]> staffRows(List<StaffRecord> staff) {
+        List<String[]> rows = new ArrayList<>(staff.size());
+        for (StaffRecord record : staff) {
+            rows.add(record.toFields());
+        }
+        return rows;
+    }
+
+    private static void requireOwner(boolean owner) throws ApiException {
+        if (!owner) {
+            throw new ApiException(403, "Owner login required");
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) throws ApiException {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new ApiException(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    /**
+     * {username, "owner" or "staff"} from HTTP Basic auth, null when missing or wrong
+     */
+    private String[] authenticate(HttpExchange exchange) throws IOException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int colon = decoded.indexOf(':');
+        if (colon < 0) {
+            return null;
+        }
+        String username = decoded.substring(0, colon);
+        String role = app.checkLoginGUI(username, decoded.substring(colon + 1));
+        return role == null ? null : new String[]{username, role};
+    }
+
+    /**
+     * Query string parameters plus a form encoded body, the body wins
+     */
+    private static Map<String, String> params(HttpExchange exchange) throws IOException, ApiException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                body.write(buffer, 0, n);
+                if (body.size() > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body is too large");
+                }
+            }
+        }
+        parseForm(body.toString("UTF-8"), params);
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) throws IOException {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        }
+    }
+
+    private static void writeArray(Writer writer, String[] columns, List<String[]> rows) throws IOException {
+        writer.write("[\n");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            DataExporter.writeJson(writer, columns, rows.get(i));
+        }
+        writer.write("]\n");
+    }
+
+    private static String message(String text) throws IOException {
+        StringWriter out = new StringWriter();
+        DataExporter.writeJson(out, new String[]{"message"}, new String[]{text});
+        return out.toString();
+    }
+
+    private static String error(String text) throws IOException {
+        StringWriter out = new StringWriter();
+        DataExporter.writeJson(out, new String[]{"error"}, new String[]{text});
+        return out.toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, json, "application/json; charset=utf-8");
+    }
+
+    static void send(HttpExchange exchange, int status, String body, String contentType) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
+
+/**
+ * Prometheus Text - Builds a page in the Prometheus text exposition format (version 0.0.4)
+ */
+final class PrometheusText {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder out = new StringBuilder();
+
+    void family(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * One sample; labels are given as name, value pairs
+     */
+    void sample(String name, double value, String... labels) {
+        out.append(name);
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            out.append(i == 0 ? '{' : ',').append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        if (labels.length > 1) {
+            out.append('}');
+        }
+        out.append(' ').append(number(value)).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
+
+/**
+ * Metrics Exporter - Optional Prometheus exporter for the desktop app and server mode, set in
+ * farm.properties: metrics.port serves /metrics on metrics.bind (default 127.0.0.1), and
+ * metrics.file rewrites a .prom file every metrics.interval seconds (default 15) for the
+ * node_exporter textfile collector. Server mode also answers /metrics on its own port, for owner logins.
+ */
+final class MetricsExporter {
+    private final Main app;
+    private HttpServer server;
+    private ScheduledExecutorService fileWriter;
+
+    MetricsExporter(Main app) {
+        this.app = app;
+    }
+
+    /**
+     * Starts whatever farm.properties turns on; returns null when metrics export is off
+     */
+    static MetricsExporter startConfigured(Main app) {
+        int port = FarmConfig.getInt("metrics.port", 0);
+        String file = FarmConfig.get("metrics.file", "");
+        if (port <= 0 && file.isEmpty()) {
+            return null;
+        }
+        MetricsExporter exporter = new MetricsExporter(app);
+        try {
+            if (port > 0) {
+                exporter.serve(FarmConfig.get("metrics.bind", "127.0.0.1"), port);
+            }
+            if (!file.isEmpty()) {
+                exporter.writeEvery(new File(file), Math.max(1, FarmConfig.getInt("metrics.interval", 15)));
+            }
+        } catch (IOException e) {
+            System.out.println("Error starting metrics export: " + e.getMessage());
+        }
+        return exporter;
+    }
+
+    void serve(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", exchange -> {
+            try {
+                ApiServer.send(exchange, 200, app.prometheusMetricsGUI(), PrometheusText.CONTENT_TYPE);
+            } catch (IOException | RuntimeException e) {
+                ApiServer.send(exchange, 500, String.valueOf(e.getMessage()), "text/plain; charset=utf-8");
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    void writeEvery(final File file, int seconds) {
+        fileWriter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-file");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fileWriter.scheduleWithFixedDelay(() -> {
+            try {
+                write(file);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Error writing metrics file: " + e.getMessage());
+            }
+        }, 0, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes the metrics to a temporary file and renames it, so a collector never reads half a file
+     */
+    void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        Files.write(temp.toPath(), app.prometheusMetricsGUI().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (fileWriter != null) {
+            fileWriter.shutdown();
+        }
+    }
+}
+
+/**
+ * Latency Histogram - Fixed memory latency recorder in the style of HdrHistogram.
+ * Values are counted in log-linear buckets: exact below 128, and above that 64 buckets per
+ * power of two, so any recorded value is reported within about 1.6% of its true value.
+ * Not thread safe; give each thread its own histogram and add them together.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * HALF + HALF];
+    private long total;
+    private long max;
+    private double sum;
+
+    void record(long value) {
+        counts[index(Math.max(0, value))]++;
+        total++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Takes out the values of an earlier copy of this histogram; the maximum becomes the top of
+     * the highest bucket still holding a value
+     */
+    void subtract(LatencyHistogram earlier) {
+        long top = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= earlier.counts[i];
+            if (counts[i] > 0) {
+                top = highestEquivalent(i);
+            }
+        }
+        total -= earlier.total;
+        sum -= earlier.sum;
+        max = Math.min(top, max);
+    }
+
+    long count() {
+        return total;
+    }
+
+    long max() {
+        return max;
+    }
+
+    double mean() {
+        return total == 0 ? 0 : sum / total;
+    }
+
+    /**
+     * Smallest value that at least the given percentage (0-100) of recorded values are at or below
+     */
+    long percentile(double percent) {
+        if (total == 0) {
+            return 0;
+        }
+        long wanted = Math.max(1, (long) Math.ceil(percent / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= wanted) {
+                return Math.min(highestEquivalent(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        long sub = index - (long) shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
+
+/**
+ * Load Test - Simulates concurrent milking terminals (java Main --load-test [options]).
+ * Worker threads replay a mix of milk record writes, animal searches, milk-by-animal reads and
+ * daily total queries, either straight against Main or over HTTP against the server mode, and
+ * report throughput and latency percentiles at each herd size. Unless --url is given everything
+ * runs on a scratch copy in a temporary directory, so real records are never touched.
+ */
+final class LoadTest {
+    private static final String[] OPERATIONS = {"add milk", "search animal", "milk by animal", "daily total"};
+
+    /**
+     * One way of reaching the system under test
+     */
+    private interface Target {
+        void addAnimals(int from, int to) throws IOException;
+
+        void addMilk(String animalId) throws IOException;
+
+        void searchAnimal(String animalId) throws IOException;
+
+        void milkByAnimal(String animalId) throws IOException;
+
+        void dailyTotal() throws IOException;
+    }
+
+    private int threads = 16;
+    private boolean virtual;
+    private int seconds = 10;
+    private int[] herds = {100, 1000, 10000};
+    private int[] mix = {40, 30, 20, 10};
+    private String mode = "direct";
+    private String url;
+    private String user = "loadtest";
+    private String password = "loadtest";
+    private String backend = "text";
+
+    /**
+     * Parses the command line; returns an error message, or null when the options are valid
+     */
+    String configure(String[] args) {
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--virtual":
+                        virtual = true;
+                        break;
+                    case "--seconds":
+                        seconds = Integer.parseInt(args[++i]);
+                        break;
+                    case "--herd":
+                        herds = ints(args[++i]);
+                        break;
+                    case "--mix":
+                        mix = ints(args[++i]);
+                        break;
+                    case "--server":
+                        mode = "server";
+                        break;
+                    case "--url":
+                        mode = "url";
+                        url = args[++i].replaceAll("/+$", "");
+                        break;
+                    case "--user":
+                        user = args[++i];
+                        break;
+                    case "--password":
+                        password = args[++i];
+                        break;
+                    case "--backend":
+                        backend = args[++i];
+                        break;
+                    default:
+                        return "Unknown option: " + args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            return "Invalid options: " + String.join(" ", args);
+        }
+        if (mix.length != OPERATIONS.length || threads < 1 || seconds < 1) {
+            return "--mix needs " + OPERATIONS.length + " weights, --threads and --seconds must be at least 1";
+        }
+        return null;
+    }
+
+    private static int[] ints(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    void run() throws IOException {
+        File dir = Files.createTempDirectory("load-test").toFile();
+        ApiServer server = null;
+        try {
+            Target target;
+            Target seeder;
+            if (mode.equals("url")) {
+                target = new HttpTarget(url, user, password);
+                seeder = target;
+            } else {
+                // Plain text logins are hashed on first use, so the scratch owner can log in
+                try (FileWriter writer = new FileWriter(new File(dir, "owner_login.txt"))) {
+                    writer.write(user + "," + password + "\n");
+                }
+                StorageBackend storage = backend.equals("binary")
+                        ? StorageBackend.binary(dir, new File(dir, "milk_archive"))
+                        : StorageBackend.text(new File(dir, "A_record.txt"), new File(dir, "A_record_delta.txt"),
+                        new File(dir, "staff_record.txt"), new File(dir, "staff_login.txt"), new File(dir, "owner_login.txt"),
+                        new File(dir, "milk_record.txt"), new File(dir, "milk_segments"), new File(dir, "milk_archive"));
+                Main app = new Main(storage, new File(dir, "daily_summary.txt").getPath(), new File(dir, "price_schedule.txt").getPath(),
+                        new File(dir, "change_log.jsonl").getPath());
+                seeder = new DirectTarget(app);
+                if (mode.equals("server")) {
+                    server = new ApiServer(app, "127.0.0.1", 0);
+                    server.start();
+                    target = new HttpTarget("http://127.0.0.1:" + server.port() + "/api", user, password);
+                } else {
+                    target = seeder;
+                }
+            }
+            boolean virtualThreads = virtual && ApiServer.virtualThreadsAvailable();
+            if (virtual && !virtualThreads) {
+                System.out.println("Virtual threads need JDK 21 or later, using platform threads.");
+            }
+            System.out.println("Load test: " + mode + (mode.equals("url") ? " " + url : " (" + backend + " storage)") + ", "
+                    + threads + (virtualThreads ? " virtual" : " platform") + " threads, " + seconds + " s per herd size, mix "
+                    + OPERATIONS[0] + " " + mix[0] + " / " + OPERATIONS[1] + " " + mix[1] + " / "
+                    + OPERATIONS[2] + " " + mix[2] + " / " + OPERATIONS[3] + " " + mix[3]);
+            int herd = 0;
+            for (int size : herds) {
+                if (size > herd) {
+                    seeder.addAnimals(herd, size);
+                    herd = size;
+                }
+                ExecutorService executor = virtualThreads ? ApiServer.virtualThreadExecutor() : Executors.newFixedThreadPool(threads);
+                try {
+                    System.out.print(step(target, executor, herd));
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+            deleteTree(dir);
+        }
+    }
+
+    /**
+     * Runs every worker for the configured time at one herd size and returns the report.
+     * Each worker first makes one untimed call, so its login (a PBKDF2 hash on the server) and
+     * connection setup are not counted; the clock starts once every worker has warmed up.
+     */
+    private String step(final Target target, ExecutorService executor, final int herd) throws IOException {
+        final int weightTotal = mix[0] + mix[1] + mix[2] + mix[3];
+        List<Future<LatencyHistogram[]>> workers = new ArrayList<>();
+        final long[] errors = new long[threads];
+        final String[] firstError = new String[1];
+        final CountDownLatch warmedUp = new CountDownLatch(threads);
+        final CountDownLatch go = new CountDownLatch(1);
+        final long[] deadline = new long[1]; // set before go opens
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            workers.add(executor.submit(new Callable<LatencyHistogram[]>() {
+                @Override
+                public LatencyHistogram[] call() throws InterruptedException {
+                    LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+                    for (int i = 0; i < histograms.length; i++) {
+                        histograms[i] = new LatencyHistogram();
+                    }
+                    Random random = new Random(worker);
+                    try {
+                        target.searchAnimal("L" + random.nextInt(herd));
+                    } catch (IOException | RuntimeException e) {
+                        failed(e);
+                    } finally {
+                        warmedUp.countDown();
+                    }
+                    go.await();
+                    while (System.nanoTime() < deadline[0]) {
+                        int pick = random.nextInt(weightTotal);
+                        int op = 0;
+                        while (pick >= mix[op]) {
+                            pick -= mix[op];
+                            op++;
+                        }
+                        String animalId = "L" + random.nextInt(herd);
+                        long start = System.nanoTime();
+                        try {
+                            switch (op) {
+                                case 0:
+                                    target.addMilk(animalId);
+                                    break;
+                                case 1:
+                                    target.searchAnimal(animalId);
+                                    break;
+                                case 2:
+                                    target.milkByAnimal(animalId);
+                                    break;
+                                default:
+                                    target.dailyTotal();
+                                    break;
+                            }
+                            histograms[op].record((System.nanoTime() - start) / 1000);
+                        } catch (IOException | RuntimeException e) {
+                            failed(e);
+                        }
+                    }
+                    return histograms;
+                }
+
+                private void failed(Exception e) {
+                    errors[worker]++;
+                    synchronized (firstError) {
+                        if (firstError[0] == null) {
+                            firstError[0] = e.toString();
+                        }
+                    }
+                }
+            }));
+        }
+        final long started;
+        try {
+            warmedUp.await();
+            started = System.nanoTime();
+            deadline[0] = started + seconds * 1_000_000_000L;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Load test interrupted");
+        } finally {
+            go.countDown();
+        }
+
+        LatencyHistogram[] merged = new LatencyHistogram[OPERATIONS.length];
+        LatencyHistogram all = new LatencyHistogram();
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = new LatencyHistogram();
+        }
+        for (Future<LatencyHistogram[]> future : workers) {
+            try {
+                LatencyHistogram[] histograms = future.get();
+                for (int i = 0; i < histograms.length; i++) {
+                    merged[i].add(histograms[i]);
+                    all.add(histograms[i]);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Load test interrupted");
+            } catch (ExecutionException e) {
+                throw new IOException("Load test worker failed: " + e.getCause());
+            }
+        }
+        // Until the last worker finished its last operation, which can run past the deadline
+        long elapsed = System.nanoTime() - started;
+        long errorCount = 0;
+        for (long e : errors) {
+            errorCount += e;
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%nHerd of %d animals: %.0f ops/s (%d ops, %d errors)%n", herd,
+                all.count() / (elapsed / 1e9), all.count(), errorCount));
+        report.append(String.format("  %-15s %9s %9s %9s %9s %9s %9s %9s%n", "operation (ms)", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (int i = 0; i < merged.length; i++) {
+            row(report, OPERATIONS[i], merged[i]);
+        }
+        row(report, "all", all);
+        if (firstError[0] != null) {
+            report.append("  first error: ").append(firstError[0]).append("\n");
+        }
+        return report.toString();
+    }
+
+    private static void row(StringBuilder report, String name, LatencyHistogram h) {
+        report.append(String.format("  %-15s %9d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, h.count(), h.mean() / 1000,
+                h.percentile(50) / 1000.0, h.percentile(90) / 1000.0, h.percentile(99) / 1000.0,
+                h.percentile(99.9) / 1000.0, h.max() / 1000.0));
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static AnimalRecord animal(int i) {
+        return new AnimalRecord("L" + i, String.valueOf(1 + i % 12), i % 2 == 0 ? "F" : "M", "01-01-2024",
+                "Hay", "2", "Y", i % 3 == 0 ? "Goat" : "Cow");
+    }
+
+    /**
+     * Calls the Main methods the GUI uses
+     */
+    private static final class DirectTarget implements Target {
+        private final Main app;
+        private final String today = FarmDates.format(LocalDate.now());
+
+        DirectTarget(Main app) {
+            this.app = app;
+        }
+
+        /**
+         * Loads the new animals through the CSV importer
+         */
+        public void addAnimals(int from, int to) throws IOException {
+            File csv = File.createTempFile("load-test-herd", ".csv");
+            try {
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter(csv))) {
+                    writer.write(String.join(",", CsvImporter.Kind.ANIMALS.columns) + "\n");
+                    for (int i = from; i < to; i++) {
+                        writer.write(String.join(",", animal(i).toFields()) + "\n");
+                    }
+                }
+                app.importCsvGUI(CsvImporter.Kind.ANIMALS, csv.getPath(), rows -> { });
+            } finally {
+                Files.deleteIfExists(csv.toPath());
+                Files.deleteIfExists(new File(csv.getPath() + ".errors.txt").toPath());
+            }
+        }
+
+        public void addMilk(String animalId) throws IOException {
+            app.addMilkBatchGUI(today, "loadtest", "50", Collections.singletonList(new String[]{animalId, "6.5"}));
+        }
+
+        public void searchAnimal(String animalId) throws IOException {
+            app.searchAnimalGUI(animalId);
+        }
+
+        public void milkByAnimal(String animalId) throws IOException {
+            app.showMilkRecordByAnimalIdGUI(animalId);
+        }
+
+        public void dailyTotal() throws IOException {
+            LocalDate day = LocalDate.now();
+            app.getRevenueGUI(day, day, null, null, false);
+        }
+    }
+
+    /**
+     * Calls the server mode's JSON API
+     */
+    private static final class HttpTarget implements Target {
+        private final String base;
+        private final String auth;
+        private final String today = FarmDates.format(LocalDate.now());
+
+        HttpTarget(String base, String user, String password) {
+            this.base = base;
+            this.auth = "Basic " + Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public void addAnimals(int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                AnimalRecord r = animal(i);
+                StringBuilder form = new StringBuilder();
+                String[] values = r.toFields();
+                for (int c = 0; c < values.length; c++) {
+                    form.append(c > 0 ? "&" : "").append(CsvImporter.Kind.ANIMALS.columns[c]).append('=')
+                            .append(URLEncoder.encode(values[c], "UTF-8"));
+                }
+                int status = call("POST", "/animals", form.toString());
+                if (status != 201 && status != 409) {
+                    throw new IOException("Adding animal " + r.animalId + " failed with HTTP " + status);
+                }
+            }
+        }
+
+        public void addMilk(String animalId) throws IOException {
+            expect(call("POST", "/milk", "date=" + today + "&animalId=" + animalId + "&quantity=6.5&pricePerLiter=50"));
+        }
+
+        public void searchAnimal(String animalId) throws IOException {
+            expect(call("GET", "/animals/" + animalId, null));
+        }
+
+        public void milkByAnimal(String animalId) throws IOException {
+            expect(call("GET", "/milk?animalId=" + animalId, null));
+        }
+
+        public void dailyTotal() throws IOException {
+            expect(call("GET", "/totals/daily?date=" + today, null));
+        }
+
+        private static void expect(int status) throws IOException {
+            if (status >= 300) {
+                throw new IOException("HTTP " + status);
+            }
+        }
+
+        private int call(String method, String path, String form) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("Authorization", auth);
+            if (form != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(form.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            // Read the body to the end so the connection can be reused
+            try (InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) > 0) {
+                        // discard
+                    }
+                }
+            }
+            return status;
+        }
+    }
+}
+
+/**
+ * Metrics - Cheap per-operation counters for the Main GUI operations.
+ * Each operation keeps its call count, total time, a latency histogram, and the bytes read,
+ * bytes written and records scanned on its behalf. Storage code reports bytes and records for
+ * whatever operation is running on the current thread; an operation called from inside another
+ * one is counted as part of the outer one. Work done outside any operation (startup, background
+ * threads) is counted under "(background)".
+ */
+final class Metrics {
+    static final String BACKGROUND = "(background)";
+
+    // Kinds of storage work timed with begin()
+    static final String SCAN = "scan";
+    static final String APPEND = "append";
+    static final String REWRITE = "rewrite";
+    static final String INDEX_BUILD = "index build";
+    static final String AGGREGATION = "aggregation";
+
+    private static final ConcurrentHashMap<String, OpStats> OPERATIONS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder[]> CACHES = new ConcurrentHashMap<>(); // {hits, misses}
+    private static final ThreadLocal<Timer> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> UNCOUNTED = new ThreadLocal<>();
+    // Totals when the Performance panel was last reset; the exported totals themselves never go back
+    private static volatile Map<String, OpStats> panelBase = Collections.emptyMap();
+    private static volatile Map<String, long[]> panelCacheBase = Collections.emptyMap();
+    private static final Timer NESTED = new Timer(null, null);
+    private static final Span IDLE = new Span(null, null, null);
+
+    private Metrics() {
+    }
+
+    static final class OpStats {
+        final String name;
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytesRead = new LongAdder();
+        final LongAdder bytesWritten = new LongAdder();
+        final LongAdder records = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram(); // microseconds
+
+        OpStats(String name) {
+            this.name = name;
+        }
+
+        /**
+         * These totals less an earlier copy's
+         */
+        OpStats since(OpStats earlier) {
+            OpStats result = new OpStats(name);
+            result.calls.add(calls.sum() - (earlier == null ? 0 : earlier.calls.sum()));
+            result.nanos.add(nanos.sum() - (earlier == null ? 0 : earlier.nanos.sum()));
+            result.bytesRead.add(bytesRead.sum() - (earlier == null ? 0 : earlier.bytesRead.sum()));
+            result.bytesWritten.add(bytesWritten.sum() - (earlier == null ? 0 : earlier.bytesWritten.sum()));
+            result.records.add(records.sum() - (earlier == null ? 0 : earlier.records.sum()));
+            result.latency.add(latency());
+            if (earlier != null) {
+                result.latency.subtract(earlier.latency());
+            }
+            return result;
+        }
+
+        private synchronized void recordLatency(long micros) {
+            latency.record(micros);
+        }
+
+        /**
+         * Copy of the latency histogram (microseconds)
+         */
+        synchronized LatencyHistogram latency() {
+            LatencyHistogram copy = new LatencyHistogram();
+            copy.add(latency);
+            return copy;
+        }
+    }
+
+    /**
+     * Times one operation; use with try-with-resources
+     */
+    static final class Timer implements AutoCloseable {
+        private final OpStats stats;
+        private final FlightEvents.OperationSpan flight;
+        private final long start = System.nanoTime();
+        // This call only; the timer never leaves its thread
+        final Object[] params;
+        long bytesRead;
+        long bytesWritten;
+        long records;
+        Map<String, Long> breakdown; // exclusive nanoseconds per kind of storage work
+        Set<String> indexes;
+        private Span active;
+
+        private Timer(OpStats stats, Object[] params) {
+            this.stats = stats;
+            this.params = params;
+            this.flight = stats == null ? null : FlightEvents.beginOperation(stats.name);
+        }
+
+        String name() {
+            return stats.name;
+        }
+
+        @Override
+        public void close() {
+            if (stats == null) {
+                return;
+            }
+            CURRENT.remove();
+            long elapsed = System.nanoTime() - start;
+            stats.calls.increment();
+            stats.nanos.add(elapsed);
+            stats.recordLatency(elapsed / 1000);
+            flight.end(records, bytesRead, bytesWritten);
+            SlowOperationLog.check(this, elapsed);
+        }
+    }
+
+    /**
+     * Times one call of an operation; the parameters are only formatted if it ends up in the slow log
+     */
+    static Timer time(String operation, Object... params) {
+        if (CURRENT.get() != null) {
+            return NESTED;
+        }
+        Timer timer = new Timer(OPERATIONS.computeIfAbsent(operation, OpStats::new), params);
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    /**
+     * One piece of storage or aggregation work. Its time, minus any work begun inside it, is added
+     * to the running operation's breakdown, and it is recorded as a Flight Recorder event.
+     */
+    static final class Span {
+        private final String kind;
+        private final Timer timer;
+        private final Span parent;
+        private final FlightEvents.Span flight;
+        private final long start;
+        private long childNanos;
+
+        private Span(String kind, Timer timer, FlightEvents.Span flight) {
+            this.kind = kind;
+            this.timer = timer;
+            this.flight = flight;
+            this.parent = timer == null ? null : timer.active;
+            this.start = timer == null ? 0 : System.nanoTime();
+            if (timer != null) {
+                timer.active = this;
+            }
+        }
+
+        void end(long records, long bytes) {
+            if (timer != null) {
+                long elapsed = System.nanoTime() - start;
+                if (parent != null) {
+                    parent.childNanos += elapsed;
+                }
+                if (timer.breakdown == null) {
+                    timer.breakdown = new TreeMap<>();
+                }
+                timer.breakdown.merge(kind, elapsed - childNanos, Long::sum);
+                timer.active = parent;
+            }
+            if (flight != null) {
+                flight.end(records, bytes);
+            }
+        }
+    }
+
+    static Span begin(String kind, File target) {
+        return begin(kind, target.getPath());
+    }
+
+    static Span begin(String kind, String target) {
+        Timer timer = CURRENT.get();
+        FlightEvents.Span flight = FlightEvents.begin(kind, target);
+        if (timer == null && flight == null) {
+            return IDLE;
+        }
+        return new Span(kind, timer, flight);
+    }
+
+    /**
+     * Notes that the running operation answered (part of) its query from an index
+     */
+    static void usedIndex(String index) {
+        Timer timer = CURRENT.get();
+        if (timer != null) {
+            if (timer.indexes == null) {
+                timer.indexes = new TreeSet<>();
+            }
+            timer.indexes.add(index);
+        }
+    }
+
+    /**
+     * Name of the operation running on this thread, or "(background)"
+     */
+    static String currentOperation() {
+        Timer timer = CURRENT.get();
+        return timer != null ? timer.stats.name : BACKGROUND;
+    }
+
+    private static OpStats current() {
+        Timer timer = CURRENT.get();
+        return timer != null ? timer.stats : OPERATIONS.computeIfAbsent(BACKGROUND, OpStats::new);
+    }
+
+    /**
+     * Bytes read from storage and records scanned, for the running operation
+     */
+    static void read(long bytes, long records) {
+        Timer timer = CURRENT.get();
+        if (timer != null) {
+            timer.bytesRead += bytes;
+            timer.records += records;
+        }
+        OpStats stats = current();
+        stats.bytesRead.add(bytes);
+        stats.records.add(records);
+    }
+
+    /**
+     * Bytes written to storage, for the running operation
+     */
+    static void wrote(long bytes) {
+        Timer timer = CURRENT.get();
+        if (timer != null) {
+            timer.bytesWritten += bytes;
+        }
+        current().bytesWritten.add(bytes);
+    }
+
+    /**
+     * Every operation seen so far, by name
+     */
+    static List<OpStats> operations() {
+        List<OpStats> result = new ArrayList<>(OPERATIONS.values());
+        result.sort(Comparator.comparing(s -> s.name));
+        return result;
+    }
+
+    /**
+     * A lookup answered from memory
+     */
+    static void cacheHit(String cache) {
+        if (UNCOUNTED.get() == null) {
+            cacheCounters(cache)[0].increment();
+        }
+    }
+
+    /**
+     * A lookup that had to go to disk (or recompute)
+     */
+    static void cacheMiss(String cache) {
+        if (UNCOUNTED.get() == null) {
+            cacheCounters(cache)[1].increment();
+        }
+    }
+
+    /**
+     * Turns counting of this thread's cache lookups off and on again, so reading the record counts
+     * for a metrics report does not show up in the hit rates it reports
+     */
+    static void countLookups(boolean on) {
+        if (on) {
+            UNCOUNTED.remove();
+        } else {
+            UNCOUNTED.set(Boolean.TRUE);
+        }
+    }
+
+    private static LongAdder[] cacheCounters(String cache) {
+        return CACHES.computeIfAbsent(cache, c -> new LongAdder[]{new LongAdder(), new LongAdder()});
+    }
+
+    /**
+     * {hits, misses} for every cache seen so far, by name
+     */
+    static Map<String, long[]> caches() {
+        Map<String, long[]> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder[]> entry : CACHES.entrySet()) {
+            result.put(entry.getKey(), new long[]{entry.getValue()[0].sum(), entry.getValue()[1].sum()});
+        }
+        return result;
+    }
+
+    /**
+     * Every operation's totals since the Performance panel was last reset
+     */
+    static List<OpStats> operationsSincePanelReset() {
+        Map<String, OpStats> base = panelBase;
+        List<OpStats> result = new ArrayList<>();
+        for (OpStats stats : operations()) {
+            OpStats since = stats.since(base.get(stats.name));
+            if (since.calls.sum() > 0 || since.bytesRead.sum() > 0 || since.bytesWritten.sum() > 0) {
+                result.add(since);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {hits, misses} for every cache since the Performance panel was last reset
+     */
+    static Map<String, long[]> cachesSincePanelReset() {
+        Map<String, long[]> base = panelCacheBase;
+        Map<String, long[]> result = new TreeMap<>();
+        for (Map.Entry<String, long[]> entry : caches().entrySet()) {
+            long[] earlier = base.getOrDefault(entry.getKey(), new long[2]);
+            long[] counts = {entry.getValue()[0] - earlier[0], entry.getValue()[1] - earlier[1]};
+            if (counts[0] + counts[1] > 0) {
+                result.put(entry.getKey(), counts);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts the Performance panel's figures over. The totals exported to Prometheus keep counting,
+     * because a counter that goes back looks like a restart to rate().
+     */
+    static void resetPanel() {
+        Map<String, OpStats> base = new HashMap<>();
+        for (OpStats stats : operations()) {
+            base.put(stats.name, stats.since(null));
+        }
+        panelBase = base;
+        panelCacheBase = caches();
+    }
+}
+
+/**
+ * Change Feed - Watches the data folder (WatchService) so open dashboards see changes made from
+ * other PCs without anyone pressing a button. Bytes appended to the open milk file are read from
+ * where the last read stopped and folded into per-day running totals; animal file changes are
+ * reported so the animal store, which only reads appended blocks, can catch up. Listeners are
+ * called on the feed's own thread.
+ */
+final class ChangeFeed {
+    interface Listener {
+        void milkAdded(List<MilkReading> readings);
+
+        void animalsChanged();
+
+        void fileChanged(File file);
+    }
+
+    private final File milkFile;
+    private final Set<File> animalFiles = new HashSet<>();
+    private final Set<File> otherFiles = new HashSet<>();
+    private final Set<File> otherDirs = new HashSet<>();
+    private final Map<WatchKey, File> watchedDirs = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, double[]> dayTotals = new HashMap<>(); // date -> {liters, readings}, open milk file only
+    private final Charset charset = Charset.defaultCharset();
+    private WatchService watcher;
+    private Thread thread;
+    private long milkOffset;
+
+    ChangeFeed(File milkFile, Collection<File> animalFiles, Collection<File> otherLocations) {
+        this.milkFile = milkFile.getAbsoluteFile();
+        for (File file : animalFiles) {
+            this.animalFiles.add(file.getAbsoluteFile());
+        }
+        for (File location : otherLocations) {
+            (location.isDirectory() ? otherDirs : otherFiles).add(location.getAbsoluteFile());
+        }
+    }
+
+    /**
+     * Reads the open milk file once for the running totals, then starts watching
+     */
+    void start() throws IOException {
+        tailMilk();
+        watcher = FileSystems.getDefault().newWatchService();
+        Set<File> dirs = new HashSet<>(otherDirs);
+        dirs.add(milkFile.getParentFile());
+        for (File file : animalFiles) {
+            dirs.add(file.getParentFile());
+        }
+        for (File file : otherFiles) {
+            dirs.add(file.getParentFile());
+        }
+        for (File dir : dirs) {
+            if (dir.isDirectory()) {
+                WatchKey key = dir.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirs.put(key, dir);
+            }
+        }
+        thread = new Thread(this::run, "change-feed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws IOException {
+        if (thread != null) {
+            thread.interrupt();
+        }
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * {liters, readings} so far for a date in the open milk file (usually today)
+     */
+    synchronized double[] dayTotal(String date) {
+        double[] total = dayTotals.get(date);
+        return total == null ? new double[2] : total.clone();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Set<File> changed = new LinkedHashSet<>();
+                // A single save usually fires several events; gather them so each file is handled once
+                do {
+                    collect(key, changed);
+                } while ((key = watcher.poll(50, TimeUnit.MILLISECONDS)) != null);
+                for (File file : changed) {
+                    dispatch(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private void collect(WatchKey key, Set<File> changed) {
+        File dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.add(milkFile);
+                changed.addAll(animalFiles);
+                continue;
+            }
+            File file = new File(dir, event.context().toString());
+            if (file.equals(milkFile) || animalFiles.contains(file) || otherFiles.contains(file)
+                    || (otherDirs.contains(dir) && !file.getName().endsWith(".tmp"))) {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    private void dispatch(File file) {
+        try {
+            if (file.equals(milkFile)) {
+                List<MilkReading> added = tailMilk();
+                if (!added.isEmpty()) {
+                    for (Listener listener : listeners) {
+                        listener.milkAdded(added);
+                    }
+                }
+            } else if (animalFiles.contains(file)) {
+                for (Listener listener : listeners) {
+                    listener.animalsChanged();
+                }
+            } else {
+                for (Listener listener : listeners) {
+                    listener.fileChanged(file);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error reading change to " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the complete reading blocks appended since the last call. When the file got shorter
+     * (its month was sealed or readings were archived) it is read again from the start.
+     */
+    private synchronized List<MilkReading> tailMilk() throws IOException {
+        List<MilkReading> added = new ArrayList<>();
+        long length = milkFile.length();
+        if (length < milkOffset) {
+            milkOffset = 0;
+            dayTotals.clear();
+        }
+        if (length == milkOffset) {
+            return added;
+        }
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, milkFile);
+        byte[] bytes = new byte[(int) (length - milkOffset)];
+        try (RandomAccessFile raf = new RandomAccessFile(milkFile, "r")) {
+            raf.seek(milkOffset);
+            raf.readFully(bytes);
+        }
+        // Stop after the last finished block; a block still being written is read next time
+        int end = 0;
+        for (int i = 0, lineStart = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                if (bytes[lineStart] == '-' && i - lineStart >= 3) {
+                    end = i + 1;
+                }
+                lineStart = i + 1;
+            }
+        }
+        MilkLogParser.parse(new BufferedReader(new StringReader(new String(bytes, 0, end, charset))), added::add, line -> { });
+        milkOffset += end;
+        for (MilkReading reading : added) {
+            double[] total = dayTotals.computeIfAbsent(reading.date, d -> new double[2]);
+            total[0] += reading.liters();
+            total[1]++;
+        }
+        span.end(added.size(), end);
+        Metrics.read(end, added.size());
+        return added;
+    }
+}
+
+/**
+ * Change Log - Append-only change data capture log (change_log.jsonl). Every insert, update and
+ * delete made through Main is written as one JSON line whose sequence number is one higher than
+ * the line before, e.g.
+ * {"seq":42,"time":"2026-10-19T08:15:02.113","table":"animals","op":"update","key":"A7","before":{...},"after":{...}}
+ * A consumer remembers the last sequence it processed and reads what came after it. The first
+ * line to read is found by a binary search over the file, so catching up never rescans the log.
+ * Writes hold a file lock, so PCs sharing the data folder continue one sequence.
+ */
+final class ChangeLog {
+    /**
+     * Reads the before images of a write and returns its changes (empty when there is nothing to do)
+     */
+    interface Plan {
+        List<Change> changes() throws IOException;
+    }
+
+    /**
+     * Makes the planned write in the store, false when the store did not make it
+     */
+    interface Apply {
+        boolean apply() throws IOException;
+    }
+
+    /**
+     * One change to log. before and after are the record's fields, before is null for an insert
+     * and after is null for a delete.
+     */
+    static final class Change {
+        final String table;
+        final String op;
+        final String key;
+        final String[] columns;
+        final String[] before;
+        final String[] after;
+
+        Change(String table, String key, String[] columns, String[] before, String[] after) {
+            this.table = table;
+            this.op = before == null ? "insert" : after == null ? "delete" : "update";
+            this.key = key;
+            this.columns = columns;
+            this.before = before;
+            this.after = after;
+        }
+
+        /**
+         * The change that undoes this one
+         */
+        Change reversed() {
+            return new Change(table, key, columns, after, before);
+        }
+
+        static Change animal(AnimalRecord before, AnimalRecord after) {
+            return new Change("animals", (after != null ? after : before).animalId, CsvImporter.Kind.ANIMALS.columns,
+                    before == null ? null : before.toFields(), after == null ? null : after.toFields());
+        }
+
+        static Change staff(StaffRecord before, StaffRecord after) {
+            return new Change("staff", (after != null ? after : before).name, CsvImporter.Kind.STAFF.columns,
+                    before == null ? null : before.toFields(), after == null ? null : after.toFields());
+        }
+
+        static Change milk(MilkReading reading) {
+            // Readings have no key of their own; several can share a date and animal
+            return new Change("milk", null, CsvImporter.Kind.MILK.columns, null, reading.toFields());
+        }
+    }
+
+    static final class Event {
+        final long seq;
+        final String json;
+
+        Event(long seq, String json) {
+            this.seq = seq;
+            this.json = json;
+        }
+
+        String table() {
+            return text(0, "table");
+        }
+
+        /**
+         * A field of the "before" or "after" record, null when the event has no such record
+         */
+        String field(String image, String column) {
+            int start = json.indexOf("\"" + image + "\":{");
+            return start < 0 ? null : text(start, column);
+        }
+
+        private String text(int from, String name) {
+            int at = json.indexOf("\"" + name + "\":\"", from);
+            if (at < 0) {
+                return null;
+            }
+            StringBuilder value = new StringBuilder();
+            for (int i = at + name.length() + 4; i < json.length(); i++) {
+                char ch = json.charAt(i);
+                if (ch == '"') {
+                    break;
+                }
+                if (ch == '\\') {
+                    ch = json.charAt(++i);
+                    if (ch == 'u') {
+                        ch = (char) Integer.parseInt(json.substring(i + 1, i + 5), 16);
+                        i += 4;
+                    }
+                }
+                value.append(ch);
+            }
+            return value.toString();
+        }
+    }
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private final File file;
+    // Length of the file and its last sequence number after this instance's last append
+    private long knownLength = -1;
+    private long lastSeq;
+    // Where the last read stopped, so a consumer that keeps polling does not search again
+    private long readSeq = -1;
+    private long readOffset;
+
+    ChangeLog(File file) {
+        this.file = file;
+    }
+
+    File file() {
+        return file;
+    }
+
+    /**
+     * Makes one logged write. plan reads the before images, its changes are appended, and then
+     * apply writes them to the store, all under the log's lock (and the file lock other PCs take),
+     * so events are numbered in the order the writes happen and no before image is stale. The
+     * events go first, so a write never reaches the store without them; if apply then fails or
+     * refuses, the changes are logged again reversed. Returns the changes the store made, empty
+     * when it made none.
+     */
+    synchronized List<Change> write(Plan plan, Apply apply) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                List<Change> changes = plan.changes();
+                if (changes.isEmpty()) {
+                    return changes;
+                }
+                append(channel, changes);
+                boolean applied = false;
+                try {
+                    applied = apply.apply();
+                } finally {
+                    if (!applied) {
+                        List<Change> undo = new ArrayList<>();
+                        for (Change change : changes) {
+                            undo.add(change.reversed());
+                        }
+                        append(channel, undo);
+                    }
+                }
+                return applied ? changes : Collections.<Change>emptyList();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private void append(FileChannel channel, List<Change> changes) throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.APPEND, file);
+        long length = channel.size();
+        long seq = lastSeq;
+        if (length != knownLength) {
+            // Someone else appended since we last did (or this is our first append)
+            length = dropTornLine(channel, length);
+            seq = length == 0 ? 0 : seqOf(lineBefore(channel, length));
+        }
+        String time = LocalDateTime.now().format(TIME_FORMAT);
+        StringWriter out = new StringWriter();
+        for (Change change : changes) {
+            write(out, ++seq, time, change);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8));
+        long position = length;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        lastSeq = seq;
+        knownLength = position;
+        span.end(changes.size(), position - length);
+        Metrics.wrote(position - length);
+    }
+
+    /**
+     * Sequence number of the last complete event, 0 when the log is empty
+     */
+    synchronized long lastSeq() throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long end = lineStart(channel, channel.size());
+            return end == 0 ? 0 : seqOf(lineBefore(channel, end));
+        }
+    }
+
+    /**
+     * Passes up to limit events after the given sequence number to the consumer, oldest first.
+     * Returns the sequence number of the last event passed (afterSeq when there was none).
+     */
+    synchronized long read(long afterSeq, int limit, Consumer<Event> consumer) throws IOException {
+        if (!file.exists()) {
+            return afterSeq;
+        }
+        Metrics.Span span = Metrics.begin(Metrics.SCAN, file);
+        long delivered = afterSeq;
+        int count = 0;
+        long start;
+        long offset;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            start = afterSeq == readSeq && readOffset <= length ? readOffset : offsetAfter(channel, length, afterSeq);
+            offset = start;
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = start;
+            while (count < limit && position < length) {
+                buffer.clear();
+                int n = channel.read(buffer, position);
+                if (n <= 0) {
+                    break;
+                }
+                for (int i = 0; i < n && count < limit; i++) {
+                    byte b = buffer.get(i);
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    String json = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                    line.reset();
+                    delivered = seqOf(json);
+                    offset = position + i + 1;
+                    count++;
+                    consumer.accept(new Event(delivered, json));
+                }
+                position += n;
+            }
+            // A line without its newline is still being appended; it is read next time
+        }
+        readSeq = delivered;
+        readOffset = offset;
+        span.end(count, offset - start);
+        Metrics.read(offset - start, count);
+        return delivered;
+    }
+
+    private static void write(StringWriter out, long seq, String time, Change change) throws IOException {
+        out.write("{\"seq\":" + seq + ",\"time\":\"" + time + "\",\"table\":\"" + change.table +
+                "\",\"op\":\"" + change.op + "\"");
+        if (change.key != null) {
+            out.write(",\"key\":\"");
+            DataExporter.writeJsonText(out, change.key);
+            out.write('"');
+        }
+        if (change.before != null) {
+            out.write(",\"before\":");
+            writeObject(out, change.columns, change.before);
+        }
+        if (change.after != null) {
+            out.write(",\"after\":");
+            writeObject(out, change.columns, change.after);
+        }
+        out.write("}\n");
+    }
+
+    private static void writeObject(StringWriter out, String[] columns, String[] values) throws IOException {
+        DataExporter.writeJson(out, columns, values);
+        out.getBuffer().setLength(out.getBuffer().length() - 1);
+    }
+
+    private static long seqOf(String json) throws IOException {
+        try {
+            return Long.parseLong(json.substring("{\"seq\":".length(), json.indexOf(',')));
+        } catch (RuntimeException e) {
+            throw new IOException("Not a change log event: " + json);
+        }
+    }
+
+    /**
+     * Cuts off a last line left without its newline by an append that was interrupted
+     */
+    private static long dropTornLine(FileChannel channel, long length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, length - 1);
+        if (last.get(0) == '\n') {
+            return length;
+        }
+        long end = lineStart(channel, length);
+        channel.truncate(end);
+        return end;
+    }
+
+    /**
+     * The line that ends with the newline just before end
+     */
+    private static String lineBefore(FileChannel channel, long end) throws IOException {
+        long start = lineStart(channel, end - 1);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - 1 - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+            // keep reading
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Position just after the last newline before pos, or 0
+     */
+    private static long lineStart(FileChannel channel, long pos) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (pos > 0) {
+            long from = Math.max(0, pos - buffer.capacity());
+            buffer.clear();
+            buffer.limit((int) (pos - from));
+            int n = channel.read(buffer, from);
+            for (int i = n - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            pos = from;
+        }
+        return 0;
+    }
+
+    /**
+     * Start of the first line that begins at or after pos, or length
+     */
+    private static long nextLineStart(FileChannel channel, long pos, long length) throws IOException {
+        if (pos == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (long at = pos - 1; at < length; ) {
+            buffer.clear();
+            int n = channel.read(buffer, at);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') {
+                    return at + i + 1;
+                }
+            }
+            at += n;
+        }
+        return length;
+    }
+
+    /**
+     * Start of the first line whose sequence number is greater than afterSeq. Sequence numbers
+     * grow with the position in the file, so this is a binary search over byte positions.
+     */
+    private static long offsetAfter(FileChannel channel, long length, long afterSeq) throws IOException {
+        if (afterSeq <= 0) {
+            return 0;
+        }
+        ByteBuffer head = ByteBuffer.allocate(32);
+        long lo = 0;
+        long hi = length;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            long start = nextLineStart(channel, mid, length);
+            boolean after = start >= length;
+            if (!after) {
+                head.clear();
+                int n = channel.read(head, start);
+                String text = new String(head.array(), 0, Math.max(n, 0), StandardCharsets.UTF_8);
+                after = text.indexOf(',') < 0 || seqOf(text) > afterSeq;
+            }
+            if (after) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return nextLineStart(channel, lo, length);
+    }
+}
+
+/**
+ * Result Cache - Keeps the text of recent "show" results keyed by operation and parameters, so
+ * pressing the same button again does not scan the files again. Bounded by the total size of the
+ * cached text; the least recently used result goes first. Before each lookup the cache reads
+ * the change log events it has not seen (including changes saved on other PCs) and drops just
+ * the results those changes can affect, e.g. a new milk reading for A7 only drops A7's milk list.
+ * When the record files change with no new event (edited by hand, an older copy of the app, or
+ * another PC's save landing after its event was read) every result is dropped.
+ */
+final class ResultCache {
+    interface Query {
+        String run() throws IOException;
+    }
+
+    private static final class Entry {
+        final String op;
+        final String[] params;
+        final String value;
+
+        Entry(String op, String[] params, String value) {
+            this.op = op;
+            this.params = params;
+            this.value = value;
+        }
+    }
+
+    // More unseen changes than this (e.g. after a big import) clear the cache instead of being replayed
+    private static final int MAX_REPLAY = 10000;
+
+    private final ChangeLog changeLog;
+    private final List<File> sources;
+    private final long maxChars;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long chars;
+    // Change log position the cached results are known to be current with
+    private long seenSeq;
+    private long seenLength = -1;
+    // Sizes and times of the record files when the change log was last read
+    private long seenVersion;
+    // Counts every drop of cached results, so a query that ran across one is not kept
+    private long generation;
+
+    ResultCache(ChangeLog changeLog, List<File> sources, long maxBytes) {
+        this.changeLog = changeLog;
+        this.sources = sources;
+        this.maxChars = maxBytes / 2;
+    }
+
+    /**
+     * The cached result for the operation and parameters, or the query's result (which is then cached)
+     */
+    String get(Query query, String op, String... params) throws IOException {
+        if (maxChars <= 0) {
+            return query.run();
+        }
+        String key = op + "\n" + String.join("\n", params);
+        long seq;
+        long started;
+        synchronized (this) {
+            catchUp();
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                Metrics.cacheHit("results");
+                return entry.value;
+            }
+            seq = seenSeq;
+            started = generation;
+        }
+        Metrics.cacheMiss("results");
+        String value = query.run();
+        synchronized (this) {
+            catchUp();
+            // A change saved or found while the query ran may not be in its result, so it is not kept
+            if (seenSeq == seq && generation == started && value.length() <= maxChars) {
+                Entry old = entries.put(key, new Entry(op, params, value));
+                chars += value.length() - (old == null ? 0 : old.value.length());
+                Iterator<Entry> eldest = entries.values().iterator();
+                while (chars > maxChars) {
+                    chars -= eldest.next().value.length();
+                    eldest.remove();
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drops every result of an operation, for changes that are not in the change log (archiving)
+     */
+    synchronized void drop(String op) {
+        generation++;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.op.equals(op)) {
+                chars -= entry.value.length();
+                it.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Approximate memory held by the cached text (two bytes per character)
+     */
+    synchronized long bytes() {
+        return chars * 2;
+    }
+
+    long maxBytes() {
+        return maxChars * 2;
+    }
+
+    private void catchUp() throws IOException {
+        long version = 0;
+        for (File source : sources) {
+            version += version(source);
+        }
+        long length = changeLog.file().length();
+        if (length == seenLength) {
+            if (version != seenVersion) {
+                clear();
+                seenVersion = version;
+            }
+            return;
+        }
+        seenVersion = version;
+        long last = changeLog.lastSeq();
+        if (seenLength < 0 || last - seenSeq > MAX_REPLAY) {
+            clear();
+            seenSeq = last;
+        } else {
+            seenSeq = changeLog.read(seenSeq, MAX_REPLAY, this::invalidate);
+        }
+        seenLength = length;
+    }
+
+    private void clear() {
+        generation++;
+        entries.clear();
+        chars = 0;
+    }
+
+    private static long version(File location) {
+        if (!location.isDirectory()) {
+            return location.length() * 31 + location.lastModified();
+        }
+        long version = location.lastModified();
+        File[] children = location.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                version += version(child);
+            }
+        }
+        return version;
+    }
+
+    private void invalidate(ChangeLog.Event event) {
+        generation++;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (affects(event, entry)) {
+                chars -= entry.value.length();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Whether a change can alter a cached result
+     */
+    private static boolean affects(ChangeLog.Event event, Entry entry) {
+        String table = event.table();
+        switch (entry.op) {
+            case "showAllAnimals":
+                return table.equals("animals");
+            case "showAnimalsByType":
+                return table.equals("animals") && (typeMatches(event.field("before", "animalType"), entry.params[0])
+                        || typeMatches(event.field("after", "animalType"), entry.params[0]));
+            case "showMilkRecordByAnimalId":
+                return table.equals("milk") && (entry.params[0].equals(event.field("before", "animalId"))
+                        || entry.params[0].equals(event.field("after", "animalId")));
+            case "showAllStaff":
+                return table.equals("staff");
+            case "showStaffByType":
+                return table.equals("staff") && (typeMatches(event.field("before", "staffType"), entry.params[0])
+                        || typeMatches(event.field("after", "staffType"), entry.params[0]));
+            default:
+                return true;
+        }
+    }
+
+    private static boolean typeMatches(String type, String query) {
+        return type != null && type.toLowerCase().contains(query.toLowerCase());
+    }
+}
+
+/**
+ * Slow Operation Log - One line for every Main operation slower than slowlog.thresholdMs
+ * (default 1000, negative turns it off) with its parameters, records scanned, bytes read and
+ * written, the indexes it used and where the time went. Written to slowlog.file (default
+ * slow_operations.log), which rolls over to .1, .2, ... at slowlog.maxKB (default 1024),
+ * keeping slowlog.files old files (default 5).
+ */
+final class SlowOperationLog {
+    private static final long THRESHOLD_NANOS = FarmConfig.getInt("slowlog.thresholdMs", 1000) * 1000000L;
+    private static final File FILE = new File(FarmConfig.get("slowlog.file", "slow_operations.log"));
+    private static final long MAX_BYTES = FarmConfig.getInt("slowlog.maxKB", 1024) * 1024L;
+    private static final int KEEP_FILES = FarmConfig.getInt("slowlog.files", 5);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final int MAX_PARAM_LENGTH = 80;
+
+    private SlowOperationLog() {
+    }
+
+    static void check(Metrics.Timer timer, long elapsedNanos) {
+        if (THRESHOLD_NANOS < 0 || elapsedNanos < THRESHOLD_NANOS) {
+            return;
+        }
+        try {
+            write(format(timer, elapsedNanos));
+        } catch (IOException e) {
+            System.out.println("Error writing slow operation log: " + e.getMessage());
+        }
+    }
+
+    static String format(Metrics.Timer timer, long elapsedNanos) {
+        StringBuilder line = new StringBuilder();
+        line.append(LocalDateTime.now().format(TIME)).append(" | ").append(timer.name()).append('(');
+        for (int i = 0; i < timer.params.length; i++) {
+            line.append(i == 0 ? "" : ", ").append(param(timer.params[i]));
+        }
+        line.append(") | ").append(millis(elapsedNanos))
+                .append(" | records ").append(timer.records)
+                .append(" | read ").append(timer.bytesRead).append(" B")
+                .append(" | written ").append(timer.bytesWritten).append(" B")
+                .append(" | indexes ").append(timer.indexes == null ? "none" : String.join(", ", timer.indexes))
+                .append(" | ");
+        long other = elapsedNanos;
+        if (timer.breakdown != null) {
+            for (Map.Entry<String, Long> part : timer.breakdown.entrySet()) {
+                line.append(part.getKey()).append(' ').append(millis(part.getValue())).append(", ");
+                other -= part.getValue();
+            }
+        }
+        line.append("other ").append(millis(Math.max(0, other)))
+                .append(" | thread ").append(Thread.currentThread().getName());
+        return line.toString();
+    }
+
+    private static String param(Object value) {
+        if (value instanceof Collection) {
+            return "[" + ((Collection<?>) value).size() + " item(s)]";
+        }
+        if (value instanceof CharSequence) {
+            String text = value.toString().replace("\n", " ");
+            return "\"" + (text.length() > MAX_PARAM_LENGTH ? text.substring(0, MAX_PARAM_LENGTH) + "..." : text) + "\"";
+        }
+        return String.valueOf(value);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+
+    private static synchronized void write(String line) throws IOException {
+        byte[] bytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        if (FILE.length() > 0 && FILE.length() + bytes.length > MAX_BYTES) {
+            rotate();
+        }
+        try (FileOutputStream out = new FileOutputStream(FILE, true)) {
+            out.write(bytes);
+        }
+    }
+
+    private static void rotate() throws IOException {
+        if (KEEP_FILES <= 0) {
+            Files.deleteIfExists(FILE.toPath());
+            return;
+        }
+        Files.deleteIfExists(new File(FILE.getPath() + "." + KEEP_FILES).toPath());
+        for (int i = KEEP_FILES - 1; i >= 1; i--) {
+            File older = new File(FILE.getPath() + "." + i);
+            if (older.exists()) {
+                Files.move(older.toPath(), new File(FILE.getPath() + "." + (i + 1)).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(FILE.toPath(), new File(FILE.getPath() + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
+
+/**
+ * Flight Events - Java Flight Recorder events for storage work (scans, appends, rewrites, index
+ * builds), aggregations, Main operations and slow Swing event dispatch. Start the app with
+ * java -XX:StartFlightRecording=filename=farm.jfr,settings=profile Main and open the file in
+ * JDK Mission Control; the events are under "Farm". Without a recording they cost next to nothing,
+ * and on a JVM without jdk.jfr they are skipped.
+ */
+final class FlightEvents {
+    private static final boolean AVAILABLE = available();
+    private static final OperationSpan NO_OPERATION = new OperationSpan();
+
+    private FlightEvents() {
+    }
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Storage or aggregation work in progress (see Metrics.begin); end() commits the event if it is being recorded
+     */
+    abstract static class Span {
+        abstract void end(long records, long bytes);
+    }
+
+    static class OperationSpan {
+        void end(long records, long bytesRead, long bytesWritten) {
+        }
+    }
+
+    /**
+     * Starts a storage event, or returns null on a JVM without Flight Recorder
+     */
+    static Span begin(String kind, String target) {
+        return AVAILABLE ? new RecordedSpan(kind, target) : null;
+    }
+
+    static OperationSpan beginOperation(String name) {
+        return AVAILABLE ? new RecordedOperation(name) : NO_OPERATION;
+    }
+
+    /**
+     * Times every event handled on the Swing event dispatch thread (call before the first window opens)
+     */
+    static void watchEventDispatch() {
+        if (AVAILABLE) {
+            Toolkit.getDefaultToolkit().getSystemEventQueue().push(new TimedEventQueue());
+        }
+    }
+
+    private static final class RecordedSpan extends Span {
+        private final StorageEvent event = new StorageEvent();
+
+        RecordedSpan(String kind, String target) {
+            event.kind = kind;
+            event.target = target;
+            event.begin();
+        }
+
+        @Override
+        void end(long records, long bytes) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = Metrics.currentOperation();
+                event.records = records;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    private static final class RecordedOperation extends OperationSpan {
+        private final OperationEvent event = new OperationEvent();
+
+        RecordedOperation(String name) {
+            event.name = name;
+            event.begin();
+        }
+
+        @Override
+        void end(long records, long bytesRead, long bytesWritten) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.records = records;
+                event.bytesRead = bytesRead;
+                event.bytesWritten = bytesWritten;
+                event.commit();
+            }
+        }
+    }
+
+    private static final class TimedEventQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent awtEvent) {
+            DispatchEvent event = new DispatchEvent();
+            event.begin();
+            try {
+                super.dispatchEvent(awtEvent);
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.eventType = awtEvent.getClass().getSimpleName();
+                    event.source = awtEvent.getSource() == null ? null : awtEvent.getSource().getClass().getSimpleName();
+                    if (awtEvent instanceof ActionEvent) {
+                        event.command = ((ActionEvent) awtEvent).getActionCommand();
+                    }
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    @jdk.jfr.Name("farm.Storage")
+    @jdk.jfr.Label("Storage Work")
+    @jdk.jfr.Category("Farm")
+    static final class StorageEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("Kind")
+        String kind;
+        @jdk.jfr.Label("File")
+        String target;
+        @jdk.jfr.Label("Operation")
+        String operation;
+        @jdk.jfr.Label("Records")
+        long records;
+        @jdk.jfr.Label("Bytes")
+        @jdk.jfr.DataAmount
+        long bytes;
+    }
+
+    @jdk.jfr.Name("farm.Operation")
+    @jdk.jfr.Label("Farm Operation")
+    @jdk.jfr.Category("Farm")
+    @jdk.jfr.StackTrace(false)
+    static final class OperationEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("Operation")
+        String name;
+        @jdk.jfr.Label("Records")
+        long records;
+        @jdk.jfr.Label("Bytes Read")
+        @jdk.jfr.DataAmount
+        long bytesRead;
+        @jdk.jfr.Label("Bytes Written")
+        @jdk.jfr.DataAmount
+        long bytesWritten;
+    }
+
+    @jdk.jfr.Name("farm.EventDispatch")
+    @jdk.jfr.Label("Swing Event Dispatch")
+    @jdk.jfr.Category("Farm")
+    @jdk.jfr.Threshold("20 ms")
+    static final class DispatchEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("Event Type")
+        String eventType;
+        @jdk.jfr.Label("Source")
+        String source;
+        @jdk.jfr.Label("Action Command")
+        String command;
+    }
+}
+
+// ==================== GUI CLASSES ====================
+
+/**
+ * Main GUI Entry Point - Animal Record System
+ * Provides role selection interface
+ */
+class MainGUI extends JFrame {
+    private Main mainSystem;
+
+    public MainGUI() {
+        mainSystem = new Main();
+        MetricsExporter.startConfigured(mainSystem);
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setTitle("Animal Record System");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(500, 400);
+        setLocationRelativeTo(null);
+        setResizable(true);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(50, 50, 50, 50));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JLabel titleLabel = new JLabel("Welcome to the Animal Record System", JLabel.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(20, 0, 40, 0));
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        JPanel buttonPanel = new JPanel(new GridLayout(3, 1, 15, 15));
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(20, 50, 20, 50));
+
+        JButton staffButton = new JButton("Staff");
+        staffButton.setFont(new Font("Arial", Font.PLAIN, 18));
+        staffButton.setPreferredSize(new Dimension(200, 60));
+        staffButton.setBackground(new Color(70, 130, 180));
+        staffButton.setForeground(Color.black);
+        staffButton.setFocusPainted(false);
+        staffButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openStaffLogin();
+            }
+        });
+
+        JButton ownerButton = new JButton("Owner");
+        ownerButton.setFont(new Font("Arial", Font.PLAIN, 18));
+        ownerButton.setPreferredSize(new Dimension(200, 60));
+        ownerButton.setBackground(new Color(34, 139, 34));
+        ownerButton.setForeground(Color.black);
+        ownerButton.setFocusPainted(false);
+        ownerButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openOwnerLogin();
+            }
+        });
+
+        JButton exitButton = new JButton("Exit");
+        exitButton.setFont(new Font("Arial", Font.PLAIN, 18));
+        exitButton.setPreferredSize(new Dimension(200, 60));
+        exitButton.setBackground(new Color(220, 20, 60));
+        exitButton.setForeground(Color.black);
+        exitButton.setFocusPainted(false);
+        exitButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                System.exit(0);
+            }
+        });
+
+        buttonPanel.add(staffButton);
+        buttonPanel.add(ownerButton);
+        buttonPanel.add(exitButton);
+        mainPanel.add(buttonPanel, BorderLayout.CENTER);
+        add(mainPanel);
+    }
+
+    private void openStaffLogin() {
+        StaffLoginGUI staffLoginGUI = new StaffLoginGUI(this, mainSystem);
+        staffLoginGUI.setVisible(true);
+    }
+
+    private void openOwnerLogin() {
+        OwnerLoginGUI ownerLoginGUI = new OwnerLoginGUI(this, mainSystem);
+        ownerLoginGUI.setVisible(true);
+    }
+}
+
+/**
+ * Staff Login GUI - Handles staff signup and login
+ */
+class StaffLoginGUI extends JDialog {
+    private Main mainSystem;
+    private JTextField usernameField;
+    private JPasswordField passwordField;
+    private boolean loginSuccessful = false;
+
+    public StaffLoginGUI(Frame parent, Main mainSystem) {
+        super(parent, "Staff Login", true);
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(450, 350);
+        setLocationRelativeTo(getParent());
+        setResizable(false);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JLabel titleLabel = new JLabel("Welcome Staff", JLabel.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBackground(new Color(240, 248, 255));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        JLabel usernameLabel = new JLabel("Username:");
+        usernameLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        formPanel.add(usernameLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        usernameField = new JTextField(20);
+        usernameField.setFont(new Font("Arial", Font.PLAIN, 14));
+        formPanel.add(usernameField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        JLabel passwordLabel = new JLabel("Password:");
+        passwordLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        formPanel.add(passwordLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        passwordField = new JPasswordField(20);
+        passwordField.setFont(new Font("Arial", Font.PLAIN, 14));
+        formPanel.add(passwordField, gbc);
+
+        mainPanel.add(formPanel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+
+        JButton signUpButton = new JButton("Sign Up");
+        signUpButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        signUpButton.setPreferredSize(new Dimension(100, 35));
+        signUpButton.setBackground(new Color(70, 130, 180));
+        signUpButton.setForeground(Color.black);
+        signUpButton.setFocusPainted(false);
+        signUpButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleSignUp();
+            }
+        });
+
+        JButton loginButton = new JButton("Login");
+        loginButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        loginButton.setPreferredSize(new Dimension(100, 35));
+        loginButton.setBackground(new Color(34, 139, 34));
+        loginButton.setForeground(Color.black);
+        loginButton.setFocusPainted(false);
+        loginButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleLogin();
+            }
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        cancelButton.setPreferredSize(new Dimension(100, 35));
+        cancelButton.setBackground(new Color(220, 20, 60));
+        cancelButton.setForeground(Color.black);
+        cancelButton.setFocusPainted(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+
+        buttonPanel.add(signUpButton);
+        buttonPanel.add(loginButton);
+        buttonPanel.add(cancelButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+    }
+
+    private void handleSignUp() {
+        String username = usernameField.getText().trim();
+        String password = new String(passwordField.getPassword());
+
+        if (username.isEmpty() || password.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter both username and password.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (username.contains(",")) {
+            JOptionPane.showMessageDialog(this, "Username cannot contain a comma.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        try {
+            if (mainSystem.staffSignUpGUI(username, password)) {
+                JOptionPane.showMessageDialog(this, "Sign up successfully! Please login now.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                passwordField.setText("");
+            } else {
+                JOptionPane.showMessageDialog(this, "Staff already exists, try another username.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void handleLogin() {
+        String username = usernameField.getText().trim();
+        String password = new String(passwordField.getPassword());
+
+        if (username.isEmpty() || password.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter both username and password.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        try {
+            if (mainSystem.staffLoginGUI(username, password)) {
+                loginSuccessful = true;
+                JOptionPane.showMessageDialog(this, "Login successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                dispose();
+                StaffDashboardGUI dashboard = new StaffDashboardGUI((JFrame) getParent(), mainSystem);
+                dashboard.setVisible(true);
+            } else {
+                JOptionPane.showMessageDialog(this, "Incorrect username or password.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    public boolean isLoginSuccessful() {
+        return loginSuccessful;
+    }
+}
+
+/**
+ * Owner Login GUI - Handles owner login
+ */
+class OwnerLoginGUI extends JDialog {
+    private Main mainSystem;
+    private JTextField usernameField;
+    private JPasswordField passwordField;
+    private boolean loginSuccessful = false;
+
+    public OwnerLoginGUI(Frame parent, Main mainSystem) {
+        super(parent, "Owner Login", true);
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(450, 300);
+        setLocationRelativeTo(getParent());
+        setResizable(false);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JLabel titleLabel = new JLabel("Welcome Owner", JLabel.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBackground(new Color(240, 248, 255));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(10, 10, 10, 10);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        JLabel usernameLabel = new JLabel("Username:");
+        usernameLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        formPanel.add(usernameLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        usernameField = new JTextField(20);
+        usernameField.setFont(new Font("Arial", Font.PLAIN, 14));
+        formPanel.add(usernameField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        JLabel passwordLabel = new JLabel("Password:");
+        passwordLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        formPanel.add(passwordLabel, gbc);
+
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        passwordField = new JPasswordField(20);
+        passwordField.setFont(new Font("Arial", Font.PLAIN, 14));
+        formPanel.add(passwordField, gbc);
+
+        mainPanel.add(formPanel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+
+        JButton loginButton = new JButton("Login");
+        loginButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        loginButton.setPreferredSize(new Dimension(100, 35));
+        loginButton.setBackground(new Color(34, 139, 34));
+        loginButton.setForeground(Color.black);
+        loginButton.setFocusPainted(false);
+        loginButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleLogin();
+            }
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        cancelButton.setPreferredSize(new Dimension(100, 35));
+        cancelButton.setBackground(new Color(220, 20, 60));
+        cancelButton.setForeground(Color.black);
+        cancelButton.setFocusPainted(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+
+        buttonPanel.add(loginButton);
+        buttonPanel.add(cancelButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+    }
+
+    private void handleLogin() {
+        String username = usernameField.getText().trim();
+        String password = new String(passwordField.getPassword());
+
+        if (username.isEmpty() || password.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter both username and password.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        try {
+            if (mainSystem.ownerLoginGUI(username, password)) {
+                loginSuccessful = true;
+                JOptionPane.showMessageDialog(this, "Login successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                dispose();
+                OwnerDashboardGUI dashboard = new OwnerDashboardGUI((JFrame) getParent(), mainSystem);
+                dashboard.setVisible(true);
+            } else {
+                JOptionPane.showMessageDialog(this, "Incorrect username or password.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    public boolean isLoginSuccessful() {
+        return loginSuccessful;
+    }
+}
+
+/**
+ * Staff Dashboard GUI - Main interface for staff operations
+ */
+class StaffDashboardGUI extends JFrame {
+    private Main mainSystem;
+    private JTextArea outputArea;
+
+    public StaffDashboardGUI(JFrame parent, Main mainSystem) {
+        super("Staff Dashboard");
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(800, 700);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        mainPanel.setBackground(new Color(40, 99, 148));
+
+        JLabel titleLabel = new JLabel("Staff Menu", JLabel.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 22));
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        JPanel buttonPanel = new JPanel(new GridLayout(5, 2, 10, 10));
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        buttonPanel.setBackground(new Color(0, 0, 0));
+
+        createButton(buttonPanel, "1. Add Animal", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAddAnimalDialog();
+            }
+        });
+
+        createButton(buttonPanel, "2. Search Animal", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showSearchAnimalDialog();
+            }
+        });
+
+        createButton(buttonPanel, "3. Add Your Profile", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAddProfileDialog();
+            }
+        });
+
+        createButton(buttonPanel, "4. See Your Profile", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showSeeProfileDialog();
+            }
+        });
+
+        createButton(buttonPanel, "5. Show Animals by Type", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAnimalsByTypeDialog();
+            }
+        });
+
+        createButton(buttonPanel, "6. Add Milk Record", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAddMilkRecordDialog();
+            }
+        });
+
+        createButton(buttonPanel, "7. Show Milk Record by Animal ID", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showMilkRecordByAnimalIdDialog();
+            }
+        });
+
+        createButton(buttonPanel, "8. Show All Animal Records", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAllAnimalsDialog();
+            }
+        });
+
+        createButton(buttonPanel, "9. Edit Animal", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showEditAnimalDialog();
+            }
+        });
+
+        createButton(buttonPanel, "10. Batch Milk Entry", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showMilkBatchDialog();
+            }
+        });
+
+        mainPanel.add(buttonPanel, BorderLayout.CENTER);
+
+        outputArea = new JTextArea(10, 50);
+        outputArea.setEditable(false);
+        outputArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        outputArea.setBackground(Color.white);
+        LiveUpdates.attach(this, mainSystem, outputArea);
+        JScrollPane scrollPane = new JScrollPane(outputArea);
+        scrollPane.setBorder(BorderFactory.createTitledBorder("Output"));
+        scrollPane.setPreferredSize(new Dimension(0, 150));
+        mainPanel.add(scrollPane, BorderLayout.SOUTH);
+
+        JPanel exitPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        exitPanel.setBackground(new Color(240, 248, 255));
+        JButton exitButton = new JButton("Exit");
+        exitButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        exitButton.setPreferredSize(new Dimension(100, 35));
+        exitButton.setBackground(new Color(220, 20, 60));
+        exitButton.setForeground(Color.black);
+        exitButton.setFocusPainted(false);
+        exitButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                System.exit(0);
+            }
+        });
+        exitPanel.add(exitButton);
+
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(scrollPane, BorderLayout.CENTER);
+        southPanel.add(exitPanel, BorderLayout.SOUTH);
+        mainPanel.add(southPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+    }
+
+    private void createButton(JPanel panel, String text, ActionListener listener) {
+        JButton button = new JButton(text);
+        button.setFont(new Font("Arial", Font.PLAIN, 14));
+        button.setPreferredSize(new Dimension(200, 50));
+        button.setBackground(new Color(70, 130, 180));
+        button.setForeground(Color.black);
+        button.setFocusPainted(false);
+        button.addActionListener(listener);
+        panel.add(button);
+    }
+
+    private void showAddAnimalDialog() {
+        AddAnimalDialog dialog = new AddAnimalDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.isSuccess()) {
+            outputArea.append("Animal record added successfully.\n");
+        }
+    }
+
+    private void showMilkBatchDialog() {
+        MilkBatchDialog dialog = new MilkBatchDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.getResult() != null) {
+            outputArea.append(dialog.getResult() + "\n");
+        }
+    }
+
+    private void showEditAnimalDialog() {
+        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to edit:", "Edit Animal", JOptionPane.QUESTION_MESSAGE);
+        if (animalId != null && !animalId.trim().isEmpty()) {
+            try {
+                AnimalRecord record = mainSystem.getAnimalGUI(animalId);
+                if (record == null) {
+                    JOptionPane.showMessageDialog(this, "Animal ID not found.", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                AddAnimalDialog dialog = new AddAnimalDialog(this, mainSystem, record);
+                dialog.setVisible(true);
+                if (dialog.isSuccess()) {
+                    outputArea.append("Animal record updated successfully.\n");
+                }
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showSearchAnimalDialog() {
+        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to search:", "Search Animal", JOptionPane.QUESTION_MESSAGE);
+        if (animalId != null && !animalId.trim().isEmpty()) {
+            try {
+                String result = mainSystem.searchAnimalGUI(animalId.trim());
+                outputArea.append(result + "\n");
+                DisplayDialog.showResult(this, "Search Result", result);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showAddProfileDialog() {
+        AddProfileDialog dialog = new AddProfileDialog(this, mainSystem, mainSystem.getCurrentStaffUsername());
+        dialog.setVisible(true);
+        if (dialog.isSuccess()) {
+            outputArea.append("Your profile has been saved.\n");
+        }
+    }
+
+    private void showSeeProfileDialog() {
+        try {
+            String result = mainSystem.seeStaffProfileGUI(mainSystem.getCurrentStaffUsername());
+            outputArea.append(result + "\n");
+            DisplayDialog.showResult(this, "Your Staff Profile", result);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showAnimalsByTypeDialog() {
+        String type = JOptionPane.showInputDialog(this, "Enter animal type to list (e.g., cow, goat):", "Show Animals by Type", JOptionPane.QUESTION_MESSAGE);
+        if (type != null && !type.trim().isEmpty()) {
+            try {
+                String result = mainSystem.showAnimalsByTypeGUI(type.trim());
+                outputArea.append(result + "\n");
+                DisplayDialog.showResult(this, "Animals by Type", result);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showAddMilkRecordDialog() {
+        AddMilkRecordDialog dialog = new AddMilkRecordDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.isSuccess()) {
+            outputArea.append("Milk record added.\n");
+        }
+    }
+
+    private void showMilkRecordByAnimalIdDialog() {
+        JCheckBox includeArchive = new JCheckBox("Include archived records");
+        Object message = new Object[]{"Enter Animal ID to show milk records:", includeArchive};
+        String animalId = JOptionPane.showInputDialog(this, message, "Milk Records", JOptionPane.QUESTION_MESSAGE);
+        if (animalId != null && !animalId.trim().isEmpty()) {
+            try {
+                String result = mainSystem.showMilkRecordByAnimalIdGUI(animalId.trim(), includeArchive.isSelected());
+                outputArea.append(result + "\n");
+                DisplayDialog.showResult(this, "Milk Records", result);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showAllAnimalsDialog() {
+        try {
+            String result = mainSystem.showAllAnimalsGUI();
+            outputArea.append(result + "\n");
+            DisplayDialog.showResult(this, "All Animal Records", result);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
+
+/**
+ * Owner Dashboard GUI - Main interface for owner operations
+ */
+class OwnerDashboardGUI extends JFrame {
+    private Main mainSystem;
+    private JTextArea outputArea;
+
+    public OwnerDashboardGUI(JFrame parent, Main mainSystem) {
+        super("Owner Dashboard");
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(900, 800);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JLabel titleLabel = new JLabel("Owner Menu", JLabel.CENTER);
+        titleLabel.setFont(new Font("Arial", Font.BOLD, 22));
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        JPanel buttonPanel = new JPanel(new GridLayout(12, 2, 10, 10));
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+
+        createButton(buttonPanel, "1. Add Animal", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAddAnimalDialog();
+            }
+        });
+
+        createButton(buttonPanel, "2. Search Animal", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showSearchAnimalDialog();
+            }
+        });
+
+        createButton(buttonPanel, "3. Delete Animal", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showDeleteAnimalDialog();
+            }
+        });
+
+        createButton(buttonPanel, "4. Add Staff", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAddStaffDialog();
+            }
+        });
+
+        createButton(buttonPanel, "5. Show All Staff", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAllStaffDialog();
+            }
+        });
+
+        createButton(buttonPanel, "6. Search Staff", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showSearchStaffDialog();
+            }
+        });
+
+        createButton(buttonPanel, "7. Remove Staff", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showRemoveStaffDialog();
+            }
+        });
+
+        createButton(buttonPanel, "8. Show Animals by Type", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAnimalsByTypeDialog();
+            }
+        });
+
+        createButton(buttonPanel, "9. Show Staff by Type", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showStaffByTypeDialog();
+            }
+        });
+
+        createButton(buttonPanel, "10. Add Milk Record", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAddMilkRecordDialog();
+            }
+        });
+
+        createButton(buttonPanel, "11. Calculate Daily Milk Price", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showCalculateDailyMilkPriceDialog();
+            }
+        });
+
+        createButton(buttonPanel, "12. Show All Animal Records", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showAllAnimalsDialog();
+            }
+        });
+
+        createButton(buttonPanel, "13. Archive Old Milk Records", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showArchiveMilkRecordsDialog();
+            }
+        });
+
+        createButton(buttonPanel, "14. Show Daily Summaries", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showDailySummariesDialog();
+            }
+        });
+
+        createButton(buttonPanel, "15. Set Milk Price", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showSetMilkPriceDialog();
+            }
+        });
+
+        createButton(buttonPanel, "16. Revenue Report", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showRevenueReportDialog();
+            }
+        });
+
+        createButton(buttonPanel, "17. Milk Reports", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showMilkReportDialog();
+            }
+        });
+
+        createButton(buttonPanel, "18. Edit Animal", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showEditAnimalDialog();
+            }
+        });
+
+        createButton(buttonPanel, "19. Bulk Herd Operations", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showBulkHerdDialog();
+            }
+        });
+
+        createButton(buttonPanel, "20. Batch Milk Entry", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showMilkBatchDialog();
+            }
+        });
+
+        createButton(buttonPanel, "21. Import CSV", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showImportCsvDialog();
+            }
+        });
+
+        createButton(buttonPanel, "22. Export Data", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showExportDialog();
+            }
+        });
+
+        createButton(buttonPanel, "23. Performance", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                new PerformanceDialog(OwnerDashboardGUI.this, mainSystem).setVisible(true);
+            }
+        });
+
+        createButton(buttonPanel, "24. Exit", new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                System.exit(0);
+            }
+        });
+
+        mainPanel.add(buttonPanel, BorderLayout.CENTER);
+
+        outputArea = new JTextArea(10, 50);
+        outputArea.setEditable(false);
+        outputArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        outputArea.setBackground(Color.WHITE);
+        LiveUpdates.attach(this, mainSystem, outputArea);
+        JScrollPane scrollPane = new JScrollPane(outputArea);
+        scrollPane.setBorder(BorderFactory.createTitledBorder("Output"));
+        scrollPane.setPreferredSize(new Dimension(0, 150));
+        mainPanel.add(scrollPane, BorderLayout.SOUTH);
+        add(mainPanel);
+    }
+
+    private void createButton(JPanel panel, String text, ActionListener listener) {
+        JButton button = new JButton(text);
+        button.setFont(new Font("Arial", Font.PLAIN, 13));
+        button.setPreferredSize(new Dimension(200, 45));
+        button.setBackground(new Color(34, 139, 34));
+        button.setForeground(Color.black);
+        button.setFocusPainted(false);
+        button.addActionListener(listener);
+        panel.add(button);
+    }
+
+    private void showAddAnimalDialog() {
+        AddAnimalDialog dialog = new AddAnimalDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.isSuccess()) {
+            outputArea.append("Animal record added successfully.\n");
+        }
+    }
+
+    private void showMilkBatchDialog() {
+        MilkBatchDialog dialog = new MilkBatchDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.getResult() != null) {
+            outputArea.append(dialog.getResult() + "\n");
+        }
+    }
+
+    private void showEditAnimalDialog() {
+        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to edit:", "Edit Animal", JOptionPane.QUESTION_MESSAGE);
+        if (animalId != null && !animalId.trim().isEmpty()) {
+            try {
+                AnimalRecord record = mainSystem.getAnimalGUI(animalId);
+                if (record == null) {
+                    JOptionPane.showMessageDialog(this, "Animal ID not found.", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                AddAnimalDialog dialog = new AddAnimalDialog(this, mainSystem, record);
+                dialog.setVisible(true);
+                if (dialog.isSuccess()) {
+                    outputArea.append("Animal record updated successfully.\n");
+                }
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showSearchAnimalDialog() {
+        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to search:", "Search Animal", JOptionPane.QUESTION_MESSAGE);
+        if (animalId != null && !animalId.trim().isEmpty()) {
+            try {
+                String result = mainSystem.searchAnimalGUI(animalId.trim());
+                outputArea.append(result + "\n");
+                DisplayDialog.showResult(this, "Search Result", result);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showDeleteAnimalDialog() {
+        String animalId = JOptionPane.showInputDialog(this, "Enter Animal ID to delete:", "Delete Animal", JOptionPane.QUESTION_MESSAGE);
+        if (animalId != null && !animalId.trim().isEmpty()) {
+            try {
+                String result = mainSystem.deleteAnimalGUI(animalId.trim());
+                outputArea.append(result + "\n");
+                JOptionPane.showMessageDialog(this, result, "Delete Animal", JOptionPane.INFORMATION_MESSAGE);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showAddStaffDialog() {
+        AddStaffDialog dialog = new AddStaffDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.isSuccess()) {
+            outputArea.append("Staff record added successfully.\n");
+        }
+    }
+
+    private void showAllStaffDialog() {
+        try {
+            String result = mainSystem.showAllStaffGUI();
+            outputArea.append(result + "\n");
+            DisplayDialog.showResult(this, "All Staff Records", result);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showSearchStaffDialog() {
+        String keyword = JOptionPane.showInputDialog(this, "Enter Staff Name or ID to search:", "Search Staff", JOptionPane.QUESTION_MESSAGE);
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            try {
+                String result = mainSystem.searchStaffGUI(keyword.trim());
+                outputArea.append(result + "\n");
+                DisplayDialog.showResult(this, "Search Result", result);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showRemoveStaffDialog() {
+        String name = JOptionPane.showInputDialog(this, "Enter Staff Name to remove:", "Remove Staff", JOptionPane.QUESTION_MESSAGE);
+        if (name != null && !name.trim().isEmpty()) {
+            try {
+                String result = mainSystem.removeStaffGUI(name.trim());
+                outputArea.append(result + "\n");
+                JOptionPane.showMessageDialog(this, result, "Remove Staff", JOptionPane.INFORMATION_MESSAGE);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showAnimalsByTypeDialog() {
+        String type = JOptionPane.showInputDialog(this, "Enter animal type to list (e.g., cow, goat):", "Show Animals by Type", JOptionPane.QUESTION_MESSAGE);
+        if (type != null && !type.trim().isEmpty()) {
+            try {
+                String result = mainSystem.showAnimalsByTypeGUI(type.trim());
+                outputArea.append(result + "\n");
+                DisplayDialog.showResult(this, "Animals by Type", result);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showStaffByTypeDialog() {
+        String type = JOptionPane.showInputDialog(this, "Enter staff type to list (e.g., doctor, milkman):", "Show Staff by Type", JOptionPane.QUESTION_MESSAGE);
+        if (type != null && !type.trim().isEmpty()) {
+            try {
+                String result = mainSystem.showStaffByTypeGUI(type.trim());
+                outputArea.append(result + "\n");
+                DisplayDialog.showResult(this, "Staff by Type", result);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showAddMilkRecordDialog() {
+        AddMilkRecordDialog dialog = new AddMilkRecordDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.isSuccess()) {
+            outputArea.append("Milk record added.\n");
+        }
+    }
+
+    private void showCalculateDailyMilkPriceDialog() {
+        JCheckBox includeArchive = new JCheckBox("Include archived records");
+        Object message = new Object[]{"Enter date to calculate (DD-MM-YYYY):", includeArchive};
+        String date = JOptionPane.showInputDialog(this, message, "Calculate Daily Milk Price", JOptionPane.QUESTION_MESSAGE);
+        if (date != null && !date.trim().isEmpty()) {
+            Double scheduled = null;
+            try {
+                scheduled = mainSystem.getScheduledPriceGUI(date.trim());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+            String priceStr = (String) JOptionPane.showInputDialog(this, "Enter 1 liter milk price:", "Calculate Daily Milk Price",
+                    JOptionPane.QUESTION_MESSAGE, null, null, scheduled == null ? "" : String.valueOf(scheduled));
+            if (priceStr != null && !priceStr.trim().isEmpty()) {
+                try {
+                    double pricePerLiter = Double.parseDouble(priceStr.trim());
+                    String result = mainSystem.calculateDailyMilkPriceGUI(date.trim(), pricePerLiter, includeArchive.isSelected());
+                    outputArea.append(result + "\n");
+                    DisplayDialog.showResult(this, "Daily Milk Price Calculation", result);
+                } catch (NumberFormatException e) {
+                    JOptionPane.showMessageDialog(this, "Invalid price format.", "Error", JOptionPane.ERROR_MESSAGE);
+                } catch (IOException e) {
+                    JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+    }
+
+    private void showAllAnimalsDialog() {
+        try {
+            String result = mainSystem.showAllAnimalsGUI();
+            outputArea.append(result + "\n");
+            DisplayDialog.showResult(this, "All Animal Records", result);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showSetMilkPriceDialog() {
+        try {
+            String schedule = mainSystem.showPriceScheduleGUI();
+            String date = (String) JOptionPane.showInputDialog(this, schedule + "\n\nPrice effective from (DD-MM-YYYY):", "Set Milk Price",
+                    JOptionPane.QUESTION_MESSAGE, null, null, FarmDates.format(LocalDate.now()));
+            if (date == null || date.trim().isEmpty()) {
+                return;
+            }
+            String priceStr = JOptionPane.showInputDialog(this, "Enter 1 liter milk price:", "Set Milk Price", JOptionPane.QUESTION_MESSAGE);
+            if (priceStr == null || priceStr.trim().isEmpty()) {
+                return;
+            }
+            String result = mainSystem.setMilkPriceGUI(date.trim(), Double.parseDouble(priceStr.trim()));
+            outputArea.append(result + "\n");
+            JOptionPane.showMessageDialog(this, result, "Set Milk Price", JOptionPane.INFORMATION_MESSAGE);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Invalid price format.", "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showRevenueReportDialog() {
+        RevenueReportDialog dialog = new RevenueReportDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.getResult() != null) {
+            outputArea.append(dialog.getResult() + "\n");
+            DisplayDialog.showResult(this, "Revenue Report", dialog.getResult());
+        }
+    }
+
+    private void showBulkHerdDialog() {
+        BulkHerdDialog dialog = new BulkHerdDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.getResult() != null) {
+            outputArea.append(dialog.getResult() + "\n");
+            DisplayDialog.showResult(this, "Bulk Herd Operations", dialog.getResult());
+        }
+    }
+
+    private void showImportCsvDialog() {
+        JComboBox<CsvImporter.Kind> kindCombo = new JComboBox<>(CsvImporter.Kind.values());
+        Object[] message = {"Import:", kindCombo};
+        int option = JOptionPane.showConfirmDialog(this, message, "Import CSV", JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        CsvImporter.Kind kind = (CsvImporter.Kind) kindCombo.getSelectedItem();
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setDialogTitle("Choose CSV file (header: " + String.join(",", kind.columns) + ")");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        ImportCsvDialog dialog = new ImportCsvDialog(this, mainSystem, kind, chooser.getSelectedFile());
+        dialog.setVisible(true);
+        if (dialog.getResult() != null) {
+            outputArea.append(dialog.getResult() + "\n");
+            DisplayDialog.showResult(this, "Import CSV", dialog.getResult());
+        }
+    }
+
+    private void showExportDialog() {
+        ExportDialog dialog = new ExportDialog(this, mainSystem);
+        dialog.setVisible(true);
+        if (dialog.getResult() != null) {
+            outputArea.append(dialog.getResult() + "\n");
+            JOptionPane.showMessageDialog(this, dialog.getResult(), "Export Data", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    private void showMilkReportDialog() {
+        JComboBox<JoinEngine.GroupBy> groupByCombo = new JComboBox<>(JoinEngine.GroupBy.values());
+        JTextField fromField = new JTextField(FarmDates.format(LocalDate.now().withDayOfMonth(1)));
+        JTextField toField = new JTextField(FarmDates.format(LocalDate.now()));
+        JCheckBox includeArchive = new JCheckBox("Include archived records");
+        Object[] message = {"Group milk by:", groupByCombo, "From (DD-MM-YYYY, blank for all):", fromField,
+                "To (DD-MM-YYYY, blank for all):", toField, includeArchive};
+        int option = JOptionPane.showConfirmDialog(this, message, "Milk Reports", JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (option == JOptionPane.OK_OPTION) {
+            try {
+                String result = mainSystem.milkReportGUI((JoinEngine.GroupBy) groupByCombo.getSelectedItem(),
+                        fromField.getText(), toField.getText(), includeArchive.isSelected());
+                outputArea.append(result + "\n");
+                DisplayDialog.showResult(this, "Milk Reports", result);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void showDailySummariesDialog() {
+        try {
+            String result = mainSystem.showDailySummariesGUI();
+            outputArea.append(result + "\n");
+            DisplayDialog.showResult(this, "Daily Summaries", result);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showArchiveMilkRecordsDialog() {
+        int configured = mainSystem.getMilkRetentionDays();
+        String days = (String) JOptionPane.showInputDialog(this, "Archive milk records older than how many days?", "Archive Old Milk Records",
+                JOptionPane.QUESTION_MESSAGE, null, null, configured > 0 ? String.valueOf(configured) : "365");
+        if (days != null && !days.trim().isEmpty()) {
+            try {
+                String result = mainSystem.archiveOldMilkRecordsGUI(Integer.parseInt(days.trim()));
+                outputArea.append(result + "\n");
+                JOptionPane.showMessageDialog(this, result, "Archive Old Milk Records", JOptionPane.INFORMATION_MESSAGE);
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this, "Invalid number of days.", "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+}
+
+/**
+ * Live Updates - Posts change feed notices to a dashboard's output area while the dashboard is open
+ */
+class LiveUpdates implements ChangeFeed.Listener {
+    private final Main mainSystem;
+    private final ChangeFeed feed;
+    private final JTextArea outputArea;
+
+    private LiveUpdates(Main mainSystem, ChangeFeed feed, JTextArea outputArea) {
+        this.mainSystem = mainSystem;
+        this.feed = feed;
+        this.outputArea = outputArea;
+    }
+
+    static void attach(JFrame frame, Main mainSystem, JTextArea outputArea) {
+        final ChangeFeed feed = mainSystem.getChangeFeedGUI();
+        if (feed == null) {
+            return;
+        }
+        final LiveUpdates listener = new LiveUpdates(mainSystem, feed, outputArea);
+        feed.addListener(listener);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                feed.removeListener(listener);
+            }
+        });
+    }
+
+    @Override
+    public void milkAdded(List<MilkReading> readings) {
+        Set<String> dates = new TreeSet<>();
+        for (MilkReading reading : readings) {
+            dates.add(reading.date);
+        }
+        StringBuilder text = new StringBuilder();
+        text.append("Live: ").append(readings.size()).append(" new milk reading(s)\n");
+        for (String date : dates) {
+            double[] total = feed.dayTotal(date);
+            text.append(String.format("  %s so far: %.2f liters from %d reading(s)%n", date, total[0], (long) total[1]));
+        }
+        post(text.toString());
+    }
+
+    @Override
+    public void animalsChanged() {
+        // The store only reads the appended blocks, so this stays cheap on a large record file
+        try {
+            int count = mainSystem.getAnimalCountGUI();
+            post("Live: animal records changed, " + count + " animal(s) on file\n");
+        } catch (IOException e) {
+            System.out.println("Error reading animal records: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void fileChanged(File file) {
+        post("Live: " + file.getName() + " changed\n");
+    }
+
+    private void post(final String text) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                outputArea.append(text);
+            }
+        });
+    }
+}
+
+/**
+ * Display Dialog - Helper class for displaying results in a scrollable text area
+ */
+class DisplayDialog extends JDialog {
+    public DisplayDialog(Frame parent, String title, String content) {
+        super(parent, title, true);
+        initializeGUI(content);
+    }
+
+    private void initializeGUI(String content) {
+        setSize(700, 500);
+        setLocationRelativeTo(getParent());
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JTextArea textArea = new JTextArea(content);
+        textArea.setEditable(false);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        textArea.setBackground(Color.WHITE);
+        textArea.setWrapStyleWord(true);
+        textArea.setLineWrap(true);
+
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        mainPanel.add(scrollPane, BorderLayout.CENTER);
+
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        closeButton.setPreferredSize(new Dimension(100, 35));
+        closeButton.setBackground(new Color(70, 130, 180));
+        closeButton.setForeground(Color.black);
+        closeButton.setFocusPainted(false);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        buttonPanel.add(closeButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+    }
+
+    public static void showResult(Component parent, String title, String content) {
+        DisplayDialog dialog = new DisplayDialog((Frame) SwingUtilities.getWindowAncestor(parent), title, content);
+        dialog.setVisible(true);
+    }
+}
+
+/**
+ * Add Animal Dialog - Form for adding animal records
+ */
+class AddAnimalDialog extends JDialog {
+    private Main mainSystem;
+    private boolean success = false;
+    private JTextField animalIdField, ageField, purchaseDateField, feedTypeField, feedTimesField, animalTypeField;
+    private JComboBox<String> genderCombo, vaccinatedCombo;
+    private AnimalRecord editing;
+
+    public AddAnimalDialog(Frame parent, Main mainSystem) {
+        super(parent, "Add Animal Record", true);
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    /**
+     * Edit mode - fields are filled from an existing record and the Animal ID is fixed
+     */
+    public AddAnimalDialog(Frame parent, Main mainSystem, AnimalRecord editing) {
+        super(parent, "Edit Animal Record", true);
+        this.mainSystem = mainSystem;
+        this.editing = editing;
+        initializeGUI();
+        animalIdField.setText(editing.animalId);
+        animalIdField.setEditable(false);
+        ageField.setText(editing.age);
+        genderCombo.setSelectedItem(editing.gender);
+        purchaseDateField.setText(editing.purchaseDate);
+        vaccinatedCombo.setSelectedItem(editing.vaccinated);
+        feedTypeField.setText(editing.feedType);
+        feedTimesField.setText(editing.feedTimes);
+        animalTypeField.setText(editing.animalType);
+    }
+
+    private void initializeGUI() {
+        setSize(500, 500);
+        setLocationRelativeTo(getParent());
+        setResizable(false);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBackground(new Color(240, 248, 255));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(8, 8, 8, 8);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        formPanel.add(new JLabel("Animal ID:"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        animalIdField = new JTextField(20);
+        formPanel.add(animalIdField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Age:"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        ageField = new JTextField(20);
+        formPanel.add(ageField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Gender (M/F):"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        genderCombo = new JComboBox<>(new String[]{"M", "F"});
+        formPanel.add(genderCombo, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Purchase Date (DD-MM-YYYY):"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        purchaseDateField = new JTextField(20);
+        formPanel.add(purchaseDateField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Vaccinated? (Y/N):"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        vaccinatedCombo = new JComboBox<>(new String[]{"Y", "N"});
+        formPanel.add(vaccinatedCombo, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Feed Type:"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        feedTypeField = new JTextField(20);
+        formPanel.add(feedTypeField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 6;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Feed Times per Day:"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        feedTimesField = new JTextField(20);
+        formPanel.add(feedTimesField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 7;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Animal Type:"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        animalTypeField = new JTextField(20);
+        formPanel.add(animalTypeField, gbc);
+
+        mainPanel.add(formPanel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+
+        JButton addButton = new JButton(editing == null ? "Add" : "Save");
+        addButton.setPreferredSize(new Dimension(100, 35));
+        addButton.setBackground(new Color(34, 139, 34));
+        addButton.setForeground(Color.black);
+        addButton.setFocusPainted(false);
+        addButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleAdd();
+            }
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setPreferredSize(new Dimension(100, 35));
+        cancelButton.setBackground(new Color(220, 20, 60));
+        cancelButton.setForeground(Color.black);
+        cancelButton.setFocusPainted(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+
+        buttonPanel.add(addButton);
+        buttonPanel.add(cancelButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+    }
+
+    private void handleAdd() {
+        try {
+            String animalId = animalIdField.getText().trim();
+            int age = Integer.parseInt(ageField.getText().trim());
+            char gender = ((String) genderCombo.getSelectedItem()).charAt(0);
+            String purchaseDate = purchaseDateField.getText().trim();
+            char vaccinated = ((String) vaccinatedCombo.getSelectedItem()).charAt(0);
+            String feedType = feedTypeField.getText().trim();
+            String feedTimes = feedTimesField.getText().trim();
+            String animalType = animalTypeField.getText().trim();
+
+            if (animalId.isEmpty() || purchaseDate.isEmpty() || feedType.isEmpty() || feedTimes.isEmpty() || animalType.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Please fill in all fields.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            if (editing != null) {
+                String message = mainSystem.updateAnimalGUI(animalId, age, gender, purchaseDate, vaccinated, feedType, feedTimes, animalType);
+                success = message.endsWith("successfully.");
+                JOptionPane.showMessageDialog(this, message, success ? "Success" : "Error",
+                        success ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+                if (success) {
+                    dispose();
+                }
+                return;
+            }
+            if (!mainSystem.addAnimalRecordGUI(animalId, age, gender, purchaseDate, vaccinated, feedType, feedTimes, animalType)) {
+                JOptionPane.showMessageDialog(this, "Animal ID already exists: " + animalId, "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            success = true;
+            JOptionPane.showMessageDialog(this, "Animal record added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+            dispose();
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Invalid age format. Please enter a number.", "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+}
+
+/**
+ * Add Milk Record Dialog - Form for adding milk records
+ */
+class AddMilkRecordDialog extends JDialog {
+    private Main mainSystem;
+    private boolean success = false;
+    private JTextField dateField, animalIdField, quantityField, staffNameField, pricePerLiterField;
+
+    public AddMilkRecordDialog(Frame parent, Main mainSystem) {
+        super(parent, "Add Milk Record", true);
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(500, 400);
+        setLocationRelativeTo(getParent());
+        setResizable(false);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBackground(new Color(240, 248, 255));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(8, 8, 8, 8);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        formPanel.add(new JLabel("Date (DD-MM-YYYY):"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        dateField = new JTextField(20);
+        formPanel.add(dateField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Animal ID:"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        animalIdField = new JTextField(20);
+        formPanel.add(animalIdField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Milk Quantity (liters):"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        quantityField = new JTextField(20);
+        formPanel.add(quantityField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Staff Name:"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        staffNameField = new JTextField(20);
+        formPanel.add(staffNameField, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.fill = GridBagConstraints.NONE;
+        gbc.weightx = 0;
+        formPanel.add(new JLabel("Price per Liter:"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        pricePerLiterField = new JTextField(20);
+        formPanel.add(pricePerLiterField, gbc);
+
+        mainPanel.add(formPanel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+
+        JButton addButton = new JButton("Add");
+        addButton.setPreferredSize(new Dimension(100, 35));
+        addButton.setBackground(new Color(34, 139, 34));
+        addButton.setForeground(Color.black);
+        addButton.setFocusPainted(false);
+        addButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleAdd();
+            }
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setPreferredSize(new Dimension(100, 35));
+        cancelButton.setBackground(new Color(220, 20, 60));
+        cancelButton.setForeground(Color.black);
+        cancelButton.setFocusPainted(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
             }
-        }
-    }
+        });
 
-    private void showStaffByTypeDialog() {
-        String type = JOptionPane.showInputDialog(this, "Enter staff type to list (e.g., doctor, milkman):", "Show Staff by Type", JOptionPane.QUESTION_MESSAGE);
-        if (type != null && !type.trim().isEmpty()) {
-            try {
-                String result = mainSystem.showStaffByTypeGUI(type.trim());
-                outputArea.append(result + "\n");
-                DisplayDialog.showResult(this, "Staff by Type", result);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        }
+        buttonPanel.add(addButton);
+        buttonPanel.add(cancelButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(mainPanel);
     }
 
-    private void showAddMilkRecordDialog() {
-        AddMilkRecordDialog dialog = new AddMilkRecordDialog(this, mainSystem);
-        dialog.setVisible(true);
-        if (dialog.isSuccess()) {
-            outputArea.append("Milk record added.\n");
-        }
-    }
+    private void handleAdd() {
+        try {
+            String date = dateField.getText().trim();
+            String animalId = animalIdField.getText().trim();
+            String quantity = quantityField.getText().trim();
+            String staffName = staffNameField.getText().trim();
+            String pricePerLiter = pricePerLiterField.getText().trim();
 
-    private void showCalculateDailyMilkPriceDialog() {
-        String date = JOptionPane.showInputDialog(this, "Enter date to calculate (DD-MM-YYYY):", "Calculate Daily Milk Price", JOptionPane.QUESTION_MESSAGE);
-        if (date != null && !date.trim().isEmpty()) {
-            String priceStr = JOptionPane.showInputDialog(this, "Enter 1 liter milk price:", "Calculate Daily Milk Price", JOptionPane.QUESTION_MESSAGE);
-            if (priceStr != null && !priceStr.trim().isEmpty()) {
-                try {
-                    double pricePerLiter = Double.parseDouble(priceStr.trim());
-                    String result = mainSystem.calculateDailyMilkPriceGUI(date.trim(), pricePerLiter);
-                    outputArea.append(result + "\n");
-                    DisplayDialog.showResult(this, "Daily Milk Price Calculation", result);
-                } catch (NumberFormatException e) {
-                    JOptionPane.showMessageDialog(this, "Invalid price format.", "Error", JOptionPane.ERROR_MESSAGE);
-                } catch (IOException e) {
-                    JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                }
+            if (date.isEmpty() || animalId.isEmpty() || quantity.isEmpty() || staffName.isEmpty() || pricePerLiter.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Please fill in all fields.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        }
-    }
 
-    private void showAllAnimalsDialog() {
-        try {
-            String result = mainSystem.showAllAnimalsGUI();
-            outputArea.append(result + "\n");
-            DisplayDialog.showResult(this, "All Animal Records", result);
+            mainSystem.addMilkRecordGUI(date, animalId, quantity, staffName, pricePerLiter);
+            success = true;
+            JOptionPane.showMessageDialog(this, "Milk record added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+            dispose();
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
-}
-
-/**
- * Display Dialog - Helper class for displaying results in a scrollable text area
- */
-class DisplayDialog extends JDialog {
-    public DisplayDialog(Frame parent, String title, String content) {
-        super(parent, title, true);
-        initializeGUI(content);
-    }
-
-    private void initializeGUI(String content) {
-        setSize(700, 500);
-        setLocationRelativeTo(getParent());
-
-        JPanel mainPanel = new JPanel(new BorderLayout());
-        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-
-        JTextArea textArea = new JTextArea(content);
-        textArea.setEditable(false);
-        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        textArea.setBackground(Color.WHITE);
-        textArea.setWrapStyleWord(true);
-        textArea.setLineWrap(true);
-
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
-
-        JButton closeButton = new JButton("Close");
-        closeButton.addActionListener(e -> dispose());
-        closeButton.setPreferredSize(new Dimension(100, 35));
-        closeButton.setBackground(new Color(70, 130, 180));
-        closeButton.setForeground(Color.black);
-        closeButton.setFocusPainted(false);
-
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-        buttonPanel.add(closeButton);
-        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
-        add(mainPanel);
-    }
 
-    public static void showResult(Component parent, String title, String content) {
-        DisplayDialog dialog = new DisplayDialog((Frame) SwingUtilities.getWindowAncestor(parent), title, content);
-        dialog.setVisible(true);
+    public boolean isSuccess() {
+        return success;
     }
 }
 
 /**
- * Add Animal Dialog - Form for adding animal records
+ * Add Staff Dialog - Form for adding staff records
  */
-class AddAnimalDialog extends JDialog {
+class AddStaffDialog extends JDialog {
     private Main mainSystem;
     private boolean success = false;
-    private JTextField animalIdField, ageField, purchaseDateField, feedTypeField, feedTimesField, animalTypeField;
-    private JComboBox<String> genderCombo, vaccinatedCombo;
+    private JTextField nameField, workStatusField, workingHoursField, salaryField, staffTypeField;
 
-    public AddAnimalDialog(Frame parent, Main mainSystem) {
-        super(parent, "Add Animal Record", true);
+    public AddStaffDialog(Frame parent, Main mainSystem) {
+        super(parent, "Add Staff", true);
         this.mainSystem = mainSystem;
         initializeGUI();
     }
 
     private void initializeGUI() {
-        setSize(500, 500);
+        setSize(500, 400);
         setLocationRelativeTo(getParent());
         setResizable(false);
 
@@ -2394,94 +10663,202 @@ class AddAnimalDialog extends JDialog {
 
         gbc.gridx = 0;
         gbc.gridy = 0;
-        formPanel.add(new JLabel("Animal ID:"), gbc);
+        formPanel.add(new JLabel("Staff Name:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        animalIdField = new JTextField(20);
-        formPanel.add(animalIdField, gbc);
+        nameField = new JTextField(20);
+        formPanel.add(nameField, gbc);
 
         gbc.gridx = 0;
         gbc.gridy = 1;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Age:"), gbc);
+        formPanel.add(new JLabel("Work Status (Full-time/Part-time):"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        ageField = new JTextField(20);
-        formPanel.add(ageField, gbc);
+        workStatusField = new JTextField(20);
+        formPanel.add(workStatusField, gbc);
 
         gbc.gridx = 0;
         gbc.gridy = 2;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Gender (M/F):"), gbc);
+        formPanel.add(new JLabel("Working Hours:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        genderCombo = new JComboBox<>(new String[]{"M", "F"});
-        formPanel.add(genderCombo, gbc);
+        workingHoursField = new JTextField(20);
+        formPanel.add(workingHoursField, gbc);
 
         gbc.gridx = 0;
         gbc.gridy = 3;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Purchase Date (DD-MM-YYYY):"), gbc);
+        formPanel.add(new JLabel("Salary:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        purchaseDateField = new JTextField(20);
-        formPanel.add(purchaseDateField, gbc);
+        salaryField = new JTextField(20);
+        formPanel.add(salaryField, gbc);
 
         gbc.gridx = 0;
         gbc.gridy = 4;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Vaccinated? (Y/N):"), gbc);
+        formPanel.add(new JLabel("Staff Type:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        vaccinatedCombo = new JComboBox<>(new String[]{"Y", "N"});
-        formPanel.add(vaccinatedCombo, gbc);
+        staffTypeField = new JTextField(20);
+        formPanel.add(staffTypeField, gbc);
+
+        mainPanel.add(formPanel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+
+        JButton addButton = new JButton("Add");
+        addButton.setPreferredSize(new Dimension(100, 35));
+        addButton.setBackground(new Color(34, 139, 34));
+        addButton.setForeground(Color.black);
+        addButton.setFocusPainted(false);
+        addButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleAdd();
+            }
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setPreferredSize(new Dimension(100, 35));
+        cancelButton.setBackground(new Color(220, 20, 60));
+        cancelButton.setForeground(Color.black);
+        cancelButton.setFocusPainted(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+
+        buttonPanel.add(addButton);
+        buttonPanel.add(cancelButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+    }
+
+    private void handleAdd() {
+        try {
+            String name = nameField.getText().trim();
+            String workStatus = workStatusField.getText().trim();
+            String workingHours = workingHoursField.getText().trim();
+            String salary = salaryField.getText().trim();
+            String staffType = staffTypeField.getText().trim();
+
+            if (name.isEmpty() || workStatus.isEmpty() || workingHours.isEmpty() || salary.isEmpty() || staffType.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Please fill in all fields.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            mainSystem.manageStaffGUI(name, workStatus, workingHours, salary, staffType);
+            success = true;
+            JOptionPane.showMessageDialog(this, "Staff record added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+            dispose();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+}
+
+/**
+ * Add Profile Dialog - Form for staff to add their own profile
+ */
+class AddProfileDialog extends JDialog {
+    private Main mainSystem;
+    private String username;
+    private boolean success = false;
+    private JTextField workStatusField, workingHoursField, salaryField, staffTypeField;
+
+    public AddProfileDialog(Frame parent, Main mainSystem, String username) {
+        super(parent, "Add Your Profile", true);
+        this.mainSystem = mainSystem;
+        this.username = username;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(500, 400);
+        setLocationRelativeTo(getParent());
+        setResizable(false);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JLabel infoLabel = new JLabel("Adding/Updating your profile. Your username (" + username + ") will be used as Staff Name.", JLabel.CENTER);
+        infoLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        infoLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 15, 0));
+        mainPanel.add(infoLabel, BorderLayout.NORTH);
+
+
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBackground(new Color(240, 248, 255));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(8, 8, 8, 8);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        formPanel.add(new JLabel("Work Status (Full-time/Part-time):"), gbc);
+        gbc.gridx = 1;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        workStatusField = new JTextField(20);
+        formPanel.add(workStatusField, gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 5;
+        gbc.gridy = 1;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Feed Type:"), gbc);
+        formPanel.add(new JLabel("Working Hours:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        feedTypeField = new JTextField(20);
-        formPanel.add(feedTypeField, gbc);
+        workingHoursField = new JTextField(20);
+        formPanel.add(workingHoursField, gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 6;
+        gbc.gridy = 2;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Feed Times per Day:"), gbc);
+        formPanel.add(new JLabel("Salary:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        feedTimesField = new JTextField(20);
-        formPanel.add(feedTimesField, gbc);
+        salaryField = new JTextField(20);
+        formPanel.add(salaryField, gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 7;
+        gbc.gridy = 3;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Animal Type:"), gbc);
+        formPanel.add(new JLabel("Staff Type:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        animalTypeField = new JTextField(20);
-        formPanel.add(animalTypeField, gbc);
+        staffTypeField = new JTextField(20);
+        formPanel.add(staffTypeField, gbc);
 
         mainPanel.add(formPanel, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
-        buttonPanel.setBackground(new Color(240, 248, 255));
+        buttonPanel.setBackground(new Color(0, 0, 0));
 
         JButton addButton = new JButton("Add");
         addButton.setPreferredSize(new Dimension(100, 35));
@@ -2515,26 +10892,20 @@ class AddAnimalDialog extends JDialog {
 
     private void handleAdd() {
         try {
-            String animalId = animalIdField.getText().trim();
-            int age = Integer.parseInt(ageField.getText().trim());
-            char gender = ((String) genderCombo.getSelectedItem()).charAt(0);
-            String purchaseDate = purchaseDateField.getText().trim();
-            char vaccinated = ((String) vaccinatedCombo.getSelectedItem()).charAt(0);
-            String feedType = feedTypeField.getText().trim();
-            String feedTimes = feedTimesField.getText().trim();
-            String animalType = animalTypeField.getText().trim();
+            String status = workStatusField.getText().trim();
+            String hours = workingHoursField.getText().trim();
+            String salary = salaryField.getText().trim();
+            String staffType = staffTypeField.getText().trim();
 
-            if (animalId.isEmpty() || purchaseDate.isEmpty() || feedType.isEmpty() || feedTimes.isEmpty() || animalType.isEmpty()) {
+            if (status.isEmpty() || hours.isEmpty() || salary.isEmpty() || staffType.isEmpty()) {
                 JOptionPane.showMessageDialog(this, "Please fill in all fields.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            mainSystem.addAnimalRecordGUI(animalId, age, gender, purchaseDate, vaccinated, feedType, feedTimes, animalType);
+            mainSystem.addOwnProfileGUI(username, status, hours, salary, staffType);
             success = true;
-            JOptionPane.showMessageDialog(this, "Animal record added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+            JOptionPane.showMessageDialog(this, "Your profile has been saved!", "Success", JOptionPane.INFORMATION_MESSAGE);
             dispose();
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "Invalid age format. Please enter a number.", "Error", JOptionPane.ERROR_MESSAGE);
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -2546,21 +10917,22 @@ class AddAnimalDialog extends JDialog {
 }
 
 /**
- * Add Milk Record Dialog - Form for adding milk records
+ * Revenue Report Dialog - Form for choosing the date range and filters of a revenue report
  */
-class AddMilkRecordDialog extends JDialog {
+class RevenueReportDialog extends JDialog {
     private Main mainSystem;
-    private boolean success = false;
-    private JTextField dateField, animalIdField, quantityField, staffNameField, pricePerLiterField;
+    private String result;
+    private JTextField fromField, toField, animalIdField, staffNameField;
+    private JCheckBox includeArchiveBox;
 
-    public AddMilkRecordDialog(Frame parent, Main mainSystem) {
-        super(parent, "Add Milk Record", true);
+    public RevenueReportDialog(Frame parent, Main mainSystem) {
+        super(parent, "Revenue Report", true);
         this.mainSystem = mainSystem;
         initializeGUI();
     }
 
     private void initializeGUI() {
-        setSize(500, 400);
+        setSize(500, 380);
         setLocationRelativeTo(getParent());
         setResizable(false);
 
@@ -2574,73 +10946,176 @@ class AddMilkRecordDialog extends JDialog {
         gbc.insets = new Insets(8, 8, 8, 8);
         gbc.anchor = GridBagConstraints.WEST;
 
-        gbc.gridx = 0;
-        gbc.gridy = 0;
-        formPanel.add(new JLabel("Date (DD-MM-YYYY):"), gbc);
+        LocalDate today = LocalDate.now();
+        fromField = new JTextField(FarmDates.format(today.withDayOfMonth(1)), 20);
+        toField = new JTextField(FarmDates.format(today), 20);
+        animalIdField = new JTextField(20);
+        staffNameField = new JTextField(20);
+        String[] labels = {"From (DD-MM-YYYY):", "To (DD-MM-YYYY):", "Animal ID (optional):", "Staff Name (optional):"};
+        JTextField[] fields = {fromField, toField, animalIdField, staffNameField};
+        for (int i = 0; i < labels.length; i++) {
+            gbc.gridx = 0;
+            gbc.gridy = i;
+            gbc.fill = GridBagConstraints.NONE;
+            gbc.weightx = 0;
+            formPanel.add(new JLabel(labels[i]), gbc);
+            gbc.gridx = 1;
+            gbc.fill = GridBagConstraints.HORIZONTAL;
+            gbc.weightx = 1.0;
+            formPanel.add(fields[i], gbc);
+        }
+
         gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        dateField = new JTextField(20);
-        formPanel.add(dateField, gbc);
+        gbc.gridy = labels.length;
+        includeArchiveBox = new JCheckBox("Include archived records");
+        includeArchiveBox.setBackground(new Color(240, 248, 255));
+        formPanel.add(includeArchiveBox, gbc);
+
+        mainPanel.add(formPanel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+
+        JButton runButton = new JButton("Run");
+        runButton.setPreferredSize(new Dimension(100, 35));
+        runButton.setBackground(new Color(34, 139, 34));
+        runButton.setForeground(Color.black);
+        runButton.setFocusPainted(false);
+        runButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleRun();
+            }
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setPreferredSize(new Dimension(100, 35));
+        cancelButton.setBackground(new Color(220, 20, 60));
+        cancelButton.setForeground(Color.black);
+        cancelButton.setFocusPainted(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+
+        buttonPanel.add(runButton);
+        buttonPanel.add(cancelButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+    }
+
+    private void handleRun() {
+        try {
+            result = mainSystem.revenueReportGUI(fromField.getText().trim(), toField.getText().trim(),
+                    animalIdField.getText(), staffNameField.getText(), includeArchiveBox.isSelected());
+            dispose();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    public String getResult() {
+        return result;
+    }
+}
+
+/**
+ * Bulk Herd Dialog - Applies one operation (cull/sold delete, vaccination, feed plan) to a list of animals
+ */
+class BulkHerdDialog extends JDialog {
+    private static final String[] OPERATIONS = {"Delete animals", "Set Vaccination", "Set Feed Type", "Set Times per day"};
+    private static final String[] FIELDS = {null, "Vaccination", "Feed Type", "Times per day"};
+
+    private Main mainSystem;
+    private String result;
+    private JTextArea idsArea;
+    private JComboBox<String> operationCombo;
+    private JTextField valueField;
+
+    public BulkHerdDialog(Frame parent, Main mainSystem) {
+        super(parent, "Bulk Herd Operations", true);
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(500, 480);
+        setLocationRelativeTo(getParent());
+        setResizable(false);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBackground(new Color(240, 248, 255));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(8, 8, 8, 8);
+        gbc.anchor = GridBagConstraints.WEST;
 
         gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 2;
+        formPanel.add(new JLabel("Animal IDs (comma, space or one per line):"), gbc);
+
         gbc.gridy = 1;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Animal ID:"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.fill = GridBagConstraints.BOTH;
         gbc.weightx = 1.0;
-        animalIdField = new JTextField(20);
-        formPanel.add(animalIdField, gbc);
+        gbc.weighty = 1.0;
+        idsArea = new JTextArea(10, 30);
+        formPanel.add(new JScrollPane(idsArea), gbc);
 
-        gbc.gridx = 0;
         gbc.gridy = 2;
         gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Milk Quantity (liters):"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        quantityField = new JTextField(20);
-        formPanel.add(quantityField, gbc);
+        gbc.weighty = 0;
+        JButton loadButton = new JButton("Load IDs from file...");
+        loadButton.setFocusPainted(false);
+        loadButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleLoad();
+            }
+        });
+        formPanel.add(loadButton, gbc);
 
+        gbc.gridwidth = 1;
         gbc.gridx = 0;
         gbc.gridy = 3;
-        gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Staff Name:"), gbc);
+        formPanel.add(new JLabel("Operation:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        staffNameField = new JTextField(20);
-        formPanel.add(staffNameField, gbc);
+        operationCombo = new JComboBox<>(OPERATIONS);
+        formPanel.add(operationCombo, gbc);
 
         gbc.gridx = 0;
         gbc.gridy = 4;
         gbc.fill = GridBagConstraints.NONE;
         gbc.weightx = 0;
-        formPanel.add(new JLabel("Price per Liter:"), gbc);
+        formPanel.add(new JLabel("New value:"), gbc);
         gbc.gridx = 1;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.weightx = 1.0;
-        pricePerLiterField = new JTextField(20);
-        formPanel.add(pricePerLiterField, gbc);
+        valueField = new JTextField(20);
+        formPanel.add(valueField, gbc);
 
         mainPanel.add(formPanel, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
         buttonPanel.setBackground(new Color(240, 248, 255));
 
-        JButton addButton = new JButton("Add");
-        addButton.setPreferredSize(new Dimension(100, 35));
-        addButton.setBackground(new Color(34, 139, 34));
-        addButton.setForeground(Color.black);
-        addButton.setFocusPainted(false);
-        addButton.addActionListener(new ActionListener() {
+        JButton applyButton = new JButton("Apply");
+        applyButton.setPreferredSize(new Dimension(100, 35));
+        applyButton.setBackground(new Color(34, 139, 34));
+        applyButton.setForeground(Color.black);
+        applyButton.setFocusPainted(false);
+        applyButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                handleAdd();
+                handleApply();
             }
         });
 
@@ -2656,57 +11131,241 @@ class AddMilkRecordDialog extends JDialog {
             }
         });
 
-        buttonPanel.add(addButton);
+        buttonPanel.add(applyButton);
         buttonPanel.add(cancelButton);
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
         add(mainPanel);
     }
 
-    private void handleAdd() {
-        try {
-            String date = dateField.getText().trim();
-            String animalId = animalIdField.getText().trim();
-            String quantity = quantityField.getText().trim();
-            String staffName = staffNameField.getText().trim();
-            String pricePerLiter = pricePerLiterField.getText().trim();
+    private void handleLoad() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                idsArea.setText(new String(Files.readAllBytes(chooser.getSelectedFile().toPath())));
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
 
-            if (date.isEmpty() || animalId.isEmpty() || quantity.isEmpty() || staffName.isEmpty() || pricePerLiter.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "Please fill in all fields.", "Error", JOptionPane.ERROR_MESSAGE);
+    private void handleApply() {
+        String field = FIELDS[operationCombo.getSelectedIndex()];
+        String value = valueField.getText().trim();
+        if (field != null && value.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter the new value.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (field == null) {
+            int confirm = JOptionPane.showConfirmDialog(this, "Delete all listed animals?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
+            if (confirm != JOptionPane.YES_OPTION) {
                 return;
             }
+        }
+        try {
+            result = mainSystem.bulkAnimalUpdateGUI(idsArea.getText(), field, value);
+            dispose();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 
-            mainSystem.addMilkRecordGUI(date, animalId, quantity, staffName, pricePerLiter);
-            success = true;
-            JOptionPane.showMessageDialog(this, "Milk record added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+    public String getResult() {
+        return result;
+    }
+}
+
+/**
+ * Milk Batch Dialog - Spreadsheet-style entry of one milking for the whole herd, saved in one go.
+ * Type a quantity and press Enter to move to the next animal; Ctrl+S saves.
+ */
+class MilkBatchDialog extends JDialog {
+    private static final int LITERS_COLUMN = 2;
+
+    private Main mainSystem;
+    private String result;
+    private JTextField dateField, staffNameField, pricePerLiterField;
+    private JTable table;
+    private DefaultTableModel model;
+
+    public MilkBatchDialog(Frame parent, Main mainSystem) {
+        super(parent, "Batch Milk Entry", true);
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(600, 600);
+        setLocationRelativeTo(getParent());
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        JPanel formPanel = new JPanel(new GridBagLayout());
+        formPanel.setBackground(new Color(240, 248, 255));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(4, 8, 4, 8);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        String today = FarmDates.format(LocalDate.now());
+        dateField = new JTextField(today, 20);
+        String staffName = mainSystem.getCurrentStaffUsername();
+        staffNameField = new JTextField(staffName == null ? "" : staffName, 20);
+        pricePerLiterField = new JTextField(20);
+        try {
+            Double price = mainSystem.getScheduledPriceGUI(today);
+            if (price != null) {
+                pricePerLiterField.setText(String.valueOf(price));
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading price schedule: " + e.getMessage());
+        }
+        String[] labels = {"Date (DD-MM-YYYY):", "Staff Name:", "Price per Liter:"};
+        JTextField[] fields = {dateField, staffNameField, pricePerLiterField};
+        for (int i = 0; i < labels.length; i++) {
+            gbc.gridx = 0;
+            gbc.gridy = i;
+            gbc.fill = GridBagConstraints.NONE;
+            gbc.weightx = 0;
+            formPanel.add(new JLabel(labels[i]), gbc);
+            gbc.gridx = 1;
+            gbc.fill = GridBagConstraints.HORIZONTAL;
+            gbc.weightx = 1.0;
+            formPanel.add(fields[i], gbc);
+        }
+        mainPanel.add(formPanel, BorderLayout.NORTH);
+
+        model = new DefaultTableModel(new Object[]{"Animal ID", "Animal Type", "Quantity (Liters)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == LITERS_COLUMN;
+            }
+        };
+        try {
+            for (AnimalRecord animal : mainSystem.getAnimalsGUI()) {
+                model.addRow(new Object[]{animal.animalId, animal.animalType, ""});
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading animal records: " + e.getMessage());
+        }
+        table = new JTable(model);
+        table.setRowHeight(22);
+        table.setSurrendersFocusOnKeystroke(true);
+        table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        mainPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+
+        JButton saveButton = new JButton("Save All");
+        saveButton.setPreferredSize(new Dimension(100, 35));
+        saveButton.setBackground(new Color(34, 139, 34));
+        saveButton.setForeground(Color.black);
+        saveButton.setFocusPainted(false);
+        ActionListener saveAction = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleSave();
+            }
+        };
+        saveButton.addActionListener(saveAction);
+        getRootPane().registerKeyboardAction(saveAction, KeyStroke.getKeyStroke("control S"),
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setPreferredSize(new Dimension(100, 35));
+        cancelButton.setBackground(new Color(220, 20, 60));
+        cancelButton.setForeground(Color.black);
+        cancelButton.setFocusPainted(false);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+
+        buttonPanel.add(saveButton);
+        buttonPanel.add(cancelButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+
+        if (model.getRowCount() > 0) {
+            table.changeSelection(0, LITERS_COLUMN, false, false);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    table.requestFocusInWindow();
+                }
+            });
+        }
+    }
+
+    private void handleSave() {
+        if (table.isEditing()) {
+            table.getCellEditor().stopCellEditing();
+        }
+        String date = dateField.getText().trim();
+        String staffName = staffNameField.getText().trim();
+        String pricePerLiter = pricePerLiterField.getText().trim();
+        if (date.isEmpty() || staffName.isEmpty() || pricePerLiter.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please fill in all fields.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        List<String[]> entries = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Object liters = model.getValueAt(row, LITERS_COLUMN);
+            entries.add(new String[]{String.valueOf(model.getValueAt(row, 0)), liters == null ? "" : liters.toString()});
+        }
+        try {
+            String message = mainSystem.addMilkBatchGUI(date, staffName, pricePerLiter, entries);
+            if (message.endsWith("Nothing was saved.") || message.startsWith("Invalid date")) {
+                JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            result = message;
             dispose();
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    public boolean isSuccess() {
-        return success;
+    public String getResult() {
+        return result;
     }
 }
 
 /**
- * Add Staff Dialog - Form for adding staff records
+ * Export Dialog - Streams records to a CSV or JSON Lines file in the background, with progress and cancel
  */
-class AddStaffDialog extends JDialog {
+class ExportDialog extends JDialog {
     private Main mainSystem;
-    private boolean success = false;
-    private JTextField nameField, workStatusField, workingHoursField, salaryField, staffTypeField;
-
-    public AddStaffDialog(Frame parent, Main mainSystem) {
-        super(parent, "Add Staff", true);
+    private String result;
+    private JComboBox<CsvImporter.Kind> kindCombo;
+    private JComboBox<DataExporter.Format> formatCombo;
+    private JTextField fromField, toField, animalIdField, typeField;
+    private JCheckBox includeArchiveBox;
+    private JLabel statusLabel;
+    private JButton exportButton;
+    private final AtomicBoolean cancel = new AtomicBoolean();
+    private SwingWorker<String, Long> worker;
+
+    public ExportDialog(Frame parent, Main mainSystem) {
+        super(parent, "Export Data", true);
         this.mainSystem = mainSystem;
         initializeGUI();
     }
 
     private void initializeGUI() {
-        setSize(500, 400);
+        setSize(500, 460);
         setLocationRelativeTo(getParent());
         setResizable(false);
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                handleCancel();
+            }
+        });
 
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
@@ -2715,76 +11374,57 @@ class AddStaffDialog extends JDialog {
         JPanel formPanel = new JPanel(new GridBagLayout());
         formPanel.setBackground(new Color(240, 248, 255));
         GridBagConstraints gbc = new GridBagConstraints();
-        gbc.insets = new Insets(8, 8, 8, 8);
+        gbc.insets = new Insets(6, 8, 6, 8);
         gbc.anchor = GridBagConstraints.WEST;
 
-        gbc.gridx = 0;
-        gbc.gridy = 0;
-        formPanel.add(new JLabel("Staff Name:"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        nameField = new JTextField(20);
-        formPanel.add(nameField, gbc);
-
-        gbc.gridx = 0;
-        gbc.gridy = 1;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Work Status (Full-time/Part-time):"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        workStatusField = new JTextField(20);
-        formPanel.add(workStatusField, gbc);
-
-        gbc.gridx = 0;
-        gbc.gridy = 2;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Working Hours:"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        workingHoursField = new JTextField(20);
-        formPanel.add(workingHoursField, gbc);
+        kindCombo = new JComboBox<>(CsvImporter.Kind.values());
+        kindCombo.setSelectedItem(CsvImporter.Kind.MILK);
+        formatCombo = new JComboBox<>(DataExporter.Format.values());
+        fromField = new JTextField(20);
+        toField = new JTextField(20);
+        animalIdField = new JTextField(20);
+        typeField = new JTextField(20);
+        String[] labels = {"Export:", "Format:", "From (DD-MM-YYYY, milk only):", "To (DD-MM-YYYY, milk only):",
+                "Animal ID (optional):", "Animal / Staff Type (optional):"};
+        JComponent[] fields = {kindCombo, formatCombo, fromField, toField, animalIdField, typeField};
+        for (int i = 0; i < labels.length; i++) {
+            gbc.gridx = 0;
+            gbc.gridy = i;
+            gbc.fill = GridBagConstraints.NONE;
+            gbc.weightx = 0;
+            formPanel.add(new JLabel(labels[i]), gbc);
+            gbc.gridx = 1;
+            gbc.fill = GridBagConstraints.HORIZONTAL;
+            gbc.weightx = 1.0;
+            formPanel.add(fields[i], gbc);
+        }
 
-        gbc.gridx = 0;
-        gbc.gridy = 3;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Salary:"), gbc);
         gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        salaryField = new JTextField(20);
-        formPanel.add(salaryField, gbc);
+        gbc.gridy = labels.length;
+        includeArchiveBox = new JCheckBox("Include archived records");
+        includeArchiveBox.setBackground(new Color(240, 248, 255));
+        formPanel.add(includeArchiveBox, gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 4;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Staff Type:"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        staffTypeField = new JTextField(20);
-        formPanel.add(staffTypeField, gbc);
+        gbc.gridy = labels.length + 1;
+        gbc.gridwidth = 2;
+        statusLabel = new JLabel(" ");
+        formPanel.add(statusLabel, gbc);
 
         mainPanel.add(formPanel, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
         buttonPanel.setBackground(new Color(240, 248, 255));
 
-        JButton addButton = new JButton("Add");
-        addButton.setPreferredSize(new Dimension(100, 35));
-        addButton.setBackground(new Color(34, 139, 34));
-        addButton.setForeground(Color.black);
-        addButton.setFocusPainted(false);
-        addButton.addActionListener(new ActionListener() {
+        exportButton = new JButton("Export");
+        exportButton.setPreferredSize(new Dimension(100, 35));
+        exportButton.setBackground(new Color(34, 139, 34));
+        exportButton.setForeground(Color.black);
+        exportButton.setFocusPainted(false);
+        exportButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                handleAdd();
+                handleExport();
             }
         });
 
@@ -2796,179 +11436,267 @@ class AddStaffDialog extends JDialog {
         cancelButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                dispose();
+                handleCancel();
             }
         });
 
-        buttonPanel.add(addButton);
+        buttonPanel.add(exportButton);
         buttonPanel.add(cancelButton);
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
         add(mainPanel);
     }
 
-    private void handleAdd() {
-        try {
-            String name = nameField.getText().trim();
-            String workStatus = workStatusField.getText().trim();
-            String workingHours = workingHoursField.getText().trim();
-            String salary = salaryField.getText().trim();
-            String staffType = staffTypeField.getText().trim();
+    private void handleExport() {
+        final CsvImporter.Kind kind = (CsvImporter.Kind) kindCombo.getSelectedItem();
+        final DataExporter.Format format = (DataExporter.Format) formatCombo.getSelectedItem();
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setSelectedFile(new File(kind.name().toLowerCase() + format.extension));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final String path = chooser.getSelectedFile().getPath();
+        final String from = fromField.getText();
+        final String to = toField.getText();
+        final String animalId = animalIdField.getText();
+        final String type = typeField.getText();
+        final boolean includeArchive = includeArchiveBox.isSelected();
+        exportButton.setEnabled(false);
+        statusLabel.setText("Exporting...");
+        cancel.set(false);
+        worker = new SwingWorker<String, Long>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return mainSystem.exportGUI(kind, format, from, to, animalId, type, includeArchive, path,
+                        cancel, rows -> publish(rows));
+            }
 
-            if (name.isEmpty() || workStatus.isEmpty() || workingHours.isEmpty() || salary.isEmpty() || staffType.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "Please fill in all fields.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
+            @Override
+            protected void process(List<Long> counts) {
+                statusLabel.setText("Exported " + counts.get(counts.size() - 1) + " rows...");
             }
 
-            mainSystem.manageStaffGUI(name, workStatus, workingHours, salary, staffType);
-            success = true;
-            JOptionPane.showMessageDialog(this, "Staff record added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            dispose();
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            @Override
+            protected void done() {
+                exportButton.setEnabled(true);
+                try {
+                    result = get();
+                    dispose();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof CancellationException) {
+                        statusLabel.setText("Export cancelled.");
+                    } else {
+                        statusLabel.setText(" ");
+                        JOptionPane.showMessageDialog(ExportDialog.this, "Error: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void handleCancel() {
+        if (worker != null && !worker.isDone()) {
+            cancel.set(true);
+            return;
         }
+        dispose();
     }
 
-    public boolean isSuccess() {
-        return success;
+    public String getResult() {
+        return result;
     }
 }
 
 /**
- * Add Profile Dialog - Form for staff to add their own profile
+ * Import CSV Dialog - Runs a CSV import in the background and shows how many rows have been read
  */
-class AddProfileDialog extends JDialog {
+class ImportCsvDialog extends JDialog {
     private Main mainSystem;
-    private String username;
-    private boolean success = false;
-    private JTextField workStatusField, workingHoursField, salaryField, staffTypeField;
+    private String result;
+    private JLabel statusLabel;
+    private SwingWorker<String, Long> worker;
 
-    public AddProfileDialog(Frame parent, Main mainSystem, String username) {
-        super(parent, "Add Your Profile", true);
+    public ImportCsvDialog(Frame parent, Main mainSystem, CsvImporter.Kind kind, File csv) {
+        super(parent, "Import CSV", true);
         this.mainSystem = mainSystem;
-        this.username = username;
-        initializeGUI();
+        initializeGUI(kind, csv);
     }
 
-    private void initializeGUI() {
-        setSize(500, 400);
+    private void initializeGUI(final CsvImporter.Kind kind, final File csv) {
+        setSize(420, 160);
         setLocationRelativeTo(getParent());
         setResizable(false);
+        // Rows are saved chunk by chunk as they are read, so the import is not stopped halfway
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
 
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
         mainPanel.setBackground(new Color(240, 248, 255));
 
-        JLabel infoLabel = new JLabel("Adding/Updating your profile. Your username (" + username + ") will be used as Staff Name.", JLabel.CENTER);
-        infoLabel.setFont(new Font("Arial", Font.PLAIN, 12));
-        infoLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 15, 0));
-        mainPanel.add(infoLabel, BorderLayout.NORTH);
-
-
         JPanel formPanel = new JPanel(new GridBagLayout());
         formPanel.setBackground(new Color(240, 248, 255));
         GridBagConstraints gbc = new GridBagConstraints();
-        gbc.insets = new Insets(8, 8, 8, 8);
+        gbc.insets = new Insets(6, 8, 6, 8);
         gbc.anchor = GridBagConstraints.WEST;
 
         gbc.gridx = 0;
         gbc.gridy = 0;
-        formPanel.add(new JLabel("Work Status (Full-time/Part-time):"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        workStatusField = new JTextField(20);
-        formPanel.add(workStatusField, gbc);
+        formPanel.add(new JLabel("Importing " + kind.label + " from " + csv.getName()), gbc);
 
-        gbc.gridx = 0;
         gbc.gridy = 1;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Working Hours:"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        workingHoursField = new JTextField(20);
-        formPanel.add(workingHoursField, gbc);
+        statusLabel = new JLabel("Reading...");
+        formPanel.add(statusLabel, gbc);
 
-        gbc.gridx = 0;
-        gbc.gridy = 2;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Salary:"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        salaryField = new JTextField(20);
-        formPanel.add(salaryField, gbc);
+        mainPanel.add(formPanel, BorderLayout.CENTER);
+        add(mainPanel);
 
-        gbc.gridx = 0;
-        gbc.gridy = 3;
-        gbc.fill = GridBagConstraints.NONE;
-        gbc.weightx = 0;
-        formPanel.add(new JLabel("Staff Type:"), gbc);
-        gbc.gridx = 1;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.weightx = 1.0;
-        staffTypeField = new JTextField(20);
-        formPanel.add(staffTypeField, gbc);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                startImport(kind, csv);
+            }
+        });
+    }
 
-        mainPanel.add(formPanel, BorderLayout.CENTER);
+    private void startImport(final CsvImporter.Kind kind, final File csv) {
+        worker = new SwingWorker<String, Long>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return mainSystem.importCsvGUI(kind, csv.getPath(), rows -> publish(rows));
+            }
+
+            @Override
+            protected void process(List<Long> counts) {
+                statusLabel.setText("Read " + counts.get(counts.size() - 1) + " rows...");
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(ImportCsvDialog.this, "Error: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                dispose();
+            }
+        };
+        worker.execute();
+    }
+
+    public String getResult() {
+        return result;
+    }
+}
+
+/**
+ * Performance Dialog - Live per-operation timings, I/O and data file sizes, refreshed every second
+ */
+class PerformanceDialog extends JDialog {
+    private Main mainSystem;
+    private JTextArea reportArea;
+    private Timer refreshTimer;
+    private SwingWorker<String, Void> worker;
+
+    public PerformanceDialog(Frame parent, Main mainSystem) {
+        super(parent, "Performance", true);
+        this.mainSystem = mainSystem;
+        initializeGUI();
+    }
+
+    private void initializeGUI() {
+        setSize(1000, 550);
+        setLocationRelativeTo(getParent());
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        mainPanel.setBackground(new Color(240, 248, 255));
+
+        reportArea = new JTextArea();
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        reportArea.setBackground(Color.WHITE);
+        JScrollPane scrollPane = new JScrollPane(reportArea);
+        scrollPane.setBorder(BorderFactory.createTitledBorder("Operations since startup or last reset"));
+        mainPanel.add(scrollPane, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 15));
-        buttonPanel.setBackground(new Color(0, 0, 0));
+        buttonPanel.setBackground(new Color(240, 248, 255));
 
-        JButton addButton = new JButton("Add");
-        addButton.setPreferredSize(new Dimension(100, 35));
-        addButton.setBackground(new Color(34, 139, 34));
-        addButton.setForeground(Color.black);
-        addButton.setFocusPainted(false);
-        addButton.addActionListener(new ActionListener() {
+        JButton resetButton = new JButton("Reset");
+        resetButton.setPreferredSize(new Dimension(100, 35));
+        resetButton.setBackground(new Color(34, 139, 34));
+        resetButton.setForeground(Color.black);
+        resetButton.setFocusPainted(false);
+        resetButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                handleAdd();
+                Metrics.resetPanel();
+                refresh();
             }
         });
 
-        JButton cancelButton = new JButton("Cancel");
-        cancelButton.setPreferredSize(new Dimension(100, 35));
-        cancelButton.setBackground(new Color(220, 20, 60));
-        cancelButton.setForeground(Color.black);
-        cancelButton.setFocusPainted(false);
-        cancelButton.addActionListener(new ActionListener() {
+        JButton closeButton = new JButton("Close");
+        closeButton.setPreferredSize(new Dimension(100, 35));
+        closeButton.setBackground(new Color(220, 20, 60));
+        closeButton.setForeground(Color.black);
+        closeButton.setFocusPainted(false);
+        closeButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 dispose();
             }
         });
 
-        buttonPanel.add(addButton);
-        buttonPanel.add(cancelButton);
+        buttonPanel.add(resetButton);
+        buttonPanel.add(closeButton);
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
         add(mainPanel);
-    }
 
-    private void handleAdd() {
-        try {
-            String status = workStatusField.getText().trim();
-            String hours = workingHoursField.getText().trim();
-            String salary = salaryField.getText().trim();
-            String staffType = staffTypeField.getText().trim();
+        refreshTimer = new Timer(1000, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                refresh();
+                refreshTimer.start();
+            }
 
-            if (status.isEmpty() || hours.isEmpty() || salary.isEmpty() || staffType.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "Please fill in all fields.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
             }
+        });
+    }
 
-            mainSystem.addOwnProfileGUI(username, status, hours, salary, staffType);
-            success = true;
-            JOptionPane.showMessageDialog(this, "Your profile has been added!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            dispose();
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    private void refresh() {
+        if (worker != null && !worker.isDone()) {
+            return; // the previous refresh is still counting files, skip this tick
         }
-    }
+        worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return mainSystem.performanceReportGUI();
+            }
 
-    public boolean isSuccess() {
-        return success;
+            @Override
+            protected void done() {
+                try {
+                    int caret = reportArea.getCaretPosition();
+                    reportArea.setText(get());
+                    reportArea.setCaretPosition(Math.min(caret, reportArea.getDocument().getLength()));
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    reportArea.setText("Error: " + cause.getMessage());
+                }
+            }
+        };
+        worker.execute();
     }
 }